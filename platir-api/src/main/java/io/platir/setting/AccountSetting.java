@@ -4,4 +4,14 @@ public interface AccountSetting {
 
     MaxNumberChecker maxStrategyCount();
 
+    /**
+     * Maximum lots of one instrument the account holds or is opening, both
+     * directions counted.
+     *
+     * @return checker of open lots per instrument
+     */
+    MaxNumberChecker maxOpenPosition();
+
+    RiskSetting risk();
+
 }
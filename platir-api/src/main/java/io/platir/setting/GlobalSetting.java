@@ -5,7 +5,80 @@ import java.util.Set;
 
 public interface GlobalSetting {
 
+    /**
+     * Market data source blocks until the strategy queue has room.
+     */
+    final static String MARKET_DATA_BLOCK = "BLOCK";
+
+    /**
+     * The oldest queued market data is dropped for the new one.
+     */
+    final static String MARKET_DATA_DROP_OLDEST = "DROP_OLDEST";
+
+    /**
+     * Queued snapshots are conflated into the new one, bars are kept. If
+     * there is no snapshot to conflate, the oldest market data is dropped.
+     */
+    final static String MARKET_DATA_CONFLATE = "CONFLATE";
+
+    /**
+     * Journal is written by the operating system when it likes, and records
+     * since the last write may be lost on power failure.
+     */
+    final static String JOURNAL_FSYNC_NONE = "NONE";
+
+    /**
+     * Journal is forced to disk once per group commit in background, and
+     * callers don't wait for it.
+     */
+    final static String JOURNAL_FSYNC_BATCH = "BATCH";
+
+    /**
+     * Caller waits until its record is forced to disk. Concurrent callers
+     * share one force.
+     */
+    final static String JOURNAL_FSYNC_SYNC = "SYNC";
+
+    /**
+     * Log record is dropped when the logging queue is full, so logging never
+     * stalls the caller.
+     */
+    final static String LOGGING_DROP = "DROP";
+
+    /**
+     * Caller waits until the logging queue has room.
+     */
+    final static String LOGGING_BLOCK = "BLOCK";
+
     boolean isMarketDataParallel();
+
+    int getMarketDataQueueCapacity();
+
+    String getMarketDataOverflow();
+
+    boolean isVirtualThreads();
+
+    String getJournalFsync();
+
+    boolean isSnapshotJsonExport();
+
+    int getSnapshotCompactInterval();
+
+    boolean isMetricsJmx();
+
+    int getReloadParallelism();
+
+    double getOrderRate();
+
+    int getOrderBurst();
+
+    int getLoggingQueueCapacity();
+
+    String getLoggingOverflow();
+
+    int getLoggingSegmentCount();
+
+    int getAccountShards();
     
     boolean isInitialDefered();
 
@@ -17,6 +90,124 @@ public interface GlobalSetting {
 
     void setMarketDataParallel(boolean parallel);
 
+    /**
+     * Set capacity of the market data queue of every strategy and instrument
+     * in parallel mode.
+     *
+     * @param capacity queue capacity
+     */
+    void setMarketDataQueueCapacity(int capacity);
+
+    /**
+     * Set what to do when a strategy's market data queue is full.
+     *
+     * @param overflow one of {@linkplain #MARKET_DATA_BLOCK},
+     * {@linkplain #MARKET_DATA_DROP_OLDEST} and
+     * {@linkplain #MARKET_DATA_CONFLATE}
+     */
+    void setMarketDataOverflow(String overflow);
+
+    /**
+     * Run strategy callbacks on virtual threads instead of the fixed pool
+     * sized to cores. It falls back to the pool if the JDK has no virtual
+     * threads.
+     *
+     * @param virtualThreads {@code true} to use virtual threads
+     */
+    void setVirtualThreads(boolean virtualThreads);
+
+    /**
+     * Set when the order and fill journal is forced to disk.
+     *
+     * @param fsync one of {@linkplain #JOURNAL_FSYNC_NONE},
+     * {@linkplain #JOURNAL_FSYNC_BATCH} and {@linkplain #JOURNAL_FSYNC_SYNC}
+     */
+    void setJournalFsync(String fsync);
+
+    /**
+     * Also write user snapshots as JSON for debugging. The JSON files are not
+     * loaded.
+     *
+     * @param export {@code true} to export JSON
+     */
+    void setSnapshotJsonExport(boolean export);
+
+    /**
+     * Set how many delta snapshots are written after a full snapshot before
+     * the next full one. Delta snapshots only have the accounts and
+     * strategies changed since the previous snapshot. Zero or less writes
+     * full snapshots only.
+     *
+     * @param interval number of delta snapshots between full snapshots
+     */
+    void setSnapshotCompactInterval(int interval);
+
+    /**
+     * Register engine metrics as an MXBean on the platform MBean server.
+     * Metrics are always recorded and can be pulled from the engine.
+     *
+     * @param jmx {@code true} to register to JMX
+     */
+    void setMetricsJmx(boolean jmx);
+
+    /**
+     * Set how many threads parse user snapshots at reinit. Zero or less
+     * means the number of cores.
+     *
+     * @param parallelism number of loader threads
+     */
+    void setReloadParallelism(int parallelism);
+
+    /**
+     * Set how many new orders per second the engine sends on average over
+     * all accounts. Zero or less means no limit.
+     *
+     * @param rate orders per second
+     */
+    void setOrderRate(double rate);
+
+    /**
+     * Set how many new orders the engine sends at once after the orders have
+     * been idle. Zero or less means one second of the order rate.
+     *
+     * @param burst maximum orders at once
+     */
+    void setOrderBurst(int burst);
+
+    /**
+     * Set capacity of the queue of log records waiting for the logging
+     * thread, shared by the engine and all strategies.
+     *
+     * @param capacity queue capacity
+     */
+    void setLoggingQueueCapacity(int capacity);
+
+    /**
+     * Set what to do when a logging queue is full.
+     *
+     * @param overflow one of {@linkplain #LOGGING_DROP} and
+     * {@linkplain #LOGGING_BLOCK}
+     */
+    void setLoggingOverflow(String overflow);
+
+    /**
+     * Set number of log store segments kept. The oldest segments and their
+     * indexes are deleted when the open segment rolls over. Zero keeps all
+     * segments.
+     *
+     * @param count maximum segment count
+     */
+    void setLoggingSegmentCount(int count);
+
+    /**
+     * Set how many single threaded shards own the accounts. Changes of an
+     * account run on the thread of its shard instead of locking the account
+     * on the calling thread. Zero or less locks the account.
+     *
+     * @param shards number of account shards
+     */
+    void setAccountShards(int shards);
+
     void addLoggingListener(LoggingListener loggingListener);
     
     void setInitialDefered(boolean defered);
@@ -0,0 +1,50 @@
+package io.platir.setting;
+
+/**
+ * Limits checked on every new order before it is sent.
+ * <p>
+ * Limits are unset by their default maximum, {@linkplain Double#MAX_VALUE}.
+ */
+public interface RiskSetting {
+
+    /**
+     * Maximum quantity of one order.
+     *
+     * @return checker of order quantity
+     */
+    MaxNumberChecker maxOrderQuantity();
+
+    /**
+     * Maximum new orders per second on average, throttled by a token bucket
+     * before the order is checked.
+     *
+     * @return checker of order rate
+     */
+    MaxNumberChecker maxOrderRate();
+
+    /**
+     * Maximum new orders sent at once after the orders have been idle. Unset
+     * burst is one second of {@linkplain #maxOrderRate()}.
+     *
+     * @return checker of order burst
+     */
+    MaxNumberChecker maxOrderBurst();
+
+    /**
+     * Maximum deviation of order price from the latest price, as a ratio of
+     * the latest price. Orders are rejected when there is no latest price and
+     * the limit is set.
+     *
+     * @return checker of price deviation ratio
+     */
+    MaxNumberChecker maxPriceDeviation();
+
+    /**
+     * Maximum notional of the untraded quantity of working orders, computed
+     * as price times quantity times instrument multiple.
+     *
+     * @return checker of outstanding notional
+     */
+    MaxNumberChecker maxOutstandingNotional();
+
+}
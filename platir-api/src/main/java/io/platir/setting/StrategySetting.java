@@ -34,4 +34,6 @@ public interface StrategySetting {
 
     Map<String, String> parameters();
 
+    RiskSetting risk();
+
 }
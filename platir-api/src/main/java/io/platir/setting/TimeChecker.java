@@ -6,4 +6,14 @@ public interface TimeChecker {
     boolean check(LocalDateTime datetime);
     
     boolean hasValue();
+
+    /**
+     * Get the first time after the specified time that the checker is true
+     * for. Times are aligned to minutes.
+     *
+     * @param after time after which the checker fires
+     * @return next fire time, or {@code null} if the checker doesn't fire
+     * again
+     */
+    LocalDateTime nextFireTime(LocalDateTime after);
 }
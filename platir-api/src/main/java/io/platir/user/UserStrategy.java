@@ -30,12 +30,14 @@ public interface UserStrategy {
     void onMarketDataSnapshot(MarketDataSnapshot marketDataSnapshot);
 
     /**
-     * Transaction parallel update.
+     * Transaction update.
      * <p>
-     * {@linkplain Transaction} is updated parallely so the callback needs to
-     * handle the concurrecy issue. Please note that there may be two or more
-     * callback accessing the same {@linkplain Transaction} instance whose
-     * internal state may be changed in calling the method.
+     * Transaction updates of a strategy are called back one at a time in the
+     * order they happen, so the callback is never entered concurrently. If a
+     * transaction is updated again before its last update is called back, the
+     * updates are coalesced into one callback with the latest state. The
+     * {@linkplain Transaction} passed in is a copy that doesn't change during
+     * the callback, so it can be read without locking.
      *
      * @param transaction transaction update
      */
@@ -0,0 +1,424 @@
+package io.platir.engine.core;
+
+import io.platir.Order;
+import io.platir.Strategy;
+import io.platir.Transaction;
+import io.platir.broker.Bar;
+import io.platir.broker.ExecutionListener;
+import io.platir.broker.ExecutionReport;
+import io.platir.broker.MarketDataListener;
+import io.platir.broker.MarketDataService;
+import io.platir.broker.MarketDataSnapshot;
+import io.platir.broker.TradingService;
+import io.platir.commons.AccountCore;
+import io.platir.commons.AccountSettingCore;
+import io.platir.commons.InstrumentCore;
+import io.platir.commons.StrategyCore;
+import io.platir.commons.StrategySettingCore;
+import io.platir.user.Session;
+import io.platir.user.UserStrategy;
+import io.platir.utils.Utils;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Stub services and data shared by the benchmarks.
+ * <p>
+ * The stubs accept every request and do no I/O, so the benchmarks measure the
+ * engine alone.
+ */
+class BenchmarkFixtures {
+
+    static final String EXCHANGE_ID = "DCE";
+    static final Executor DISPATCHER = new StrategyDispatcher(false).executor();
+
+    /**
+     * Metrics without an engine, only latencies are recorded.
+     */
+    static final EngineMetricsCore METRICS = new EngineMetricsCore(null);
+
+    /**
+     * Reference data and prices of the benchmarks.
+     */
+    static final InfoCenter INFO_CENTER = new InfoCenter();
+
+    static String tradingDay() {
+        return Utils.date();
+    }
+
+    /**
+     * Publish an instrument and its latest price to {@linkplain #INFO_CENTER}.
+     *
+     * @param instrumentId instrument ID
+     * @param price latest price
+     * @return instrument
+     */
+    static InstrumentCore instrument(String instrumentId, Double price) {
+        var instrument = new InstrumentCore();
+        instrument.setInstrumentId(instrumentId);
+        instrument.setExchangeId(EXCHANGE_ID);
+        instrument.setMultiple(10D);
+        instrument.setCommissionByAmount(0.0001D);
+        instrument.setCommissionByQuantity(0D);
+        instrument.setMarginByAmount(0.1D);
+        instrument.setMarginByQuantity(0D);
+        instrument.setUpdateDatetime(Utils.datetime());
+        INFO_CENTER.setInstrument(instrument);
+        INFO_CENTER.setLatestPrice(instrumentId, price);
+        INFO_CENTER.setTradingDay(tradingDay());
+        return instrument;
+    }
+
+    static AccountCore account(String accountId, Double balance) {
+        var account = new AccountCore();
+        account.setAccountId(accountId);
+        account.setYdBalance(balance);
+        account.setBalance(balance);
+        account.setAvailable(balance);
+        account.setAccountRule(new AccountSettingCore());
+        return account;
+    }
+
+    static Path journalDirectory() {
+        try {
+            return Files.createTempDirectory("platir-journal");
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Open a journal and journal position changes of the account as the engine
+     * does.
+     *
+     * @param directory journal directory
+     * @param account account whose positions are journaled
+     * @param fsync journal fsync setting
+     * @return journal
+     */
+    static Journal journal(Path directory, AccountCore account, String fsync) {
+        try {
+            var journal = Journal.open(directory, fsync);
+            account.positions().listeners().add(journal);
+            return journal;
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    static void deleteJournal(Journal journal, Path directory) {
+        journal.close();
+        try {
+            for (var file : Journal.list(directory)) {
+                Files.delete(file);
+            }
+            Files.delete(directory);
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    static StrategyCore strategy(String strategyId, AccountCore account) {
+        var strategy = new StrategyCore();
+        strategy.setStrategyId(strategyId);
+        strategy.setState(Strategy.NORMAL);
+        strategy.setAccount(account);
+        strategy.setStrategySetting(new StrategySettingCore());
+        return strategy;
+    }
+
+    static class StubTradingService implements TradingService {
+
+        @Override
+        public int newOrderSingle(Order order, ExecutionListener executionListener) {
+            return 0;
+        }
+
+        @Override
+        public int orderCancelRequest(Order order) {
+            return 0;
+        }
+
+        @Override
+        public int initialize(Map<String, String> parameters) {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getParameterHints() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public String getServiceVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public String getServiceName() {
+            return "stub";
+        }
+
+        @Override
+        public String getTradingDay() {
+            return tradingDay();
+        }
+    }
+
+    static class StubMarketDataService implements MarketDataService {
+
+        @Override
+        public int marketDataRequest(String instrumentId, MarketDataListener listener) {
+            return 0;
+        }
+
+        @Override
+        public int initialize(Map<String, String> parameters) {
+            return 0;
+        }
+
+        @Override
+        public Map<String, String> getParameterHints() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public String getServiceVersion() {
+            return "1.0";
+        }
+
+        @Override
+        public String getServiceName() {
+            return "stub";
+        }
+    }
+
+    static class NoopUserStrategy implements UserStrategy {
+
+        @Override
+        public void onBar(Bar bar) {
+        }
+
+        @Override
+        public void onMarketDataSnapshot(MarketDataSnapshot marketDataSnapshot) {
+        }
+
+        @Override
+        public void onTransaction(Transaction transaction) {
+        }
+
+        @Override
+        public void onLoad(Session session) {
+        }
+
+        @Override
+        public void onConfiguredOpen() {
+        }
+
+        @Override
+        public void onConfiguredClose() {
+        }
+
+        @Override
+        public void onAlarm() {
+        }
+    }
+
+    /**
+     * Execution report whose quantities are advanced by the benchmark.
+     */
+    static class FillReport implements ExecutionReport {
+
+        private final String orderId;
+        private final String instrumentId;
+        private final String direction;
+        private final String offset;
+        private final Double price;
+        private final Integer quantity;
+        private Integer tradedQuantity = 0;
+        private Integer lastTradedQuantity = 0;
+
+        FillReport(String orderId, String instrumentId, String direction, String offset, Double price, Integer quantity) {
+            this.orderId = orderId;
+            this.instrumentId = instrumentId;
+            this.direction = direction;
+            this.offset = offset;
+            this.price = price;
+            this.quantity = quantity;
+        }
+
+        void fill(int lots) {
+            lastTradedQuantity = lots;
+            tradedQuantity += lots;
+        }
+
+        boolean isAllTraded() {
+            return tradedQuantity.equals(quantity);
+        }
+
+        @Override
+        public String getExecutionReportId() {
+            return orderId + "-" + tradedQuantity;
+        }
+
+        @Override
+        public String getOrderId() {
+            return orderId;
+        }
+
+        @Override
+        public String getInstrumentId() {
+            return instrumentId;
+        }
+
+        @Override
+        public String getExchangeId() {
+            return EXCHANGE_ID;
+        }
+
+        @Override
+        public String getDirection() {
+            return direction;
+        }
+
+        @Override
+        public String getOffset() {
+            return offset;
+        }
+
+        @Override
+        public Integer getLastTradedQuantity() {
+            return lastTradedQuantity;
+        }
+
+        @Override
+        public Double getLastTradedPirce() {
+            return price;
+        }
+
+        @Override
+        public Integer getTradedQuantity() {
+            return tradedQuantity;
+        }
+
+        @Override
+        public Integer getQuantity() {
+            return quantity;
+        }
+
+        @Override
+        public String getTradingDay() {
+            return tradingDay();
+        }
+
+        @Override
+        public String getUpdateTime() {
+            return Utils.time();
+        }
+
+        @Override
+        public String getState() {
+            return Order.QUEUEING;
+        }
+    }
+
+    static class Snapshot implements MarketDataSnapshot {
+
+        private final String instrumentId;
+        private Double lastPrice;
+
+        Snapshot(String instrumentId, Double lastPrice) {
+            this.instrumentId = instrumentId;
+            this.lastPrice = lastPrice;
+        }
+
+        void setLastPrice(Double lastPrice) {
+            this.lastPrice = lastPrice;
+        }
+
+        @Override
+        public String getInstrumentId() {
+            return instrumentId;
+        }
+
+        @Override
+        public String getExchangeId() {
+            return EXCHANGE_ID;
+        }
+
+        @Override
+        public Double getLastPrice() {
+            return lastPrice;
+        }
+
+        @Override
+        public Double getAskPrice() {
+            return lastPrice + 1D;
+        }
+
+        @Override
+        public Double getBidPrice() {
+            return lastPrice - 1D;
+        }
+
+        @Override
+        public Integer getAskVolume() {
+            return 10;
+        }
+
+        @Override
+        public Integer getBidVolume() {
+            return 10;
+        }
+
+        @Override
+        public Integer getTotalVolume() {
+            return 1000;
+        }
+
+        @Override
+        public Integer getOpenInterest() {
+            return 10000;
+        }
+
+        @Override
+        public Double getOpenPrice() {
+            return lastPrice;
+        }
+
+        @Override
+        public Double getClosePrice() {
+            return null;
+        }
+
+        @Override
+        public Double getSettlementPrice() {
+            return null;
+        }
+
+        @Override
+        public String getUpdateTime() {
+            return Utils.time();
+        }
+
+        @Override
+        public Double getHighPrice() {
+            return lastPrice;
+        }
+
+        @Override
+        public Double getLowPrice() {
+            return lastPrice;
+        }
+
+        @Override
+        public String getTradingDay() {
+            return tradingDay();
+        }
+    }
+}
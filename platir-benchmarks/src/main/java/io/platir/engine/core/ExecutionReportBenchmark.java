@@ -0,0 +1,91 @@
+package io.platir.engine.core;
+
+import io.platir.Order;
+import io.platir.commons.AccountCore;
+import io.platir.commons.GlobalSettingCore;
+import io.platir.commons.StrategyCore;
+import io.platir.commons.TransactionCore;
+import io.platir.setting.GlobalSetting;
+import io.platir.user.NewOrderException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Fill processing through {@linkplain TradingAdapter#onExecutionReport}.
+ * <p>
+ * An open order of {@value #ORDER_LOTS} lots is filled one lot per report, and
+ * a new order is placed after it is all traded. Every fill is journaled, and
+ * {@code journalFsync} shows the durability cost of each fsync setting.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExecutionReportBenchmark {
+
+    private static final int ORDER_LOTS = 10000;
+    private static final String INSTRUMENT_ID = "c2205";
+    private static final Double PRICE = 2800D;
+
+    @Param({GlobalSetting.JOURNAL_FSYNC_NONE, GlobalSetting.JOURNAL_FSYNC_BATCH, GlobalSetting.JOURNAL_FSYNC_SYNC})
+    private String journalFsync;
+
+    private TradingAdapter tradingAdapter;
+    private Journal journal;
+    private Path journalDirectory;
+    private AccountCore account;
+    private StrategyCore strategy;
+    private BenchmarkFixtures.FillReport report;
+
+    @Setup(Level.Iteration)
+    public void setup() throws NewOrderException {
+        BenchmarkFixtures.instrument(INSTRUMENT_ID, PRICE);
+        var lookup = new UserStrategyLookup();
+        account = BenchmarkFixtures.account("benchmark", 1.0E12);
+        strategy = BenchmarkFixtures.strategy("benchmark-1", account);
+        lookup.putStrategy(strategy, new BenchmarkFixtures.NoopUserStrategy());
+        journalDirectory = BenchmarkFixtures.journalDirectory();
+        journal = BenchmarkFixtures.journal(journalDirectory, account, journalFsync);
+        tradingAdapter = new TradingAdapter(new BenchmarkFixtures.StubTradingService(), lookup, new GlobalSettingCore(), BenchmarkFixtures.DISPATCHER, journal, BenchmarkFixtures.METRICS, BenchmarkFixtures.INFO_CENTER, new AccountShards(0));
+        placeOrder();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        BenchmarkFixtures.deleteJournal(journal, journalDirectory);
+    }
+
+    @Benchmark
+    public void onExecutionReport() throws NewOrderException {
+        if (report.isAllTraded()) {
+            placeOrder();
+        }
+        report.fill(1);
+        tradingAdapter.onExecutionReport(report);
+    }
+
+    private void placeOrder() throws NewOrderException {
+        synchronized (account.syncObject()) {
+            strategy.transactions().clear();
+            account.positions().removeIf(position -> true);
+        }
+        var transaction = (TransactionCore) tradingAdapter.newOrderSingle(strategy, INSTRUMENT_ID, BenchmarkFixtures.EXCHANGE_ID, PRICE, ORDER_LOTS, Order.BUY, Order.OPEN);
+        var orderId = transaction.orders().keySet().iterator().next();
+        report = new BenchmarkFixtures.FillReport(orderId, INSTRUMENT_ID, Order.BUY, Order.OPEN, PRICE, ORDER_LOTS);
+    }
+}
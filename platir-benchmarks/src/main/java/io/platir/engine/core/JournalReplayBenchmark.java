@@ -0,0 +1,143 @@
+package io.platir.engine.core;
+
+import io.platir.Contract;
+import io.platir.Order;
+import io.platir.Transaction;
+import io.platir.commons.ContractState;
+import io.platir.commons.OrderCore;
+import io.platir.commons.StrategyCore;
+import io.platir.commons.TradeCore;
+import io.platir.commons.TransactionCore;
+import io.platir.commons.UserCore;
+import io.platir.setting.GlobalSetting;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Restart replay of a day of fills.
+ * <p>
+ * Every account places {@code fillsPerAccount} one-lot orders which are all
+ * filled, and every fill journals the transaction, the order, the trade and
+ * the position changes as the engine does. The benchmark replays the whole
+ * journal on accounts reloaded without the day's changes. The heap is fixed
+ * large enough for the replayed day so heap resizing is not measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class JournalReplayBenchmark {
+
+    private static final String INSTRUMENT_ID = "c2205";
+    private static final Double PRICE = 2800D;
+
+    @Param({"10000"})
+    private int accountCount;
+
+    @Param({"10"})
+    private int fillsPerAccount;
+
+    private Path journalDirectory;
+    private Set<UserCore> users;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        journalDirectory = BenchmarkFixtures.journalDirectory();
+        var day = BenchmarkFixtures.tradingDay();
+        var journal = Journal.open(journalDirectory, GlobalSetting.JOURNAL_FSYNC_NONE);
+        for (int index = 0; index < accountCount; ++index) {
+            var account = BenchmarkFixtures.account("user-" + index, 1.0E6);
+            account.positions().listeners().add(journal);
+            var strategy = BenchmarkFixtures.strategy("strategy-" + index, account);
+            for (int fill = 1; fill <= fillsPerAccount; ++fill) {
+                var transaction = new TransactionCore();
+                transaction.setTransactionId(strategy.getStrategyId() + "-" + fill);
+                transaction.setInstrumentId(INSTRUMENT_ID);
+                transaction.setExchangeId(BenchmarkFixtures.EXCHANGE_ID);
+                transaction.setPrice(PRICE);
+                transaction.setQuantity(1);
+                transaction.setDirection(Order.BUY);
+                transaction.setOffset(Order.OPEN);
+                transaction.setState(Transaction.PENDING);
+                transaction.setStrategy(strategy);
+                var order = new OrderCore();
+                order.setOrderId(transaction.getTransactionId() + "-" + fill);
+                order.setInstrumentId(INSTRUMENT_ID);
+                order.setExchangeId(BenchmarkFixtures.EXCHANGE_ID);
+                order.setPrice(PRICE);
+                order.setQuantity(1);
+                order.setDirection(Order.BUY);
+                order.setOffset(Order.OPEN);
+                order.setTransaction(transaction);
+                var opening = account.positions().add(account.getAccountId(), INSTRUMENT_ID, BenchmarkFixtures.EXCHANGE_ID, Order.BUY, Contract.OPENING, null, 1, 0D, 0D);
+                journal.transaction(transaction);
+                journal.order(order);
+                var trade = new TradeCore();
+                trade.setTradeId(order.getOrderId() + "-" + fill);
+                trade.setInstrumentId(INSTRUMENT_ID);
+                trade.setExchangeId(BenchmarkFixtures.EXCHANGE_ID);
+                trade.setPrice(PRICE);
+                trade.setQuantity(1);
+                trade.setDirection(Order.BUY);
+                trade.setOffset(Order.OPEN);
+                trade.setTradingDay(day);
+                trade.setOrder(order);
+                account.positions().transfer(opening, 1, ContractState.OPEN, day, PRICE, null);
+                journal.trade(trade);
+                order.setState(Order.ALL_TRADED);
+                journal.order(order);
+                transaction.setState(Transaction.EXECUTING);
+                journal.transaction(transaction);
+            }
+        }
+        journal.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void reload() {
+        users = new HashSet<>();
+        for (int index = 0; index < accountCount; ++index) {
+            var user = new UserCore();
+            user.setUserId("user-" + index);
+            var account = BenchmarkFixtures.account("user-" + index, 1.0E6);
+            account.setUser(user);
+            user.accounts().put(account.getAccountId(), account);
+            StrategyCore strategy = BenchmarkFixtures.strategy("strategy-" + index, account);
+            account.strategies().put(strategy.getStrategyId(), strategy);
+            users.add(user);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        for (var file : Journal.list(journalDirectory)) {
+            Files.delete(file);
+        }
+        Files.delete(journalDirectory);
+    }
+
+    @Benchmark
+    public Set<UserCore> replay() throws IOException {
+        new JournalReplay(users).replay(journalDirectory);
+        return users;
+    }
+}
@@ -0,0 +1,40 @@
+package io.platir.engine.core;
+
+import io.platir.engine.metrics.LatencyHistogram;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of timing a stage and recording it, which the hot paths pay for every
+ * order, fill and market data. Run with {@code -prof gc} to see that nothing
+ * is allocated.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatencyHistogramBenchmark {
+
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    @Benchmark
+    public void record() {
+        var startNanos = System.nanoTime();
+        histogram.record(System.nanoTime() - startNanos);
+    }
+
+    @Benchmark
+    public long percentile() {
+        return histogram.getPercentileNanos(99D);
+    }
+}
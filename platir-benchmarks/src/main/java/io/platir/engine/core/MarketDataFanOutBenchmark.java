@@ -0,0 +1,105 @@
+package io.platir.engine.core;
+
+import io.platir.broker.MarketDataSnapshot;
+import io.platir.commons.GlobalSettingCore;
+import io.platir.commons.StrategyCore;
+import io.platir.setting.GlobalSetting;
+import io.platir.user.MarketDataRequestException;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Market data fan-out through
+ * {@linkplain MarketDataAdapter#onMarketDataSnapshot} to strategies
+ * subscribing the same instrument.
+ * <p>
+ * One operation is one snapshot delivered to every strategy. In parallel mode
+ * the benchmark waits until all strategy queues have called back, so the
+ * score is the delivery time rather than the time to enqueue. Queues block on
+ * overflow so that no market data is dropped.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MarketDataFanOutBenchmark {
+
+    private static final String INSTRUMENT_ID = "c2205";
+
+    @Param({"1", "100", "10000"})
+    private int strategyCount;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private final AtomicLong delivered = new AtomicLong(0);
+    private final Set<StrategyCore> strategies = new HashSet<>();
+    private UserStrategyLookup lookup;
+    private MarketDataAdapter marketDataAdapter;
+    private BenchmarkFixtures.Snapshot snapshot;
+    private long expected;
+
+    @Setup
+    public void setup() throws MarketDataRequestException {
+        BenchmarkFixtures.instrument(INSTRUMENT_ID, 2800D);
+        var account = BenchmarkFixtures.account("benchmark", 1.0E12);
+        lookup = new UserStrategyLookup();
+        var globalSetting = new GlobalSettingCore();
+        globalSetting.setMarketDataParallel(parallel);
+        globalSetting.setMarketDataOverflow(GlobalSetting.MARKET_DATA_BLOCK);
+        marketDataAdapter = new MarketDataAdapter(new BenchmarkFixtures.StubMarketDataService(), lookup, globalSetting, BenchmarkFixtures.DISPATCHER, BenchmarkFixtures.METRICS, BenchmarkFixtures.INFO_CENTER);
+        for (int index = 0; index < strategyCount; ++index) {
+            var strategy = BenchmarkFixtures.strategy("benchmark-" + index, account);
+            lookup.putStrategy(strategy, new CountingUserStrategy(delivered));
+            marketDataAdapter.marketDataRequest(strategy, INSTRUMENT_ID);
+            strategies.add(strategy);
+        }
+        snapshot = new BenchmarkFixtures.Snapshot(INSTRUMENT_ID, 2800D);
+    }
+
+    @TearDown
+    public void tearDown() {
+        /* Queues quit on the next market data after their user strategies are removed. */
+        strategies.forEach(strategy -> lookup.removeStrategy(strategy));
+        marketDataAdapter.onMarketDataSnapshot(snapshot);
+    }
+
+    @Benchmark
+    public void onMarketDataSnapshot() {
+        expected += strategyCount;
+        marketDataAdapter.onMarketDataSnapshot(snapshot);
+        while (delivered.get() < expected) {
+            Thread.yield();
+        }
+    }
+
+    private static class CountingUserStrategy extends BenchmarkFixtures.NoopUserStrategy {
+
+        private final AtomicLong delivered;
+
+        CountingUserStrategy(AtomicLong delivered) {
+            this.delivered = delivered;
+        }
+
+        @Override
+        public void onMarketDataSnapshot(MarketDataSnapshot marketDataSnapshot) {
+            delivered.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.platir.engine.core;
+
+import io.platir.Contract;
+import io.platir.Order;
+import io.platir.commons.AccountCore;
+import io.platir.commons.GlobalSettingCore;
+import io.platir.commons.StrategyCore;
+import io.platir.setting.GlobalSetting;
+import io.platir.user.NewOrderException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Order entry through {@linkplain TradingAdapter#newOrderSingle} with a stub
+ * trading service that accepts every order.
+ * <p>
+ * {@code shards} is the number of account shards, and 0 locks the account on
+ * the calling thread.
+ * <p>
+ * Every order is one lot. The transactions and positions piling up are reset
+ * every {@value #RESET_ORDERS} orders so the account does not grow over the
+ * run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NewOrderSingleBenchmark {
+
+    private static final int RESET_ORDERS = 10000;
+    private static final String INSTRUMENT_ID = "c2205";
+    private static final Double PRICE = 2800D;
+
+    @Param({Order.OPEN, Order.CLOSE_TODAY})
+    private String offset;
+
+    @Param({"0", "4"})
+    private int shards;
+
+    private AccountShards accountShards;
+    private TradingAdapter tradingAdapter;
+    private Journal journal;
+    private Path journalDirectory;
+    private AccountCore account;
+    private StrategyCore strategy;
+    private String direction;
+    private int orders;
+
+    @Setup(Level.Trial)
+    public void setupShards() {
+        accountShards = new AccountShards(shards);
+    }
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        BenchmarkFixtures.instrument(INSTRUMENT_ID, PRICE);
+        var lookup = new UserStrategyLookup();
+        account = BenchmarkFixtures.account("benchmark", 1.0E12);
+        strategy = BenchmarkFixtures.strategy("benchmark-1", account);
+        lookup.putStrategy(strategy, new BenchmarkFixtures.NoopUserStrategy());
+        journalDirectory = BenchmarkFixtures.journalDirectory();
+        journal = BenchmarkFixtures.journal(journalDirectory, account, GlobalSetting.JOURNAL_FSYNC_NONE);
+        tradingAdapter = new TradingAdapter(new BenchmarkFixtures.StubTradingService(), lookup, new GlobalSettingCore(), BenchmarkFixtures.DISPATCHER, journal, BenchmarkFixtures.METRICS, BenchmarkFixtures.INFO_CENTER, accountShards);
+        direction = offset.equals(Order.OPEN) ? Order.BUY : Order.SELL;
+        reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        BenchmarkFixtures.deleteJournal(journal, journalDirectory);
+    }
+
+    @Benchmark
+    public Object newOrderSingle() throws NewOrderException {
+        if (++orders > RESET_ORDERS) {
+            reset();
+            orders = 1;
+        }
+        return tradingAdapter.newOrderSingle(strategy, INSTRUMENT_ID, BenchmarkFixtures.EXCHANGE_ID, PRICE, 1, direction, offset);
+    }
+
+    private void reset() {
+        accountShards.call(account, () -> {
+            strategy.transactions().clear();
+            account.positions().removeIf(position -> true);
+            if (offset.equals(Order.CLOSE_TODAY)) {
+                account.positions().add(account.getAccountId(), INSTRUMENT_ID, BenchmarkFixtures.EXCHANGE_ID, Order.BUY, Contract.OPEN, BenchmarkFixtures.tradingDay(), RESET_ORDERS, PRICE * RESET_ORDERS, 0D);
+            }
+            return null;
+        });
+    }
+}
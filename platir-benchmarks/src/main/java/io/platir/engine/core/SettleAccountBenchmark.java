@@ -0,0 +1,193 @@
+package io.platir.engine.core;
+
+import io.platir.Contract;
+import io.platir.Instrument;
+import io.platir.Order;
+import io.platir.commons.AccountCore;
+import io.platir.commons.InstrumentCore;
+import io.platir.commons.PositionCore;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Allocation of one full account settlement.
+ * <p>
+ * {@code boxed} replays the settlement on boxed {@code Double} accumulators
+ * as it was before, {@code primitive} runs
+ * {@linkplain AccountUtils#settleAccount(AccountCore, Map, Map, String, InfoCenter)}.
+ * Both walk the same aggregated positions, so the difference is unboxing
+ * alone. Run with {@code -prof gc} and compare {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SettleAccountBenchmark {
+
+    private static final String TODAY = "20220110";
+    private static final String YESTERDAY = "20220107";
+
+    private static final int INSTRUMENT_COUNT = 10;
+
+    @Param({"10", "1000", "100000"})
+    private int contractCount;
+
+    private AccountCore account;
+    private Map<String, Instrument> instruments;
+    private Map<String, Double> prices;
+
+    @Setup
+    public void setup() {
+        account = new AccountCore();
+        account.setAccountId("benchmark");
+        account.setYdBalance(1000000D);
+        instruments = new HashMap<>();
+        prices = new HashMap<>();
+        for (int index = 0; index < INSTRUMENT_COUNT; ++index) {
+            var instrumentId = "c" + (2205 + index);
+            var instrument = new InstrumentCore();
+            instrument.setInstrumentId(instrumentId);
+            instrument.setExchangeId("DCE");
+            instrument.setMultiple(10D);
+            instrument.setCommissionByAmount(index % 2 == 0 ? 0.0001D : 0D);
+            instrument.setCommissionByQuantity(1.2D);
+            instrument.setMarginByAmount(index % 3 == 0 ? 0D : 0.1D);
+            instrument.setMarginByQuantity(3000D);
+            instruments.put(instrumentId, instrument);
+            prices.put(instrumentId, 2800D + index);
+        }
+        /* Spread lots over instruments, directions, states and days, one lot at a time. */
+        var book = account.positions();
+        for (int lot = 0; lot < contractCount; ++lot) {
+            var instrumentId = "c" + (2205 + lot % INSTRUMENT_COUNT);
+            var offset = lot % 7;
+            switch ((lot / INSTRUMENT_COUNT) % 5) {
+                case 0:
+                    book.add(account.getAccountId(), instrumentId, "DCE", Order.BUY, Contract.OPEN, YESTERDAY, 1, 2790D + offset, 0D);
+                    break;
+                case 1:
+                    book.add(account.getAccountId(), instrumentId, "DCE", Order.SELL, Contract.OPEN, TODAY, 1, 2810D + offset, 0D);
+                    break;
+                case 2:
+                    book.add(account.getAccountId(), instrumentId, "DCE", Order.BUY, Contract.CLOSING, TODAY, 1, 2795D + offset, 2805D);
+                    break;
+                case 3:
+                    book.add(account.getAccountId(), instrumentId, "DCE", Order.SELL, Contract.CLOSED, YESTERDAY, 1, 2815D + offset, 2800D);
+                    break;
+                default:
+                    book.add(account.getAccountId(), instrumentId, "DCE", Order.BUY, Contract.OPENING, null, 1, 0D, 0D);
+                    break;
+            }
+        }
+    }
+
+    @Benchmark
+    public void boxed(Blackhole blackhole) {
+        blackhole.consume(BoxedSettlement.settle(account, instruments, prices, TODAY));
+    }
+
+    @Benchmark
+    public void primitive(Blackhole blackhole) {
+        AccountUtils.settleAccount(account, instruments, prices, TODAY, BenchmarkFixtures.INFO_CENTER);
+        blackhole.consume(account.available());
+    }
+
+    /**
+     * Settlement on boxed accumulators, kept only as the baseline.
+     */
+    private static class BoxedSettlement {
+
+        static Double settle(AccountCore account, Map<String, Instrument> instruments, Map<String, Double> prices, String tradingDay) {
+            Double openingCommission = 0D;
+            Double openingMargin = 0D;
+            Double closingCommission = 0D;
+            Double margin = 0D;
+            Double commission = 0D;
+            Double closeProfit = 0D;
+            Double positionProfit = 0D;
+
+            for (var position : account.positions().positions()) {
+                var instrument = instruments.get(position.getInstrumentId());
+                Double price = prices.get(position.getInstrumentId());
+                Integer quantity = position.getQuantity();
+                Double openPrice = position.getAmount() / quantity;
+                Double closePrice = position.getCloseAmount() / quantity;
+                switch (position.getState()) {
+                    case Contract.OPENING:
+                        openingCommission += commission(instrument, price, quantity);
+                        openingMargin += margin(instrument, price, quantity);
+                        break;
+                    case Contract.OPEN:
+                        if (position.getOpenTradingDay().equals(tradingDay)) {
+                            commission += commission(instrument, openPrice, quantity);
+                        }
+                        margin += margin(instrument, openPrice, quantity);
+                        positionProfit += profit(instrument, position, openPrice, price, quantity);
+                        break;
+                    case Contract.CLOSING:
+                        if (position.getOpenTradingDay().equals(tradingDay)) {
+                            commission += commission(instrument, openPrice, quantity);
+                        }
+                        margin += margin(instrument, openPrice, quantity);
+                        closingCommission += commission(instrument, closePrice, quantity);
+                        positionProfit += profit(instrument, position, openPrice, price, quantity);
+                        break;
+                    case Contract.CLOSED:
+                        if (position.getOpenTradingDay().equals(tradingDay)) {
+                            commission += commission(instrument, openPrice, quantity);
+                        }
+                        commission += commission(instrument, closePrice, quantity);
+                        closeProfit += profit(instrument, position, openPrice, closePrice, quantity);
+                        break;
+                    default:
+                        break;
+                }
+            }
+
+            Double balance = account.getYdBalance() + positionProfit + closeProfit - commission;
+            Double available = balance - openingCommission - closingCommission - openingMargin - margin;
+            return available;
+        }
+
+        static Double commission(Instrument instrument, Double price, Integer quantity) {
+            var commissionByAmount = instrument.getCommissionByAmount();
+            if (commissionByAmount.equals(0D)) {
+                return quantity * instrument.getCommissionByQuantity();
+            } else {
+                return instrument.getMultiple() * quantity * price * commissionByAmount;
+            }
+        }
+
+        static Double margin(Instrument instrument, Double price, Integer quantity) {
+            var marginByAmount = instrument.getMarginByAmount();
+            if (marginByAmount.equals(0D)) {
+                return quantity * instrument.getMarginByQuantity();
+            } else {
+                return instrument.getMultiple() * quantity * price * marginByAmount;
+            }
+        }
+
+        static Double profit(Instrument instrument, PositionCore position, Double openPrice, Double price, Integer quantity) {
+            if (position.getDirection().equals(Order.BUY)) {
+                return instrument.getMultiple() * quantity * (price - openPrice);
+            } else {
+                return instrument.getMultiple() * quantity * (openPrice - price);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package io.platir.engine.core;
+
+import io.platir.Contract;
+import io.platir.Order;
+import io.platir.Transaction;
+import io.platir.commons.AccountCore;
+import io.platir.commons.AccountSettingCore;
+import io.platir.commons.OrderCore;
+import io.platir.commons.SnapshotCodec;
+import io.platir.commons.StrategySettingCore;
+import io.platir.commons.TradeCore;
+import io.platir.commons.TransactionCore;
+import io.platir.commons.UserCore;
+import io.platir.commons.UserSettingCore;
+import io.platir.utils.Utils;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Settlement snapshot of one user written and read as pretty-printed JSON
+ * through {@linkplain Utils} and as binary through
+ * {@linkplain SnapshotCodec}.
+ * <p>
+ * Every account holds {@value #POSITION_COUNT} positions and
+ * {@value #TRANSACTION_COUNT} filled transactions. File sizes of both formats
+ * are printed at setup. The delta snapshot is written after every account is
+ * settled and one account is changed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+    private static final int POSITION_COUNT = 10;
+    private static final int TRANSACTION_COUNT = 20;
+    private static final Double PRICE = 2800D;
+
+    @Param({"10", "1000"})
+    private int accountCount;
+
+    private UserCore user;
+    private File jsonFile;
+    private File binaryFile;
+    private File deltaFile;
+    private AccountCore changedAccount;
+
+    @Setup
+    public void setup() throws IOException {
+        var day = BenchmarkFixtures.tradingDay();
+        user = new UserCore();
+        user.setUserId("benchmark");
+        user.setPassword("benchmark");
+        user.setCreateDatetime(Utils.datetime());
+        user.setUserSetting(new UserSettingCore());
+        for (int index = 0; index < accountCount; ++index) {
+            var account = BenchmarkFixtures.account(user.getUserId() + "-" + index, 1.0E6);
+            account.setAccountRule(new AccountSettingCore());
+            account.setState("NORMAL");
+            account.setJournalSequence(1L);
+            account.setUser(user);
+            user.accounts().put(account.getAccountId(), account);
+            for (int position = 0; position < POSITION_COUNT; ++position) {
+                account.positions().add(account.getAccountId(), "c" + (2205 + position), BenchmarkFixtures.EXCHANGE_ID, Order.BUY, Contract.OPEN, day, 10, PRICE * 10, 0D);
+            }
+            var strategy = BenchmarkFixtures.strategy(account.getAccountId() + "-1", account);
+            strategy.setStrategySetting(new StrategySettingCore());
+            account.strategies().put(strategy.getStrategyId(), strategy);
+            for (int count = 1; count <= TRANSACTION_COUNT; ++count) {
+                var transaction = new TransactionCore();
+                transaction.setTransactionId(strategy.getStrategyId() + "-" + count);
+                transaction.setInstrumentId("c2205");
+                transaction.setExchangeId(BenchmarkFixtures.EXCHANGE_ID);
+                transaction.setPrice(PRICE);
+                transaction.setQuantity(1);
+                transaction.setDirection(Order.BUY);
+                transaction.setOffset(Order.OPEN);
+                transaction.setState(Transaction.EXECUTING);
+                transaction.setTradingDay(day);
+                transaction.setUpdateDatetime(Utils.datetime());
+                transaction.setStrategy(strategy);
+                strategy.transactions().put(transaction.getTransactionId(), transaction);
+                var order = new OrderCore();
+                order.setOrderId(transaction.getTransactionId() + "-" + count);
+                order.setInstrumentId("c2205");
+                order.setExchangeId(BenchmarkFixtures.EXCHANGE_ID);
+                order.setPrice(PRICE);
+                order.setQuantity(1);
+                order.setDirection(Order.BUY);
+                order.setOffset(Order.OPEN);
+                order.setState(Order.ALL_TRADED);
+                order.setTradingDay(day);
+                order.setTransaction(transaction);
+                transaction.orders().put(order.getOrderId(), order);
+                var trade = new TradeCore();
+                trade.setTradeId(order.getOrderId() + "-" + count);
+                trade.setInstrumentId("c2205");
+                trade.setExchangeId(BenchmarkFixtures.EXCHANGE_ID);
+                trade.setPrice(PRICE);
+                trade.setQuantity(1);
+                trade.setDirection(Order.BUY);
+                trade.setOffset(Order.OPEN);
+                trade.setTradingDay(day);
+                trade.setUpdateDatetime(Utils.datetime());
+                trade.setOrder(order);
+                order.trades().put(trade.getTradeId(), trade);
+            }
+        }
+        jsonFile = File.createTempFile("platir-snapshot", ".json");
+        binaryFile = File.createTempFile("platir-snapshot", ".snapshot");
+        deltaFile = File.createTempFile("platir-snapshot", ".snapshot");
+        Utils.writeJson(jsonFile, user);
+        SnapshotCodec.writeUser(binaryFile, user, false, true);
+        user.setSnapshotBase(binaryFile.getParentFile().getName());
+        changedAccount = user.accounts().values().iterator().next();
+        writeDelta();
+        System.out.println("JSON " + jsonFile.length() + " bytes, binary " + binaryFile.length() + " bytes, delta " + deltaFile.length() + " bytes.");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.delete(jsonFile.toPath());
+        Files.delete(binaryFile.toPath());
+        Files.delete(deltaFile.toPath());
+    }
+
+    @Benchmark
+    public void writeJson() {
+        Utils.writeJson(jsonFile, user);
+    }
+
+    @Benchmark
+    public void writeBinary() throws IOException {
+        SnapshotCodec.writeUser(binaryFile, user);
+    }
+
+    @Benchmark
+    public void writeDelta() throws IOException {
+        /* Settlement stamps every account, but only the changed one is written. */
+        var micros = System.currentTimeMillis() * 1000L;
+        for (var account : user.accounts().values()) {
+            account.setBalance(account.getBalance() + 1D);
+            account.setSettleMicros(micros);
+        }
+        changedAccount.setYdBalance(changedAccount.getYdBalance() + 1D);
+        SnapshotCodec.writeUser(deltaFile, user, true, true);
+    }
+
+    @Benchmark
+    public UserCore readJson() {
+        return Utils.readJson(jsonFile, UserCore.class);
+    }
+
+    @Benchmark
+    public UserCore readBinary() throws IOException {
+        return SnapshotCodec.readUser(binaryFile);
+    }
+}
@@ -0,0 +1,99 @@
+package io.platir.engine.core;
+
+import io.platir.Account;
+import io.platir.Contract;
+import io.platir.Order;
+import io.platir.commons.AccountSettingCore;
+import io.platir.commons.SnapshotCodec;
+import io.platir.commons.StrategySettingCore;
+import io.platir.commons.UserCore;
+import io.platir.commons.UserSettingCore;
+import io.platir.utils.Utils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reinit load of a settlement directory of user snapshots on one thread and
+ * on as many threads as cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class UserLoaderBenchmark {
+
+    private static final int POSITION_COUNT = 10;
+
+    @Param({"5000"})
+    private int userCount;
+
+    @Param({"1", "0"})
+    private int parallelism;
+
+    private Path directory;
+
+    @Setup
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("platir-reload");
+        var day = BenchmarkFixtures.tradingDay();
+        for (int index = 0; index < userCount; ++index) {
+            var user = new UserCore();
+            user.setUserId("user-" + index);
+            user.setPassword("benchmark");
+            user.setCreateDatetime(Utils.datetime());
+            user.setUserSetting(new UserSettingCore());
+            var account = BenchmarkFixtures.account(user.getUserId(), 1.0E6);
+            account.setAccountRule(new AccountSettingCore());
+            account.setState(Account.ACTIVE);
+            account.setUser(user);
+            user.accounts().put(account.getAccountId(), account);
+            for (int position = 0; position < POSITION_COUNT; ++position) {
+                account.positions().add(account.getAccountId(), "c" + (2205 + position), BenchmarkFixtures.EXCHANGE_ID, Order.BUY, Contract.OPEN, day, 10, 28000D, 0D);
+            }
+            var strategy = BenchmarkFixtures.strategy(user.getUserId() + "-1", account);
+            strategy.setStrategySetting(new StrategySettingCore());
+            account.strategies().put(strategy.getStrategyId(), strategy);
+            SnapshotCodec.writeUser(directory.resolve(Commons.userBackupFilename(user.getUserId())).toFile(), user);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var paths = Files.list(directory)) {
+            for (var path : (Iterable<Path>) paths::iterator) {
+                Files.delete(path);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Set<UserCore> load() throws IOException {
+        var userManager = new UserManager();
+        var userStrategyManager = new UserStrategyManager();
+        var loader = new UserLoader(parallelism);
+        var users = loader.load(directory);
+        loader.publish(user -> {
+            userStrategyManager.reload(user);
+            userManager.reload(user);
+        });
+        return users;
+    }
+}
@@ -1,34 +1,44 @@
 package io.platir.commons;
 
 import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
 import io.platir.Account;
 import io.platir.Contract;
 import io.platir.Strategy;
 import io.platir.setting.AccountSetting;
+import io.platir.utils.Utils;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 public class AccountCore implements Account {
 
     private String accountId;
-    private Double openingMargin;
-    private Double openingCommission;
-    private Double closingCommission;
-    private Double balance;
-    private Double margin;
-    private Double commission;
-    private Double available;
-    private Double positionProfit;
-    private Double closeProfit;
-    private Double ydBalance;
+    private double openingMargin;
+    private double openingCommission;
+    private double closingCommission;
+    private double balance;
+    private double margin;
+    private double commission;
+    private double available;
+    private double positionProfit;
+    private double closeProfit;
+    private double ydBalance;
     private String tradingDay;
-    private String settleDatetime;
+    @SerializedName(value = "settle_micros", alternate = "settle_datetime")
+    @JsonAdapter(Utils.EpochMicrosAdapter.class)
+    private long settleMicros;
     private String state;
+    private Long journalSequence;
     private AccountSettingCore accountSetting;
     private final Map<String, StrategyCore> strategies = new ConcurrentHashMap<>();
     private final Map<String, ContractCore> contracts = new ConcurrentHashMap<>();
+    private final PositionBook positions = new PositionBook();
+    private transient volatile boolean dirty = true;
 
     @Expose(serialize = false, deserialize = false)
     private UserCore user;
@@ -39,13 +49,28 @@ public class AccountCore implements Account {
         return syncObject;
     }
 
+    /*
+     * Unboxed readers for the engine's money path, the boxed getters are kept
+     * for the Account interface.
+     */
+    public double ydBalance() {
+        return ydBalance;
+    }
+
+    public double available() {
+        return available;
+    }
+
     @Override
     public String getState() {
         return state;
     }
 
     public void setState(String state) {
-        this.state = state;
+        if (!Objects.equals(this.state, state)) {
+            this.state = state;
+            dirty = true;
+        }
     }
 
     public AccountSettingCore getAccountSetting() {
@@ -54,6 +79,7 @@ public class AccountCore implements Account {
 
     public void setAccountRule(AccountSetting accountSetting) {
         this.accountSetting = new AccountSettingCore((AccountSettingCore) accountSetting);
+        dirty = true;
     }
 
     @Override
@@ -62,7 +88,10 @@ public class AccountCore implements Account {
     }
 
     public void setAccountId(String accountId) {
-        this.accountId = accountId;
+        if (!Objects.equals(this.accountId, accountId)) {
+            this.accountId = accountId;
+            dirty = true;
+        }
     }
 
     @Override
@@ -70,7 +99,7 @@ public class AccountCore implements Account {
         return openingMargin;
     }
 
-    public void setOpeningMargin(Double openingMargin) {
+    public void setOpeningMargin(double openingMargin) {
         this.openingMargin = openingMargin;
     }
 
@@ -79,7 +108,7 @@ public class AccountCore implements Account {
         return openingCommission;
     }
 
-    public void setOpeningCommission(Double openingCommission) {
+    public void setOpeningCommission(double openingCommission) {
         this.openingCommission = openingCommission;
     }
 
@@ -88,7 +117,7 @@ public class AccountCore implements Account {
         return closingCommission;
     }
 
-    public void setClosingCommission(Double closingCommission) {
+    public void setClosingCommission(double closingCommission) {
         this.closingCommission = closingCommission;
     }
 
@@ -97,7 +126,7 @@ public class AccountCore implements Account {
         return balance;
     }
 
-    public void setBalance(Double balance) {
+    public void setBalance(double balance) {
         this.balance = balance;
     }
 
@@ -106,7 +135,7 @@ public class AccountCore implements Account {
         return margin;
     }
 
-    public void setMargin(Double margin) {
+    public void setMargin(double margin) {
         this.margin = margin;
     }
 
@@ -115,7 +144,7 @@ public class AccountCore implements Account {
         return commission;
     }
 
-    public void setCommission(Double commission) {
+    public void setCommission(double commission) {
         this.commission = commission;
     }
 
@@ -124,7 +153,7 @@ public class AccountCore implements Account {
         return available;
     }
 
-    public void setAvailable(Double available) {
+    public void setAvailable(double available) {
         this.available = available;
     }
 
@@ -133,7 +162,7 @@ public class AccountCore implements Account {
         return positionProfit;
     }
 
-    public void setPositionProfit(Double positionProfit) {
+    public void setPositionProfit(double positionProfit) {
         this.positionProfit = positionProfit;
     }
 
@@ -142,17 +171,34 @@ public class AccountCore implements Account {
         return closeProfit;
     }
 
-    public void setCloseProfit(Double closeProfit) {
+    public void setCloseProfit(double closeProfit) {
         this.closeProfit = closeProfit;
     }
 
+    /**
+     * Get sequence of the last journal record included in the snapshot of
+     * this account.
+     *
+     * @return journal sequence, or {@code null} if the snapshot has none
+     */
+    public Long getJournalSequence() {
+        return journalSequence;
+    }
+
+    public void setJournalSequence(Long sequence) {
+        this.journalSequence = sequence;
+    }
+
     @Override
     public Double getYdBalance() {
         return ydBalance;
     }
 
-    public void setYdBalance(Double ydBalance) {
-        this.ydBalance = ydBalance;
+    public void setYdBalance(double ydBalance) {
+        if (Double.compare(this.ydBalance, ydBalance) != 0) {
+            this.ydBalance = ydBalance;
+            dirty = true;
+        }
     }
 
     @Override
@@ -166,11 +212,19 @@ public class AccountCore implements Account {
 
     @Override
     public String getSettleDatetime() {
-        return settleDatetime;
+        return Utils.datetime(settleMicros);
     }
 
     public void setSettleDatetime(String datetime) {
-        this.settleDatetime = datetime;
+        this.settleMicros = Utils.epochMicros(datetime);
+    }
+
+    public long getSettleMicros() {
+        return settleMicros;
+    }
+
+    public void setSettleMicros(long epochMicros) {
+        this.settleMicros = epochMicros;
     }
 
     @Override
@@ -185,23 +239,57 @@ public class AccountCore implements Account {
         }).collect(Collectors.toSet());
     }
 
+    /**
+     * One contract per lot, expanded from positions and cached until they
+     * change. Contract IDs are not stable as lots move between positions.
+     *
+     * @return read-only contracts
+     */
     @Override
     public Collection<Contract> getContracts() {
-        return contracts.values().stream().map(core -> {
-            return (Contract) core;
-        }).collect(Collectors.toSet());
+        return Collections.unmodifiableCollection(positions.contracts());
     }
 
     public Map<String, StrategyCore> strategies() {
         return strategies;
     }
 
+    /**
+     * Per-lot contracts read from snapshots written before
+     * {@linkplain PositionBook}, to be folded into {@linkplain #positions()}.
+     *
+     * @return legacy contracts
+     */
     public Map<String, ContractCore> contracts() {
         return contracts;
     }
 
+    public PositionBook positions() {
+        return positions;
+    }
+
     public void setUser(UserCore user) {
         this.user = user;
     }
 
+    /**
+     * Check if the account or its positions are changed since the last
+     * snapshot. Strategies are tracked on their own.
+     * <p>
+     * Settlement results, trading day and settle time don't mark the account
+     * changed. They are derived from positions, yesterday balance and prices,
+     * and settled again before use, so an idle account is left out of delta
+     * snapshots.
+     *
+     * @return {@code true} if changed
+     */
+    public boolean isDirty() {
+        return dirty || positions.isDirty();
+    }
+
+    public void clearDirty() {
+        dirty = false;
+        positions.clearDirty();
+    }
+
 }
@@ -5,16 +5,31 @@ import io.platir.setting.AccountSetting;
 public class AccountSettingCore implements AccountSetting {
 
     private final MaxNumberCheckerCore maxStrategyCount = new MaxNumberCheckerCore(1);
+    private final MaxNumberCheckerCore maxOpenPosition = new MaxNumberCheckerCore(Double.MAX_VALUE);
+    private final RiskSettingCore risk;
 
     public AccountSettingCore() {
+        risk = new RiskSettingCore();
     }
 
     public AccountSettingCore(AccountSettingCore accountSetting) {
         maxStrategyCount.set(accountSetting.maxStrategyCount().get());
+        maxOpenPosition.set(accountSetting.maxOpenPosition().get());
+        risk = new RiskSettingCore(accountSetting.risk());
     }
 
     @Override
     public MaxNumberCheckerCore maxStrategyCount() {
         return maxStrategyCount;
     }
+
+    @Override
+    public MaxNumberCheckerCore maxOpenPosition() {
+        return maxOpenPosition;
+    }
+
+    @Override
+    public RiskSettingCore risk() {
+        return risk;
+    }
 }
@@ -1,6 +1,9 @@
 package io.platir.commons;
 
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
 import io.platir.Contract;
+import io.platir.utils.Utils;
 
 public class ContractCore implements Contract {
 
@@ -10,9 +13,11 @@ public class ContractCore implements Contract {
     private String exchangeId;
     private String direction;
     private Double price;
-    private String state;
+    private ContractState state;
     private String openTradingDay;
-    private String openDatetime;
+    @SerializedName(value = "open_micros", alternate = "open_datetime")
+    @JsonAdapter(Utils.EpochMicrosAdapter.class)
+    private long openMicros;
     private Double closePrice;
     private String settlementTradingDay;
 
@@ -72,10 +77,18 @@ public class ContractCore implements Contract {
 
     @Override
     public String getState() {
-        return state;
+        return state == null ? null : state.value();
     }
 
     public void setState(String state) {
+        this.state = ContractState.of(state);
+    }
+
+    public ContractState state() {
+        return state;
+    }
+
+    public void setState(ContractState state) {
         this.state = state;
     }
 
@@ -90,11 +103,19 @@ public class ContractCore implements Contract {
 
     @Override
     public String getOpenDatetime() {
-        return openDatetime;
+        return Utils.datetime(openMicros);
     }
 
     public void setOpenDatetime(String datetime) {
-        this.openDatetime = datetime;
+        this.openMicros = Utils.epochMicros(datetime);
+    }
+
+    public long getOpenMicros() {
+        return openMicros;
+    }
+
+    public void setOpenMicros(long epochMicros) {
+        this.openMicros = epochMicros;
     }
 
     @Override
@@ -0,0 +1,74 @@
+package io.platir.commons;
+
+import com.google.gson.annotations.SerializedName;
+import io.platir.Contract;
+
+/**
+ * Contract and position state kept by {@linkplain ContractCore} and
+ * {@linkplain PositionCore}, with the legal transitions looked up by ordinal.
+ * <p>
+ * An opening lot is open when filled or abandoned when canceled. An open lot
+ * is closing while its close order is queueing, and is closed when filled or
+ * open again when canceled. Staying in the same state is always legal.
+ */
+public enum ContractState {
+
+    @SerializedName(Contract.OPENING)
+    OPENING(Contract.OPENING),
+    @SerializedName(Contract.OPEN)
+    OPEN(Contract.OPEN),
+    @SerializedName(Contract.CLOSING)
+    CLOSING(Contract.CLOSING),
+    @SerializedName(Contract.CLOSED)
+    CLOSED(Contract.CLOSED),
+    @SerializedName(Contract.ABANDONED)
+    ABANDONED(Contract.ABANDONED);
+
+    private static final boolean[][] transitions = new boolean[values().length][values().length];
+
+    static {
+        allow(OPENING, OPEN, ABANDONED);
+        allow(OPEN, CLOSING);
+        allow(CLOSING, CLOSED, OPEN);
+    }
+
+    private final String value;
+
+    ContractState(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public static boolean canTransit(ContractState from, ContractState to) {
+        return from == null || from == to || transitions[from.ordinal()][to.ordinal()];
+    }
+
+    public static ContractState of(String value) {
+        if (value == null) {
+            return null;
+        }
+        switch (value) {
+            case Contract.OPENING:
+                return OPENING;
+            case Contract.OPEN:
+                return OPEN;
+            case Contract.CLOSING:
+                return CLOSING;
+            case Contract.CLOSED:
+                return CLOSED;
+            case Contract.ABANDONED:
+                return ABANDONED;
+            default:
+                throw new IllegalArgumentException("Invalid contract state(" + value + ").");
+        }
+    }
+
+    private static void allow(ContractState from, ContractState... to) {
+        for (var state : to) {
+            transitions[from.ordinal()][state.ordinal()] = true;
+        }
+    }
+}
@@ -9,9 +9,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.stream.Collectors;
 
-public class EveryTimeCheckerCore implements EveryTimeChecker {
+public class EveryTimeCheckerCore extends TimeCheckerCore implements EveryTimeChecker {
 
     private boolean hasValue = false;
     private final Set<LocalTime> everyTimes = new HashSet<>();
@@ -22,13 +23,14 @@ public class EveryTimeCheckerCore implements EveryTimeChecker {
     }
 
     public EveryTimeCheckerCore(EveryTimeChecker everyTimeChecker) {
+        hasValue = everyTimeChecker.hasValue();
         everyTimes.addAll(everyTimeChecker.getEveryTimes());
         exceptDates.addAll(everyTimeChecker.getExceptDates());
         exceptDaysOfWeek.addAll(everyTimeChecker.getExceptDaysOfWeek());
     }
 
     @Override
-    public boolean check(LocalDateTime datetime) {
+    public synchronized boolean check(LocalDateTime datetime) {
         if (!hasValue) {
             return false;
         }
@@ -38,32 +40,58 @@ public class EveryTimeCheckerCore implements EveryTimeChecker {
     }
 
     @Override
-    public Set<LocalTime> getEveryTimes() {
+    public synchronized LocalDateTime nextFireTime(LocalDateTime after) {
+        if (!hasValue || everyTimes.isEmpty() || exceptDaysOfWeek.size() >= DayOfWeek.values().length) {
+            return null;
+        }
+        var times = new TreeSet<>(everyTimes);
+        var date = after.toLocalDate();
+        var time = times.higher(after.toLocalTime());
+        /*
+         * A day of every week is not excepted, and each excepted date takes at
+         * most one such day, so one of them is left in the full weeks after
+         * the first day, one week more than excepted dates.
+         */
+        var days = DayOfWeek.values().length * (exceptDates.size() + 1);
+        for (int count = 0; count <= days; ++count) {
+            if (time != null && !exceptDates.contains(date) && !exceptDaysOfWeek.contains(date.getDayOfWeek())) {
+                return LocalDateTime.of(date, time);
+            }
+            date = date.plusDays(1);
+            time = times.first();
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized Set<LocalTime> getEveryTimes() {
         return new HashSet<>(everyTimes);
     }
 
     @Override
-    public Set<LocalDate> getExceptDates() {
+    public synchronized Set<LocalDate> getExceptDates() {
         return new HashSet<>(exceptDates);
     }
 
     @Override
-    public Set<DayOfWeek> getExceptDaysOfWeek() {
+    public synchronized Set<DayOfWeek> getExceptDaysOfWeek() {
         return new HashSet<>(exceptDaysOfWeek);
     }
 
     @Override
     public EveryTimeCheckerCore every(LocalTime... times) {
-        hasValue = true;
         return every(Arrays.asList(times));
     }
 
     @Override
     public EveryTimeCheckerCore every(Collection<LocalTime> times) {
-        hasValue = true;
-        everyTimes.addAll(times.stream()
-                .map(time -> LocalTime.of(time.getHour(), time.getMinute()))
-                .collect(Collectors.toSet()));
+        synchronized (this) {
+            hasValue = true;
+            everyTimes.addAll(times.stream()
+                    .map(time -> LocalTime.of(time.getHour(), time.getMinute()))
+                    .collect(Collectors.toSet()));
+        }
+        changed();
         return this;
     }
 
@@ -74,18 +102,24 @@ public class EveryTimeCheckerCore implements EveryTimeChecker {
 
     @Override
     public EveryTimeCheckerCore except(Collection<LocalDate> dates) {
-        exceptDates.addAll(dates);
+        synchronized (this) {
+            exceptDates.addAll(dates);
+        }
+        changed();
         return this;
     }
 
     @Override
     public EveryTimeCheckerCore except(DayOfWeek... daysOfWeek) {
-        exceptDaysOfWeek.addAll(Arrays.asList(daysOfWeek));
+        synchronized (this) {
+            exceptDaysOfWeek.addAll(Arrays.asList(daysOfWeek));
+        }
+        changed();
         return this;
     }
 
     @Override
-    public boolean hasValue() {
+    public synchronized boolean hasValue() {
         return hasValue;
     }
 }
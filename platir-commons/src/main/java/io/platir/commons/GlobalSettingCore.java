@@ -2,16 +2,29 @@ package io.platir.commons;
 
 import io.platir.setting.GlobalSetting;
 import io.platir.LoggingListener;
-import io.platir.setting.EveryTimeChecker;
 import java.util.HashSet;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 public class GlobalSettingCore implements GlobalSetting {
 
     private Boolean initialDefered = false;
     private Boolean marketDataParallel = true;
-    private final Set<LoggingListener> loggingListeners = new ConcurrentSkipListSet<>();
+    private Integer marketDataQueueCapacity = 1024;
+    private String marketDataOverflow = MARKET_DATA_CONFLATE;
+    private Boolean virtualThreads = false;
+    private String journalFsync = JOURNAL_FSYNC_BATCH;
+    private Boolean snapshotJsonExport = false;
+    private Integer snapshotCompactInterval = 4;
+    private Boolean metricsJmx = false;
+    private Integer reloadParallelism = 0;
+    private Double orderRate = 0D;
+    private Integer orderBurst = 0;
+    private Integer loggingQueueCapacity = 8192;
+    private String loggingOverflow = LOGGING_DROP;
+    private Integer loggingSegmentCount = 16;
+    private Integer accountShards = 0;
+    private final Set<LoggingListener> loggingListeners = new CopyOnWriteArraySet<>();
     private final EveryTimeCheckerCore reinitTime;
     private final EveryTimeCheckerCore clearTime;
 
@@ -21,7 +34,22 @@ public class GlobalSettingCore implements GlobalSetting {
     }
 
     public GlobalSettingCore(GlobalSettingCore globalSetting) {
+        initialDefered = globalSetting.isInitialDefered();
         marketDataParallel = globalSetting.isMarketDataParallel();
+        marketDataQueueCapacity = globalSetting.getMarketDataQueueCapacity();
+        marketDataOverflow = globalSetting.getMarketDataOverflow();
+        virtualThreads = globalSetting.isVirtualThreads();
+        journalFsync = globalSetting.getJournalFsync();
+        snapshotJsonExport = globalSetting.isSnapshotJsonExport();
+        snapshotCompactInterval = globalSetting.getSnapshotCompactInterval();
+        metricsJmx = globalSetting.isMetricsJmx();
+        reloadParallelism = globalSetting.getReloadParallelism();
+        orderRate = globalSetting.getOrderRate();
+        orderBurst = globalSetting.getOrderBurst();
+        loggingQueueCapacity = globalSetting.getLoggingQueueCapacity();
+        loggingOverflow = globalSetting.getLoggingOverflow();
+        loggingSegmentCount = globalSetting.getLoggingSegmentCount();
+        accountShards = globalSetting.getAccountShards();
         reinitTime = new EveryTimeCheckerCore(globalSetting.reinitTime());
         clearTime = new EveryTimeCheckerCore(globalSetting.clearTime());
         loggingListeners.addAll(globalSetting.getLoggingListeners());
@@ -42,6 +70,146 @@ public class GlobalSettingCore implements GlobalSetting {
         return marketDataParallel;
     }
 
+    @Override
+    public int getMarketDataQueueCapacity() {
+        return marketDataQueueCapacity;
+    }
+
+    @Override
+    public void setMarketDataQueueCapacity(int capacity) {
+        marketDataQueueCapacity = capacity;
+    }
+
+    @Override
+    public String getMarketDataOverflow() {
+        return marketDataOverflow;
+    }
+
+    @Override
+    public void setMarketDataOverflow(String overflow) {
+        marketDataOverflow = overflow;
+    }
+
+    @Override
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    @Override
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    @Override
+    public String getJournalFsync() {
+        return journalFsync;
+    }
+
+    @Override
+    public void setJournalFsync(String fsync) {
+        journalFsync = fsync;
+    }
+
+    @Override
+    public boolean isSnapshotJsonExport() {
+        return snapshotJsonExport;
+    }
+
+    @Override
+    public void setSnapshotJsonExport(boolean export) {
+        snapshotJsonExport = export;
+    }
+
+    @Override
+    public int getSnapshotCompactInterval() {
+        return snapshotCompactInterval;
+    }
+
+    @Override
+    public void setSnapshotCompactInterval(int interval) {
+        snapshotCompactInterval = interval;
+    }
+
+    @Override
+    public boolean isMetricsJmx() {
+        return metricsJmx;
+    }
+
+    @Override
+    public void setMetricsJmx(boolean jmx) {
+        metricsJmx = jmx;
+    }
+
+    @Override
+    public int getReloadParallelism() {
+        return reloadParallelism;
+    }
+
+    @Override
+    public void setReloadParallelism(int parallelism) {
+        reloadParallelism = parallelism;
+    }
+
+    @Override
+    public double getOrderRate() {
+        return orderRate;
+    }
+
+    @Override
+    public void setOrderRate(double rate) {
+        orderRate = rate;
+    }
+
+    @Override
+    public int getOrderBurst() {
+        return orderBurst;
+    }
+
+    @Override
+    public void setOrderBurst(int burst) {
+        orderBurst = burst;
+    }
+
+    @Override
+    public int getLoggingQueueCapacity() {
+        return loggingQueueCapacity;
+    }
+
+    @Override
+    public void setLoggingQueueCapacity(int capacity) {
+        loggingQueueCapacity = capacity;
+    }
+
+    @Override
+    public String getLoggingOverflow() {
+        return loggingOverflow;
+    }
+
+    @Override
+    public void setLoggingOverflow(String overflow) {
+        loggingOverflow = overflow;
+    }
+
+    @Override
+    public int getLoggingSegmentCount() {
+        return loggingSegmentCount;
+    }
+
+    @Override
+    public void setLoggingSegmentCount(int count) {
+        loggingSegmentCount = count;
+    }
+
+    @Override
+    public int getAccountShards() {
+        return accountShards;
+    }
+
+    @Override
+    public void setAccountShards(int shards) {
+        accountShards = shards;
+    }
+
     @Override
     public Set<LoggingListener> getLoggingListeners() {
         return new HashSet<>(loggingListeners);
@@ -63,7 +231,7 @@ public class GlobalSettingCore implements GlobalSetting {
     }
 
     @Override
-    public EveryTimeChecker clearTime() {
+    public EveryTimeCheckerCore clearTime() {
         return clearTime;
     }
 
@@ -1,28 +1,27 @@
 package io.platir.commons;
 
-import java.util.concurrent.atomic.AtomicReference;
 import io.platir.setting.MaxNumberChecker;
 
 public class MaxNumberCheckerCore implements MaxNumberChecker {
 
-    private final AtomicReference<Number> max = new AtomicReference();
+    private volatile Number max;
 
     public MaxNumberCheckerCore(Number defaultValue) {
-        max.set(defaultValue);
+        max = defaultValue;
     }
 
     @Override
     public boolean check(Number number) {
-        return max.get().doubleValue() < number.doubleValue();
+        return number.doubleValue() <= max.doubleValue();
     }
 
     @Override
     public void set(Number maximum) {
-        max.set(maximum);
+        max = maximum;
     }
 
     @Override
     public Number get() {
-        return max.get();
+        return max;
     }
 }
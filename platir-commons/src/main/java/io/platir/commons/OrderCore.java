@@ -18,12 +18,29 @@ public class OrderCore implements Order {
     private String direction;
     private String tradingDay;
     private String offset;
-    private String state;
+    private OrderState state;
     private final Map<String, TradeCore> trades = new ConcurrentHashMap<>();
 
     @Expose(serialize = false, deserialize = false)
     private TransactionCore transaction;
 
+    public OrderCore() {
+    }
+
+    public OrderCore(OrderCore order, TransactionCore transaction) {
+        orderId = order.getOrderId();
+        instrumentId = order.getInstrumentId();
+        exchangeId = order.getExchangeId();
+        price = order.getPrice();
+        quantity = order.getQuantity();
+        direction = order.getDirection();
+        tradingDay = order.getTradingDay();
+        offset = order.getOffset();
+        state = order.state();
+        this.transaction = transaction;
+        order.trades().values().forEach(trade -> trades.put(trade.getTradeId(), new TradeCore(trade, this)));
+    }
+
     @Override
     public String getOrderId() {
         return orderId;
@@ -98,10 +115,18 @@ public class OrderCore implements Order {
 
     @Override
     public String getState() {
-        return state;
+        return state == null ? null : state.value();
     }
 
     public void setState(String state) {
+        this.state = OrderState.of(state);
+    }
+
+    public OrderState state() {
+        return state;
+    }
+
+    public void setState(OrderState state) {
         this.state = state;
     }
 
@@ -0,0 +1,68 @@
+package io.platir.commons;
+
+import com.google.gson.annotations.SerializedName;
+import io.platir.Order;
+
+/**
+ * Order state kept by {@linkplain OrderCore}, with the legal transitions
+ * looked up by ordinal.
+ * <p>
+ * A queueing order stays queueing on partial fills and ends all traded,
+ * canceled or rejected. A new order has no state and can take any, and
+ * staying in the same state is always legal.
+ */
+public enum OrderState {
+
+    @SerializedName(Order.QUEUEING)
+    QUEUEING(Order.QUEUEING),
+    @SerializedName(Order.ALL_TRADED)
+    ALL_TRADED(Order.ALL_TRADED),
+    @SerializedName(Order.CANCELED)
+    CANCELED(Order.CANCELED),
+    @SerializedName(Order.REJECTED)
+    REJECTED(Order.REJECTED);
+
+    private static final boolean[][] transitions = new boolean[values().length][values().length];
+
+    static {
+        allow(QUEUEING, ALL_TRADED, CANCELED, REJECTED);
+    }
+
+    private final String value;
+
+    OrderState(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public static boolean canTransit(OrderState from, OrderState to) {
+        return from == null || from == to || transitions[from.ordinal()][to.ordinal()];
+    }
+
+    public static OrderState of(String value) {
+        if (value == null) {
+            return null;
+        }
+        switch (value) {
+            case Order.QUEUEING:
+                return QUEUEING;
+            case Order.ALL_TRADED:
+                return ALL_TRADED;
+            case Order.CANCELED:
+                return CANCELED;
+            case Order.REJECTED:
+                return REJECTED;
+            default:
+                throw new IllegalArgumentException("Invalid order state(" + value + ").");
+        }
+    }
+
+    private static void allow(OrderState from, OrderState... to) {
+        for (var state : to) {
+            transitions[from.ordinal()][state.ordinal()] = true;
+        }
+    }
+}
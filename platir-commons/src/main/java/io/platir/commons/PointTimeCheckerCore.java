@@ -8,7 +8,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.stream.Collectors;
 
-public class PointTimeCheckerCore implements PointTimeChecker {
+public class PointTimeCheckerCore extends TimeCheckerCore implements PointTimeChecker {
 
     private boolean hasValue = false;
     private final List<LocalDateTime> times = new LinkedList<>();
@@ -17,32 +17,35 @@ public class PointTimeCheckerCore implements PointTimeChecker {
     }
 
     public PointTimeCheckerCore(PointTimeChecker pointTimeSetter) {
+        hasValue = pointTimeSetter.hasValue();
         times.addAll(pointTimeSetter.getRemainTimes());
     }
 
     @Override
     public PointTimeCheckerCore at(LocalDateTime... times) {
-        hasValue = true;
         return at(Arrays.asList(times));
     }
 
     @Override
     public PointTimeCheckerCore at(Collection<LocalDateTime> times) {
-        hasValue = true;
-        this.times.addAll(times.stream()
-                .map(time -> LocalDateTime.of(time.getYear(), time.getMonthValue(), time.getDayOfMonth(), time.getHour(), time.getMinute()))
-                .collect(Collectors.toSet()));
-        this.times.sort((LocalDateTime time1, LocalDateTime time2) -> time1.compareTo(time2));
+        synchronized (this) {
+            hasValue = true;
+            this.times.addAll(times.stream()
+                    .map(time -> LocalDateTime.of(time.getYear(), time.getMonthValue(), time.getDayOfMonth(), time.getHour(), time.getMinute()))
+                    .collect(Collectors.toSet()));
+            this.times.sort((LocalDateTime time1, LocalDateTime time2) -> time1.compareTo(time2));
+        }
+        changed();
         return this;
     }
 
     @Override
-    public List<LocalDateTime> getRemainTimes() {
+    public synchronized List<LocalDateTime> getRemainTimes() {
         return new LinkedList<>(times);
     }
 
     @Override
-    public boolean check(LocalDateTime time) {
+    public synchronized boolean check(LocalDateTime time) {
         if (!hasValue) {
             return false;
         }
@@ -65,7 +68,20 @@ public class PointTimeCheckerCore implements PointTimeChecker {
     }
 
     @Override
-    public boolean hasValue() {
+    public synchronized LocalDateTime nextFireTime(LocalDateTime after) {
+        if (!hasValue) {
+            return null;
+        }
+        for (var time : times) {
+            if (time.isAfter(after)) {
+                return time;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public synchronized boolean hasValue() {
         return hasValue;
     }
 }
@@ -0,0 +1,359 @@
+package io.platir.commons;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+/**
+ * Positions of an account keyed by instrument, exchange, direction, state and
+ * open trading day.
+ * <p>
+ * A lot changes its state by moving from one position to another, so opening,
+ * filling and closing lots costs the same no matter how many lots are held.
+ * Callers synchronize on the owning account.
+ * <p>
+ * Positions are also indexed by instrument, exchange, direction and state so
+ * that close allocation and fill matching only touch the candidates. The index
+ * is not persisted and is rebuilt on first lookup after deserialization.
+ * <p>
+ * Positions are keyed by a composite key, so IDs containing any character
+ * don't collide. The position ID joins the key fields for display only.
+ */
+public class PositionBook {
+
+    private final Map<PositionKey, PositionCore> positions = new ConcurrentHashMap<>();
+    private final transient Map<PositionKey /* Without open trading day */, NavigableMap<String, PositionCore>> index = new ConcurrentHashMap<>();
+    private transient boolean indexed = false;
+    private final transient List<PositionListener> listeners = new CopyOnWriteArrayList<>();
+    private transient volatile boolean dirty = false;
+    private transient volatile long version = 0L;
+    private transient volatile ContractView contractView;
+
+    public Collection<PositionCore> positions() {
+        return positions.values();
+    }
+
+    public List<PositionListener> listeners() {
+        return listeners;
+    }
+
+    /**
+     * Check if any position is changed since the last snapshot.
+     *
+     * @return {@code true} if changed
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void clearDirty() {
+        dirty = false;
+    }
+
+    public PositionCore find(String instrumentId, String exchangeId, String direction, String state, String openTradingDay) {
+        return positions.get(new PositionKey(instrumentId, exchangeId, direction, state, openTradingDay));
+    }
+
+    /**
+     * Find positions of all open trading days, the earliest day first.
+     *
+     * @param instrumentId instrument ID
+     * @param exchangeId exchange ID
+     * @param direction position direction
+     * @param state position state
+     * @return positions ordered by open trading day
+     */
+    public List<PositionCore> find(String instrumentId, String exchangeId, String direction, String state) {
+        if (!indexed) {
+            reindex();
+        }
+        var days = index.get(new PositionKey(instrumentId, exchangeId, direction, state, null));
+        return days == null ? new ArrayList<>() : new ArrayList<>(days.values());
+    }
+
+    /**
+     * Add lots to the position of the specified key.
+     *
+     * @param accountId owner account ID
+     * @param instrumentId instrument ID
+     * @param exchangeId exchange ID
+     * @param direction position direction
+     * @param state position state
+     * @param openTradingDay open trading day, or {@code null} if not open yet
+     * @param quantity number of lots
+     * @param amount sum of open prices of the added lots
+     * @param closeAmount sum of close prices of the added lots
+     * @return position the lots are added to
+     */
+    public PositionCore add(String accountId, String instrumentId, String exchangeId, String direction, String state, String openTradingDay, int quantity, double amount, double closeAmount) {
+        var key = new PositionKey(instrumentId, exchangeId, direction, state, openTradingDay);
+        var position = positions.computeIfAbsent(key, k -> {
+            var created = new PositionCore();
+            created.setPositionId(k.toString());
+            created.setAccountId(accountId);
+            created.setInstrumentId(instrumentId);
+            created.setExchangeId(exchangeId);
+            created.setDirection(direction);
+            created.setState(state);
+            created.setOpenTradingDay(openTradingDay);
+            if (indexed) {
+                addIndex(created);
+            }
+            return created;
+        });
+        position.setQuantity(position.getQuantity() + quantity);
+        position.setAmount(position.getAmount() + amount);
+        position.setCloseAmount(position.getCloseAmount() + closeAmount);
+        notify(position, quantity, amount, closeAmount);
+        return position;
+    }
+
+    /**
+     * Move lots out of the specified position into the position of the
+     * specified state and open trading day.
+     *
+     * @param from position to take lots from
+     * @param quantity number of lots to move
+     * @param state target state, legal to transit from the state of the
+     * position
+     * @param openTradingDay target open trading day
+     * @param price open price of the moved lots, or {@code null} to keep
+     * @param closePrice close price of the moved lots, or {@code null} to keep
+     * @return position the lots are moved to
+     */
+    public PositionCore transfer(PositionCore from, int quantity, ContractState state, String openTradingDay, Double price, Double closePrice) {
+        if (quantity <= 0 || quantity > from.getQuantity()) {
+            throw new IllegalArgumentException("Can't move " + quantity + " lots out of " + from.getQuantity() + ".");
+        }
+        if (!ContractState.canTransit(from.state(), state)) {
+            throw new IllegalArgumentException("Can't move lots from " + from.getState() + " to " + state.value() + ".");
+        }
+        var whole = quantity == from.getQuantity();
+        var amount = whole ? from.getAmount() : from.getAmount() * quantity / from.getQuantity();
+        var closeAmount = whole ? from.getCloseAmount() : from.getCloseAmount() * quantity / from.getQuantity();
+        take(from, quantity, amount, closeAmount);
+        var to = add(from.getAccountId(), from.getInstrumentId(), from.getExchangeId(), from.getDirection(), state.value(), openTradingDay, quantity,
+                price == null ? amount : price * quantity,
+                closePrice == null ? closeAmount : closePrice * quantity);
+        if (to.getOpenMicros() == 0L) {
+            to.setOpenMicros(from.getOpenMicros());
+            ++version;
+        }
+        return to;
+    }
+
+    public void removeIf(Predicate<PositionCore> filter) {
+        positions.values().removeIf(position -> {
+            if (!filter.test(position)) {
+                return false;
+            }
+            notify(position, -position.getQuantity(), -position.getAmount(), -position.getCloseAmount());
+            return true;
+        });
+        ++version;
+        reindex();
+    }
+
+    /**
+     * Fold a per-lot contract into its position.
+     *
+     * @param contract contract from a snapshot written before position book
+     */
+    public void addContract(ContractCore contract) {
+        var position = add(contract.getAccountId(), contract.getInstrumentId(), contract.getExchangeId(), contract.getDirection(), contract.getState(), contract.getOpenTradingDay(), 1,
+                contract.getPrice() == null ? 0D : contract.getPrice(),
+                contract.getClosePrice() == null ? 0D : contract.getClosePrice());
+        if (position.getOpenMicros() == 0L) {
+            position.setOpenMicros(contract.getOpenMicros());
+            ++version;
+        }
+    }
+
+    /**
+     * Expand positions into one contract per lot.
+     * <p>
+     * The view is built again only after positions change, and callers must
+     * not modify it. A contract ID is the position ID and the index of the lot
+     * in the position, so it is not stable and changes as lots move between
+     * positions.
+     *
+     * @return read-only contracts
+     */
+    public Collection<ContractCore> contracts() {
+        var view = contractView;
+        var current = version;
+        if (view == null || view.version != current) {
+            view = new ContractView(current, expand());
+            contractView = view;
+        }
+        return view.contracts;
+    }
+
+    private Collection<ContractCore> expand() {
+        List<ContractCore> contracts = new ArrayList<>();
+        for (var position : positions.values()) {
+            var quantity = position.getQuantity();
+            for (int index = 0; index < quantity; ++index) {
+                var contract = new ContractCore();
+                contract.setContractId(position.getPositionId() + "-" + index);
+                contract.setAccountId(position.getAccountId());
+                contract.setInstrumentId(position.getInstrumentId());
+                contract.setExchangeId(position.getExchangeId());
+                contract.setDirection(position.getDirection());
+                contract.setState(position.getState());
+                contract.setOpenTradingDay(position.getOpenTradingDay());
+                contract.setOpenMicros(position.getOpenMicros());
+                if (position.getOpenTradingDay() != null) {
+                    contract.setPrice(position.getPrice());
+                }
+                if (position.getCloseAmount() != 0D) {
+                    contract.setClosePrice(position.getClosePrice());
+                }
+                contracts.add(contract);
+            }
+        }
+        return Collections.unmodifiableList(contracts);
+    }
+
+    /**
+     * Apply a recorded change to the position of the specified key, and remove
+     * the position if it has no lot left.
+     *
+     * @param accountId owner account ID
+     * @param instrumentId instrument ID
+     * @param exchangeId exchange ID
+     * @param direction position direction
+     * @param state position state
+     * @param openTradingDay open trading day, or {@code null} if not open yet
+     * @param openMicros open time of the position in microseconds since the
+     * epoch, or {@code 0} if not open yet
+     * @param quantity change of lots
+     * @param amount change of open price sum
+     * @param closeAmount change of close price sum
+     */
+    public void apply(String accountId, String instrumentId, String exchangeId, String direction, String state, String openTradingDay, long openMicros, int quantity, double amount, double closeAmount) {
+        var position = find(instrumentId, exchangeId, direction, state, openTradingDay);
+        if (position != null && position.getQuantity() + quantity == 0) {
+            take(position, -quantity, -amount, -closeAmount);
+            return;
+        }
+        position = add(accountId, instrumentId, exchangeId, direction, state, openTradingDay, quantity, amount, closeAmount);
+        if (position.getOpenMicros() == 0L) {
+            position.setOpenMicros(openMicros);
+            ++version;
+        }
+    }
+
+    private void notify(PositionCore position, int quantity, double amount, double closeAmount) {
+        dirty = true;
+        ++version;
+        for (var listener : listeners) {
+            listener.onPositionChanged(position, quantity, amount, closeAmount);
+        }
+    }
+
+    private void take(PositionCore position, int quantity, double amount, double closeAmount) {
+        notify(position, -quantity, -amount, -closeAmount);
+        if (quantity == position.getQuantity()) {
+            positions.remove(new PositionKey(position.getInstrumentId(), position.getExchangeId(), position.getDirection(), position.getState(), position.getOpenTradingDay()));
+            if (indexed) {
+                removeIndex(position);
+            }
+            position.setQuantity(0);
+            position.setAmount(0D);
+            position.setCloseAmount(0D);
+        } else {
+            position.setQuantity(position.getQuantity() - quantity);
+            position.setAmount(position.getAmount() - amount);
+            position.setCloseAmount(position.getCloseAmount() - closeAmount);
+        }
+        /* Listeners are notified before the change, so bump again after it. */
+        ++version;
+    }
+
+    private void reindex() {
+        index.clear();
+        positions.values().forEach(position -> addIndex(position));
+        indexed = true;
+    }
+
+    private void addIndex(PositionCore position) {
+        index.computeIfAbsent(new PositionKey(position.getInstrumentId(), position.getExchangeId(), position.getDirection(), position.getState(), null), key -> new ConcurrentSkipListMap<>())
+                .put(dayKey(position.getOpenTradingDay()), position);
+    }
+
+    private void removeIndex(PositionCore position) {
+        var key = new PositionKey(position.getInstrumentId(), position.getExchangeId(), position.getDirection(), position.getState(), null);
+        var days = index.get(key);
+        if (days != null) {
+            days.remove(dayKey(position.getOpenTradingDay()));
+            if (days.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static String dayKey(String openTradingDay) {
+        return openTradingDay == null ? "" : openTradingDay;
+    }
+
+    private static class PositionKey {
+
+        private final String instrumentId;
+        private final String exchangeId;
+        private final String direction;
+        private final String state;
+        private final String openTradingDay;
+
+        PositionKey(String instrumentId, String exchangeId, String direction, String state, String openTradingDay) {
+            this.instrumentId = instrumentId;
+            this.exchangeId = exchangeId;
+            this.direction = direction;
+            this.state = state;
+            this.openTradingDay = openTradingDay;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof PositionKey)) {
+                return false;
+            }
+            var key = (PositionKey) other;
+            return Objects.equals(instrumentId, key.instrumentId) && Objects.equals(exchangeId, key.exchangeId) && Objects.equals(direction, key.direction)
+                    && Objects.equals(state, key.state) && Objects.equals(openTradingDay, key.openTradingDay);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(instrumentId, exchangeId, direction, state, openTradingDay);
+        }
+
+        /* Position ID, and the map key of JSON exports. */
+        @Override
+        public String toString() {
+            return instrumentId + "-" + exchangeId + "-" + direction + "-" + state + "-" + dayKey(openTradingDay);
+        }
+    }
+
+    private static class ContractView {
+
+        private final long version;
+        private final Collection<ContractCore> contracts;
+
+        ContractView(long version, Collection<ContractCore> contracts) {
+            this.version = version;
+            this.contracts = contracts;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package io.platir.commons;
+
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
+import io.platir.utils.Utils;
+
+/**
+ * Lots of the same instrument, exchange, direction, state and open trading
+ * day aggregated into one record.
+ * <p>
+ * Prices are kept as sums over lots so that moving lots in and out keeps the
+ * volume-weighted prices exact.
+ */
+public class PositionCore {
+
+    private String positionId;
+    private String accountId;
+    private String instrumentId;
+    private String exchangeId;
+    private String direction;
+    private ContractState state;
+    private String openTradingDay;
+    @SerializedName(value = "open_micros", alternate = "open_datetime")
+    @JsonAdapter(Utils.EpochMicrosAdapter.class)
+    private long openMicros;
+    private int quantity;
+    private double amount;
+    private double closeAmount;
+
+    public String getPositionId() {
+        return positionId;
+    }
+
+    public void setPositionId(String positionId) {
+        this.positionId = positionId;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    public void setInstrumentId(String instrumentId) {
+        this.instrumentId = instrumentId;
+    }
+
+    public String getExchangeId() {
+        return exchangeId;
+    }
+
+    public void setExchangeId(String exchangeId) {
+        this.exchangeId = exchangeId;
+    }
+
+    public String getDirection() {
+        return direction;
+    }
+
+    public void setDirection(String direction) {
+        this.direction = direction;
+    }
+
+    public String getState() {
+        return state == null ? null : state.value();
+    }
+
+    public void setState(String state) {
+        this.state = ContractState.of(state);
+    }
+
+    public ContractState state() {
+        return state;
+    }
+
+    public void setState(ContractState state) {
+        this.state = state;
+    }
+
+    public String getOpenTradingDay() {
+        return openTradingDay;
+    }
+
+    public void setOpenTradingDay(String openTradingDay) {
+        this.openTradingDay = openTradingDay;
+    }
+
+    public String getOpenDatetime() {
+        return Utils.datetime(openMicros);
+    }
+
+    public void setOpenDatetime(String datetime) {
+        this.openMicros = Utils.epochMicros(datetime);
+    }
+
+    public long getOpenMicros() {
+        return openMicros;
+    }
+
+    public void setOpenMicros(long epochMicros) {
+        this.openMicros = epochMicros;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+
+    /**
+     * Sum of open prices over all lots.
+     *
+     * @return open price sum
+     */
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+
+    /**
+     * Sum of close prices over all lots.
+     *
+     * @return close price sum
+     */
+    public double getCloseAmount() {
+        return closeAmount;
+    }
+
+    public void setCloseAmount(double closeAmount) {
+        this.closeAmount = closeAmount;
+    }
+
+    /**
+     * Volume-weighted open price.
+     *
+     * @return open price, or {@code null} if there is no lot
+     */
+    public Double getPrice() {
+        return quantity == 0 ? null : amount / quantity;
+    }
+
+    /**
+     * Volume-weighted close price.
+     *
+     * @return close price, or {@code null} if there is no lot
+     */
+    public Double getClosePrice() {
+        return quantity == 0 ? null : closeAmount / quantity;
+    }
+}
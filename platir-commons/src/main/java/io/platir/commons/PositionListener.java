@@ -0,0 +1,20 @@
+package io.platir.commons;
+
+/**
+ * Receives changes of positions in a {@linkplain PositionBook}.
+ * <p>
+ * The deltas are negative if lots are taken out of the position. The listener
+ * is called under the same synchronization as the book change.
+ */
+public interface PositionListener {
+
+    /**
+     * Position change callback.
+     *
+     * @param position changed position
+     * @param quantity lots added to or taken out of the position
+     * @param amount change of open price sum
+     * @param closeAmount change of close price sum
+     */
+    void onPositionChanged(PositionCore position, int quantity, double amount, double closeAmount);
+}
@@ -0,0 +1,48 @@
+package io.platir.commons;
+
+import io.platir.setting.RiskSetting;
+
+public class RiskSettingCore implements RiskSetting {
+
+    private final MaxNumberCheckerCore maxOrderQuantity = new MaxNumberCheckerCore(Double.MAX_VALUE);
+    private final MaxNumberCheckerCore maxOrderRate = new MaxNumberCheckerCore(Double.MAX_VALUE);
+    private final MaxNumberCheckerCore maxOrderBurst = new MaxNumberCheckerCore(Double.MAX_VALUE);
+    private final MaxNumberCheckerCore maxPriceDeviation = new MaxNumberCheckerCore(Double.MAX_VALUE);
+    private final MaxNumberCheckerCore maxOutstandingNotional = new MaxNumberCheckerCore(Double.MAX_VALUE);
+
+    public RiskSettingCore() {
+    }
+
+    public RiskSettingCore(RiskSettingCore riskSetting) {
+        maxOrderQuantity.set(riskSetting.maxOrderQuantity().get());
+        maxOrderRate.set(riskSetting.maxOrderRate().get());
+        maxOrderBurst.set(riskSetting.maxOrderBurst().get());
+        maxPriceDeviation.set(riskSetting.maxPriceDeviation().get());
+        maxOutstandingNotional.set(riskSetting.maxOutstandingNotional().get());
+    }
+
+    @Override
+    public MaxNumberCheckerCore maxOrderQuantity() {
+        return maxOrderQuantity;
+    }
+
+    @Override
+    public MaxNumberCheckerCore maxOrderRate() {
+        return maxOrderRate;
+    }
+
+    @Override
+    public MaxNumberCheckerCore maxOrderBurst() {
+        return maxOrderBurst;
+    }
+
+    @Override
+    public MaxNumberCheckerCore maxPriceDeviation() {
+        return maxPriceDeviation;
+    }
+
+    @Override
+    public MaxNumberCheckerCore maxOutstandingNotional() {
+        return maxOutstandingNotional;
+    }
+}
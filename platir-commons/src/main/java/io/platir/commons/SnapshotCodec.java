@@ -0,0 +1,1039 @@
+package io.platir.commons;
+
+import io.platir.utils.Utils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Binary snapshot of a user and everything under it.
+ * <p>
+ * A snapshot starts with the magic number and the format version, followed by
+ * the user as a group of tagged fields. Every field key carries its tag and
+ * wire type, so a reader skips the fields it doesn't know and a missing field
+ * keeps its default, and fields can be added without changing the version.
+ * Nested objects are groups ended by an end key, so a snapshot is written and
+ * read in one pass without knowing sizes in advance. Null fields are not
+ * written. Settings are small and nested, so they are embedded as JSON
+ * strings. Event timestamps are varints of microseconds since the epoch.
+ * <p>
+ * A delta snapshot only has the accounts and strategies changed since the
+ * previous snapshot of the user, and names the settlement directory of the
+ * previous snapshot. An account is written whole with its positions if it or
+ * any of its strategies is changed, but only the changed strategies are
+ * written. Read the chain back to the full snapshot and
+ * {@linkplain #merge(UserCore, UserCore) merge} from the newest to the oldest.
+ * <p>
+ * Tags are never reused. Bump {@linkplain #VERSION} only if an existing tag
+ * changes its meaning.
+ */
+public class SnapshotCodec {
+
+    public static final int MAGIC = 0x504C5453;
+    public static final int VERSION = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int VARINT = 0;
+    private static final int FIXED64 = 1;
+    private static final int BYTES = 2;
+    private static final int GROUP_START = 3;
+    private static final int GROUP_END = 4;
+
+    private static final int USER_ID = 1;
+    private static final int USER_PASSWORD = 2;
+    private static final int USER_CREATE_DATETIME = 3;
+    private static final int USER_LAST_LOGIN_DATETIME = 4;
+    private static final int USER_SETTING = 5;
+    private static final int USER_ACCOUNT = 6;
+    private static final int USER_SNAPSHOT_BASE = 7;
+    private static final int USER_SNAPSHOT_DEPTH = 8;
+
+    private static final int ACCOUNT_ID = 1;
+    private static final int ACCOUNT_STATE = 2;
+    private static final int ACCOUNT_TRADING_DAY = 3;
+    private static final int ACCOUNT_SETTLE_MICROS = 4;
+    private static final int ACCOUNT_SETTING = 5;
+    private static final int ACCOUNT_OPENING_MARGIN = 6;
+    private static final int ACCOUNT_OPENING_COMMISSION = 7;
+    private static final int ACCOUNT_CLOSING_COMMISSION = 8;
+    private static final int ACCOUNT_BALANCE = 9;
+    private static final int ACCOUNT_MARGIN = 10;
+    private static final int ACCOUNT_COMMISSION = 11;
+    private static final int ACCOUNT_AVAILABLE = 12;
+    private static final int ACCOUNT_POSITION_PROFIT = 13;
+    private static final int ACCOUNT_CLOSE_PROFIT = 14;
+    private static final int ACCOUNT_YD_BALANCE = 15;
+    private static final int ACCOUNT_STRATEGY = 16;
+    private static final int ACCOUNT_POSITION = 17;
+    private static final int ACCOUNT_CONTRACT = 18;
+    private static final int ACCOUNT_JOURNAL_SEQUENCE = 19;
+
+    private static final int STRATEGY_ID = 1;
+    private static final int STRATEGY_STATE = 2;
+    private static final int STRATEGY_CREATE_DATETIME = 3;
+    private static final int STRATEGY_REMOVE_DATETIME = 4;
+    private static final int STRATEGY_SETTING = 5;
+    private static final int STRATEGY_TRANSACTION = 6;
+
+    private static final int TRANSACTION_ID = 1;
+    private static final int TRANSACTION_INSTRUMENT_ID = 2;
+    private static final int TRANSACTION_EXCHANGE_ID = 3;
+    private static final int TRANSACTION_PRICE = 4;
+    private static final int TRANSACTION_QUANTITY = 5;
+    private static final int TRANSACTION_DIRECTION = 6;
+    private static final int TRANSACTION_OFFSET = 7;
+    private static final int TRANSACTION_STATE = 8;
+    private static final int TRANSACTION_TRADING_DAY = 9;
+    private static final int TRANSACTION_UPDATE_MICROS = 10;
+    private static final int TRANSACTION_ORDER = 11;
+
+    private static final int ORDER_ID = 1;
+    private static final int ORDER_INSTRUMENT_ID = 2;
+    private static final int ORDER_EXCHANGE_ID = 3;
+    private static final int ORDER_PRICE = 4;
+    private static final int ORDER_QUANTITY = 5;
+    private static final int ORDER_DIRECTION = 6;
+    private static final int ORDER_OFFSET = 7;
+    private static final int ORDER_STATE = 8;
+    private static final int ORDER_TRADING_DAY = 9;
+    private static final int ORDER_TRADE = 10;
+
+    private static final int TRADE_ID = 1;
+    private static final int TRADE_INSTRUMENT_ID = 2;
+    private static final int TRADE_EXCHANGE_ID = 3;
+    private static final int TRADE_PRICE = 4;
+    private static final int TRADE_QUANTITY = 5;
+    private static final int TRADE_DIRECTION = 6;
+    private static final int TRADE_OFFSET = 7;
+    private static final int TRADE_TRADING_DAY = 8;
+    private static final int TRADE_UPDATE_DATETIME = 9;
+
+    private static final int POSITION_ACCOUNT_ID = 1;
+    private static final int POSITION_INSTRUMENT_ID = 2;
+    private static final int POSITION_EXCHANGE_ID = 3;
+    private static final int POSITION_DIRECTION = 4;
+    private static final int POSITION_STATE = 5;
+    private static final int POSITION_OPEN_TRADING_DAY = 6;
+    private static final int POSITION_OPEN_MICROS = 7;
+    private static final int POSITION_QUANTITY = 8;
+    private static final int POSITION_AMOUNT = 9;
+    private static final int POSITION_CLOSE_AMOUNT = 10;
+
+    private static final int CONTRACT_ID = 1;
+    private static final int CONTRACT_ACCOUNT_ID = 2;
+    private static final int CONTRACT_INSTRUMENT_ID = 3;
+    private static final int CONTRACT_EXCHANGE_ID = 4;
+    private static final int CONTRACT_DIRECTION = 5;
+    private static final int CONTRACT_PRICE = 6;
+    private static final int CONTRACT_STATE = 7;
+    private static final int CONTRACT_OPEN_TRADING_DAY = 8;
+    private static final int CONTRACT_OPEN_MICROS = 9;
+    private static final int CONTRACT_CLOSE_PRICE = 10;
+    private static final int CONTRACT_SETTLEMENT_TRADING_DAY = 11;
+
+    public static void writeUser(File outfile, UserCore user) throws IOException {
+        writeUser(outfile, user, false, false);
+    }
+
+    public static void writeUser(File outfile, UserCore user, boolean delta, boolean clean) throws IOException {
+        writeUser(outfile, user, delta, clean, null);
+    }
+
+    /**
+     * Write the user snapshot to a temporary file next to the target, sync it
+     * and move it over the target, so a crash never leaves a partly written
+     * snapshot that later deltas are based on.
+     */
+    public static void writeUser(File outfile, UserCore user, boolean delta, boolean clean, AccountAccess access) throws IOException {
+        var target = outfile.toPath();
+        var temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        try {
+            try (var output = new FileOutputStream(temporary.toFile(), false)) {
+                write(output, user, delta, clean, access);
+                output.getFD().sync();
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static UserCore readUser(File infile) throws IOException {
+        try (var input = new FileInputStream(infile)) {
+            return read(input);
+        }
+    }
+
+    /**
+     * Write the user snapshot to the stream. The stream is flushed but not
+     * closed.
+     *
+     * @param output output stream
+     * @param user user to write
+     * @throws IOException if the stream throws it
+     */
+    public static void write(OutputStream output, UserCore user) throws IOException {
+        write(output, user, false, false);
+    }
+
+    /**
+     * Write the user snapshot to the stream. The stream is flushed but not
+     * closed.
+     * <p>
+     * A delta snapshot is based on {@linkplain UserCore#getSnapshotBase()},
+     * and a full snapshot is written instead if the user has no base. Objects
+     * are marked clean before they are written so a change made while
+     * writing is kept for the next snapshot.
+     *
+     * @param output output stream
+     * @param user user to write
+     * @param delta {@code true} to write only changed accounts and strategies
+     * @param clean {@code true} to mark written objects clean
+     * @throws IOException if the stream throws it
+     */
+    public static void write(OutputStream output, UserCore user, boolean delta, boolean clean) throws IOException {
+        write(output, user, delta, clean, null);
+    }
+
+    /**
+     * Write the user snapshot to the stream, and every account is encoded in
+     * memory through the specified access so it is captured at one point.
+     * The stream is flushed but not closed.
+     *
+     * @param output output stream
+     * @param user user to write
+     * @param delta {@code true} to write only changed accounts and strategies
+     * @param clean {@code true} to mark written objects clean
+     * @param access access to every account while it is encoded, or
+     * {@code null} to encode accounts directly into the stream
+     * @throws IOException if the stream throws it
+     */
+    public static void write(OutputStream output, UserCore user, boolean delta, boolean clean, AccountAccess access) throws IOException {
+        var writer = new Writer(output, delta && user.getSnapshotBase() != null, clean, access);
+        writer.output.writeInt(MAGIC);
+        writer.writeVarint(VERSION);
+        writer.writeUser(user);
+        writer.output.flush();
+    }
+
+    /**
+     * Merge the previous snapshot of a user into the newer delta snapshot.
+     * Accounts and strategies of the delta replace those in the previous
+     * snapshot, and the rest are moved into the delta.
+     *
+     * @param delta newer delta snapshot, merged in place
+     * @param previous previous snapshot of the same user
+     */
+    public static void merge(UserCore delta, UserCore previous) {
+        previous.accounts().values().forEach(account -> {
+            var newer = delta.accounts().get(account.getAccountId());
+            if (newer == null) {
+                account.setUser(delta);
+                delta.accounts().put(account.getAccountId(), account);
+            } else {
+                account.strategies().values().forEach(strategy -> {
+                    if (newer.strategies().putIfAbsent(strategy.getStrategyId(), strategy) == null) {
+                        strategy.setAccount(newer);
+                    }
+                });
+            }
+        });
+        delta.setSnapshotBase(previous.getSnapshotBase());
+    }
+
+    /**
+     * Read a user snapshot from the stream, with upward references restored.
+     *
+     * @param input input stream
+     * @return user
+     * @throws IOException if the stream throws it, or the snapshot is not
+     * valid or has a newer version
+     */
+    public static UserCore read(InputStream input) throws IOException {
+        var reader = new Reader(input);
+        if (reader.input.readInt() != MAGIC) {
+            throw new IOException("Not a user snapshot.");
+        }
+        var version = (int) reader.readVarint();
+        if (version > VERSION) {
+            throw new IOException("Snapshot version " + version + " is newer than " + VERSION + ".");
+        }
+        return reader.readUser();
+    }
+
+    /**
+     * Exclusive access to an account while it is encoded.
+     */
+    @FunctionalInterface
+    public interface AccountAccess {
+
+        /**
+         * Run the encoding with exclusive access to the account.
+         *
+         * @param account account to encode
+         * @param encoding encoding of the account
+         * @throws IOException if the encoding throws it
+         */
+        void run(AccountCore account, AccountEncoding encoding) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface AccountEncoding {
+
+        void run() throws IOException;
+    }
+
+    private static class Writer {
+
+        private final DataOutputStream output;
+        private final boolean delta;
+        private final boolean clean;
+        private final AccountAccess access;
+
+        Writer(OutputStream output, boolean delta, boolean clean, AccountAccess access) {
+            this.output = new DataOutputStream(new BufferedOutputStream(output, BUFFER_SIZE));
+            this.delta = delta;
+            this.clean = clean;
+            this.access = access;
+        }
+
+        void writeUser(UserCore user) throws IOException {
+            writeString(USER_ID, user.getUserId());
+            writeString(USER_PASSWORD, user.getPassword());
+            writeString(USER_CREATE_DATETIME, user.getCreateDatetime());
+            writeString(USER_LAST_LOGIN_DATETIME, user.getLastLoginDatetime());
+            writeJson(USER_SETTING, user.getUserSetting());
+            if (delta) {
+                writeString(USER_SNAPSHOT_BASE, user.getSnapshotBase());
+                writeVarint(USER_SNAPSHOT_DEPTH, user.getSnapshotDepth() + 1);
+            }
+            if (access == null) {
+                for (var account : user.accounts().values()) {
+                    writeAccountGroup(account);
+                }
+                return;
+            }
+            var bytes = new ByteArrayOutputStream(BUFFER_SIZE);
+            var accountWriter = new Writer(bytes, delta, clean, null);
+            for (var account : user.accounts().values()) {
+                access.run(account, () -> {
+                    accountWriter.writeAccountGroup(account);
+                    accountWriter.output.flush();
+                });
+                bytes.writeTo(output);
+                bytes.reset();
+            }
+        }
+
+        void writeAccountGroup(AccountCore account) throws IOException {
+            if (delta && !account.isDirty() && account.strategies().values().stream().noneMatch(StrategyCore::isDirty)) {
+                return;
+            }
+            writeKey(USER_ACCOUNT, GROUP_START);
+            writeAccount(account);
+            writeKey(USER_ACCOUNT, GROUP_END);
+        }
+
+        void writeAccount(AccountCore account) throws IOException {
+            if (clean) {
+                account.clearDirty();
+            }
+            writeString(ACCOUNT_ID, account.getAccountId());
+            writeString(ACCOUNT_STATE, account.getState());
+            writeString(ACCOUNT_TRADING_DAY, account.getTradingDay());
+            writeMicros(ACCOUNT_SETTLE_MICROS, account.getSettleMicros());
+            if (account.getJournalSequence() != null) {
+                writeVarint(ACCOUNT_JOURNAL_SEQUENCE, account.getJournalSequence());
+            }
+            writeJson(ACCOUNT_SETTING, account.getAccountSetting());
+            writeDouble(ACCOUNT_OPENING_MARGIN, account.getOpeningMargin());
+            writeDouble(ACCOUNT_OPENING_COMMISSION, account.getOpeningCommission());
+            writeDouble(ACCOUNT_CLOSING_COMMISSION, account.getClosingCommission());
+            writeDouble(ACCOUNT_BALANCE, account.getBalance());
+            writeDouble(ACCOUNT_MARGIN, account.getMargin());
+            writeDouble(ACCOUNT_COMMISSION, account.getCommission());
+            writeDouble(ACCOUNT_AVAILABLE, account.getAvailable());
+            writeDouble(ACCOUNT_POSITION_PROFIT, account.getPositionProfit());
+            writeDouble(ACCOUNT_CLOSE_PROFIT, account.getCloseProfit());
+            writeDouble(ACCOUNT_YD_BALANCE, account.getYdBalance());
+            for (var strategy : account.strategies().values()) {
+                if (delta && !strategy.isDirty()) {
+                    continue;
+                }
+                writeKey(ACCOUNT_STRATEGY, GROUP_START);
+                writeStrategy(strategy);
+                writeKey(ACCOUNT_STRATEGY, GROUP_END);
+            }
+            for (var position : account.positions().positions()) {
+                writeKey(ACCOUNT_POSITION, GROUP_START);
+                writePosition(position);
+                writeKey(ACCOUNT_POSITION, GROUP_END);
+            }
+            for (var contract : account.contracts().values()) {
+                writeKey(ACCOUNT_CONTRACT, GROUP_START);
+                writeContract(contract);
+                writeKey(ACCOUNT_CONTRACT, GROUP_END);
+            }
+        }
+
+        void writeStrategy(StrategyCore strategy) throws IOException {
+            if (clean) {
+                strategy.clearDirty();
+            }
+            writeString(STRATEGY_ID, strategy.getStrategyId());
+            writeString(STRATEGY_STATE, strategy.getState());
+            writeString(STRATEGY_CREATE_DATETIME, strategy.getCreateDatetime());
+            writeString(STRATEGY_REMOVE_DATETIME, strategy.getRemoveDatetime());
+            writeJson(STRATEGY_SETTING, strategy.getStrategySetting());
+            for (var transaction : strategy.transactions().values()) {
+                writeKey(STRATEGY_TRANSACTION, GROUP_START);
+                writeTransaction(transaction);
+                writeKey(STRATEGY_TRANSACTION, GROUP_END);
+            }
+        }
+
+        void writeTransaction(TransactionCore transaction) throws IOException {
+            writeString(TRANSACTION_ID, transaction.getTransactionId());
+            writeString(TRANSACTION_INSTRUMENT_ID, transaction.getInstrumentId());
+            writeString(TRANSACTION_EXCHANGE_ID, transaction.getExchangeId());
+            writeDouble(TRANSACTION_PRICE, transaction.getPrice());
+            writeInteger(TRANSACTION_QUANTITY, transaction.getQuantity());
+            writeString(TRANSACTION_DIRECTION, transaction.getDirection());
+            writeString(TRANSACTION_OFFSET, transaction.getOffset());
+            writeString(TRANSACTION_STATE, transaction.getState());
+            writeString(TRANSACTION_TRADING_DAY, transaction.getTradingDay());
+            writeMicros(TRANSACTION_UPDATE_MICROS, transaction.getUpdateMicros());
+            for (var order : transaction.orders().values()) {
+                writeKey(TRANSACTION_ORDER, GROUP_START);
+                writeOrder(order);
+                writeKey(TRANSACTION_ORDER, GROUP_END);
+            }
+        }
+
+        void writeOrder(OrderCore order) throws IOException {
+            writeString(ORDER_ID, order.getOrderId());
+            writeString(ORDER_INSTRUMENT_ID, order.getInstrumentId());
+            writeString(ORDER_EXCHANGE_ID, order.getExchangeId());
+            writeDouble(ORDER_PRICE, order.getPrice());
+            writeInteger(ORDER_QUANTITY, order.getQuantity());
+            writeString(ORDER_DIRECTION, order.getDirection());
+            writeString(ORDER_OFFSET, order.getOffset());
+            writeString(ORDER_STATE, order.getState());
+            writeString(ORDER_TRADING_DAY, order.getTradingDay());
+            for (var trade : order.trades().values()) {
+                writeKey(ORDER_TRADE, GROUP_START);
+                writeTrade(trade);
+                writeKey(ORDER_TRADE, GROUP_END);
+            }
+        }
+
+        void writeTrade(TradeCore trade) throws IOException {
+            writeString(TRADE_ID, trade.getTradeId());
+            writeString(TRADE_INSTRUMENT_ID, trade.getInstrumentId());
+            writeString(TRADE_EXCHANGE_ID, trade.getExchangeId());
+            writeDouble(TRADE_PRICE, trade.getPrice());
+            writeInteger(TRADE_QUANTITY, trade.getQuantity());
+            writeString(TRADE_DIRECTION, trade.getDirection());
+            writeString(TRADE_OFFSET, trade.getOffset());
+            writeString(TRADE_TRADING_DAY, trade.getTradingDay());
+            writeString(TRADE_UPDATE_DATETIME, trade.getUpdateDatetime());
+        }
+
+        void writePosition(PositionCore position) throws IOException {
+            writeString(POSITION_ACCOUNT_ID, position.getAccountId());
+            writeString(POSITION_INSTRUMENT_ID, position.getInstrumentId());
+            writeString(POSITION_EXCHANGE_ID, position.getExchangeId());
+            writeString(POSITION_DIRECTION, position.getDirection());
+            writeString(POSITION_STATE, position.getState());
+            writeString(POSITION_OPEN_TRADING_DAY, position.getOpenTradingDay());
+            writeMicros(POSITION_OPEN_MICROS, position.getOpenMicros());
+            writeInteger(POSITION_QUANTITY, position.getQuantity());
+            writeDouble(POSITION_AMOUNT, position.getAmount());
+            writeDouble(POSITION_CLOSE_AMOUNT, position.getCloseAmount());
+        }
+
+        void writeContract(ContractCore contract) throws IOException {
+            writeString(CONTRACT_ID, contract.getContractId());
+            writeString(CONTRACT_ACCOUNT_ID, contract.getAccountId());
+            writeString(CONTRACT_INSTRUMENT_ID, contract.getInstrumentId());
+            writeString(CONTRACT_EXCHANGE_ID, contract.getExchangeId());
+            writeString(CONTRACT_DIRECTION, contract.getDirection());
+            writeDouble(CONTRACT_PRICE, contract.getPrice());
+            writeString(CONTRACT_STATE, contract.getState());
+            writeString(CONTRACT_OPEN_TRADING_DAY, contract.getOpenTradingDay());
+            writeMicros(CONTRACT_OPEN_MICROS, contract.getOpenMicros());
+            writeDouble(CONTRACT_CLOSE_PRICE, contract.getClosePrice());
+            writeString(CONTRACT_SETTLEMENT_TRADING_DAY, contract.getSettlementTradingDay());
+        }
+
+        void writeKey(int tag, int wireType) throws IOException {
+            writeVarint(tag << 3 | wireType);
+        }
+
+        void writeVarint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                output.writeByte((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            output.writeByte((int) value);
+        }
+
+        void writeVarint(int tag, long value) throws IOException {
+            writeKey(tag, VARINT);
+            writeVarint(value);
+        }
+
+        void writeMicros(int tag, long epochMicros) throws IOException {
+            if (epochMicros != 0L) {
+                writeVarint(tag, epochMicros);
+            }
+        }
+
+        void writeInteger(int tag, Integer value) throws IOException {
+            if (value != null) {
+                /* Zigzag so that negative values stay short. */
+                writeVarint(tag, ((value << 1) ^ (value >> 31)) & 0xFFFFFFFFL);
+            }
+        }
+
+        void writeDouble(int tag, Double value) throws IOException {
+            if (value != null) {
+                writeKey(tag, FIXED64);
+                output.writeDouble(value);
+            }
+        }
+
+        void writeString(int tag, String value) throws IOException {
+            if (value != null) {
+                var bytes = value.getBytes(StandardCharsets.UTF_8);
+                writeKey(tag, BYTES);
+                writeVarint(bytes.length);
+                output.write(bytes);
+            }
+        }
+
+        void writeJson(int tag, Object value) throws IOException {
+            if (value != null) {
+                writeString(tag, Utils.toJson(value));
+            }
+        }
+    }
+
+    private static class Reader {
+
+        private final DataInputStream input;
+        private byte[] scratch = new byte[256];
+
+        Reader(InputStream input) {
+            this.input = new DataInputStream(new BufferedInputStream(input, BUFFER_SIZE));
+        }
+
+        UserCore readUser() throws IOException {
+            var user = new UserCore();
+            int key;
+            while ((key = readKey()) >= 0) {
+                switch (key >>> 3) {
+                    case USER_ID:
+                        user.setUserId(readString(key));
+                        break;
+                    case USER_PASSWORD:
+                        user.setPassword(readString(key));
+                        break;
+                    case USER_CREATE_DATETIME:
+                        user.setCreateDatetime(readString(key));
+                        break;
+                    case USER_LAST_LOGIN_DATETIME:
+                        user.setLastLoginDatetime(readString(key));
+                        break;
+                    case USER_SETTING:
+                        user.setUserSetting(Utils.fromJson(readString(key), UserSettingCore.class));
+                        break;
+                    case USER_SNAPSHOT_BASE:
+                        user.setSnapshotBase(readString(key));
+                        break;
+                    case USER_SNAPSHOT_DEPTH:
+                        user.setSnapshotDepth((int) readVarint(key));
+                        break;
+                    case USER_ACCOUNT:
+                        expectGroup(key);
+                        var account = readAccount();
+                        account.setUser(user);
+                        user.accounts().put(account.getAccountId(), account);
+                        break;
+                    default:
+                        skip(key);
+                        break;
+                }
+            }
+            return user;
+        }
+
+        AccountCore readAccount() throws IOException {
+            var account = new AccountCore();
+            int key;
+            while (!isGroupEnd(key = nextKey())) {
+                switch (key >>> 3) {
+                    case ACCOUNT_ID:
+                        account.setAccountId(readString(key));
+                        break;
+                    case ACCOUNT_STATE:
+                        account.setState(readString(key));
+                        break;
+                    case ACCOUNT_TRADING_DAY:
+                        account.setTradingDay(readString(key));
+                        break;
+                    case ACCOUNT_SETTLE_MICROS:
+                        account.setSettleMicros(readVarint(key));
+                        break;
+                    case ACCOUNT_JOURNAL_SEQUENCE:
+                        account.setJournalSequence(readVarint(key));
+                        break;
+                    case ACCOUNT_SETTING:
+                        account.setAccountRule(Utils.fromJson(readString(key), AccountSettingCore.class));
+                        break;
+                    case ACCOUNT_OPENING_MARGIN:
+                        account.setOpeningMargin(readDouble(key));
+                        break;
+                    case ACCOUNT_OPENING_COMMISSION:
+                        account.setOpeningCommission(readDouble(key));
+                        break;
+                    case ACCOUNT_CLOSING_COMMISSION:
+                        account.setClosingCommission(readDouble(key));
+                        break;
+                    case ACCOUNT_BALANCE:
+                        account.setBalance(readDouble(key));
+                        break;
+                    case ACCOUNT_MARGIN:
+                        account.setMargin(readDouble(key));
+                        break;
+                    case ACCOUNT_COMMISSION:
+                        account.setCommission(readDouble(key));
+                        break;
+                    case ACCOUNT_AVAILABLE:
+                        account.setAvailable(readDouble(key));
+                        break;
+                    case ACCOUNT_POSITION_PROFIT:
+                        account.setPositionProfit(readDouble(key));
+                        break;
+                    case ACCOUNT_CLOSE_PROFIT:
+                        account.setCloseProfit(readDouble(key));
+                        break;
+                    case ACCOUNT_YD_BALANCE:
+                        account.setYdBalance(readDouble(key));
+                        break;
+                    case ACCOUNT_STRATEGY:
+                        expectGroup(key);
+                        var strategy = readStrategy();
+                        strategy.setAccount(account);
+                        account.strategies().put(strategy.getStrategyId(), strategy);
+                        break;
+                    case ACCOUNT_POSITION:
+                        expectGroup(key);
+                        readPosition(account.positions());
+                        break;
+                    case ACCOUNT_CONTRACT:
+                        expectGroup(key);
+                        var contract = readContract();
+                        account.contracts().put(contract.getContractId(), contract);
+                        break;
+                    default:
+                        skip(key);
+                        break;
+                }
+            }
+            return account;
+        }
+
+        StrategyCore readStrategy() throws IOException {
+            var strategy = new StrategyCore();
+            int key;
+            while (!isGroupEnd(key = nextKey())) {
+                switch (key >>> 3) {
+                    case STRATEGY_ID:
+                        strategy.setStrategyId(readString(key));
+                        break;
+                    case STRATEGY_STATE:
+                        strategy.setState(readString(key));
+                        break;
+                    case STRATEGY_CREATE_DATETIME:
+                        strategy.setCreateDatetime(readString(key));
+                        break;
+                    case STRATEGY_REMOVE_DATETIME:
+                        strategy.setRemoveDatetime(readString(key));
+                        break;
+                    case STRATEGY_SETTING:
+                        strategy.setStrategySetting(Utils.fromJson(readString(key), StrategySettingCore.class));
+                        break;
+                    case STRATEGY_TRANSACTION:
+                        expectGroup(key);
+                        var transaction = readTransaction();
+                        transaction.setStrategy(strategy);
+                        strategy.transactions().put(transaction.getTransactionId(), transaction);
+                        break;
+                    default:
+                        skip(key);
+                        break;
+                }
+            }
+            return strategy;
+        }
+
+        TransactionCore readTransaction() throws IOException {
+            var transaction = new TransactionCore();
+            int key;
+            while (!isGroupEnd(key = nextKey())) {
+                switch (key >>> 3) {
+                    case TRANSACTION_ID:
+                        transaction.setTransactionId(readString(key));
+                        break;
+                    case TRANSACTION_INSTRUMENT_ID:
+                        transaction.setInstrumentId(readString(key));
+                        break;
+                    case TRANSACTION_EXCHANGE_ID:
+                        transaction.setExchangeId(readString(key));
+                        break;
+                    case TRANSACTION_PRICE:
+                        transaction.setPrice(readDouble(key));
+                        break;
+                    case TRANSACTION_QUANTITY:
+                        transaction.setQuantity(readInteger(key));
+                        break;
+                    case TRANSACTION_DIRECTION:
+                        transaction.setDirection(readString(key));
+                        break;
+                    case TRANSACTION_OFFSET:
+                        transaction.setOffset(readString(key));
+                        break;
+                    case TRANSACTION_STATE:
+                        transaction.setState(readString(key));
+                        break;
+                    case TRANSACTION_TRADING_DAY:
+                        transaction.setTradingDay(readString(key));
+                        break;
+                    case TRANSACTION_UPDATE_MICROS:
+                        transaction.setUpdateMicros(readVarint(key));
+                        break;
+                    case TRANSACTION_ORDER:
+                        expectGroup(key);
+                        var order = readOrder();
+                        order.setTransaction(transaction);
+                        transaction.orders().put(order.getOrderId(), order);
+                        break;
+                    default:
+                        skip(key);
+                        break;
+                }
+            }
+            return transaction;
+        }
+
+        OrderCore readOrder() throws IOException {
+            var order = new OrderCore();
+            int key;
+            while (!isGroupEnd(key = nextKey())) {
+                switch (key >>> 3) {
+                    case ORDER_ID:
+                        order.setOrderId(readString(key));
+                        break;
+                    case ORDER_INSTRUMENT_ID:
+                        order.setInstrumentId(readString(key));
+                        break;
+                    case ORDER_EXCHANGE_ID:
+                        order.setExchangeId(readString(key));
+                        break;
+                    case ORDER_PRICE:
+                        order.setPrice(readDouble(key));
+                        break;
+                    case ORDER_QUANTITY:
+                        order.setQuantity(readInteger(key));
+                        break;
+                    case ORDER_DIRECTION:
+                        order.setDirection(readString(key));
+                        break;
+                    case ORDER_OFFSET:
+                        order.setOffset(readString(key));
+                        break;
+                    case ORDER_STATE:
+                        order.setState(readString(key));
+                        break;
+                    case ORDER_TRADING_DAY:
+                        order.setTradingDay(readString(key));
+                        break;
+                    case ORDER_TRADE:
+                        expectGroup(key);
+                        var trade = readTrade();
+                        trade.setOrder(order);
+                        order.trades().put(trade.getTradeId(), trade);
+                        break;
+                    default:
+                        skip(key);
+                        break;
+                }
+            }
+            return order;
+        }
+
+        TradeCore readTrade() throws IOException {
+            var trade = new TradeCore();
+            int key;
+            while (!isGroupEnd(key = nextKey())) {
+                switch (key >>> 3) {
+                    case TRADE_ID:
+                        trade.setTradeId(readString(key));
+                        break;
+                    case TRADE_INSTRUMENT_ID:
+                        trade.setInstrumentId(readString(key));
+                        break;
+                    case TRADE_EXCHANGE_ID:
+                        trade.setExchangeId(readString(key));
+                        break;
+                    case TRADE_PRICE:
+                        trade.setPrice(readDouble(key));
+                        break;
+                    case TRADE_QUANTITY:
+                        trade.setQuantity(readInteger(key));
+                        break;
+                    case TRADE_DIRECTION:
+                        trade.setDirection(readString(key));
+                        break;
+                    case TRADE_OFFSET:
+                        trade.setOffset(readString(key));
+                        break;
+                    case TRADE_TRADING_DAY:
+                        trade.setTradingDay(readString(key));
+                        break;
+                    case TRADE_UPDATE_DATETIME:
+                        trade.setUpdateDatetime(readString(key));
+                        break;
+                    default:
+                        skip(key);
+                        break;
+                }
+            }
+            return trade;
+        }
+
+        void readPosition(PositionBook book) throws IOException {
+            String accountId = null;
+            String instrumentId = null;
+            String exchangeId = null;
+            String direction = null;
+            String state = null;
+            String openTradingDay = null;
+            long openMicros = 0L;
+            int quantity = 0;
+            double amount = 0D;
+            double closeAmount = 0D;
+            int key;
+            while (!isGroupEnd(key = nextKey())) {
+                switch (key >>> 3) {
+                    case POSITION_ACCOUNT_ID:
+                        accountId = readString(key);
+                        break;
+                    case POSITION_INSTRUMENT_ID:
+                        instrumentId = readString(key);
+                        break;
+                    case POSITION_EXCHANGE_ID:
+                        exchangeId = readString(key);
+                        break;
+                    case POSITION_DIRECTION:
+                        direction = readString(key);
+                        break;
+                    case POSITION_STATE:
+                        state = readString(key);
+                        break;
+                    case POSITION_OPEN_TRADING_DAY:
+                        openTradingDay = readString(key);
+                        break;
+                    case POSITION_OPEN_MICROS:
+                        openMicros = readVarint(key);
+                        break;
+                    case POSITION_QUANTITY:
+                        quantity = readInteger(key);
+                        break;
+                    case POSITION_AMOUNT:
+                        amount = readDouble(key);
+                        break;
+                    case POSITION_CLOSE_AMOUNT:
+                        closeAmount = readDouble(key);
+                        break;
+                    default:
+                        skip(key);
+                        break;
+                }
+            }
+            var position = book.add(accountId, instrumentId, exchangeId, direction, state, openTradingDay, quantity, amount, closeAmount);
+            position.setOpenMicros(openMicros);
+        }
+
+        ContractCore readContract() throws IOException {
+            var contract = new ContractCore();
+            int key;
+            while (!isGroupEnd(key = nextKey())) {
+                switch (key >>> 3) {
+                    case CONTRACT_ID:
+                        contract.setContractId(readString(key));
+                        break;
+                    case CONTRACT_ACCOUNT_ID:
+                        contract.setAccountId(readString(key));
+                        break;
+                    case CONTRACT_INSTRUMENT_ID:
+                        contract.setInstrumentId(readString(key));
+                        break;
+                    case CONTRACT_EXCHANGE_ID:
+                        contract.setExchangeId(readString(key));
+                        break;
+                    case CONTRACT_DIRECTION:
+                        contract.setDirection(readString(key));
+                        break;
+                    case CONTRACT_PRICE:
+                        contract.setPrice(readDouble(key));
+                        break;
+                    case CONTRACT_STATE:
+                        contract.setState(readString(key));
+                        break;
+                    case CONTRACT_OPEN_TRADING_DAY:
+                        contract.setOpenTradingDay(readString(key));
+                        break;
+                    case CONTRACT_OPEN_MICROS:
+                        contract.setOpenMicros(readVarint(key));
+                        break;
+                    case CONTRACT_CLOSE_PRICE:
+                        contract.setClosePrice(readDouble(key));
+                        break;
+                    case CONTRACT_SETTLEMENT_TRADING_DAY:
+                        contract.setSettlementTradingDay(readString(key));
+                        break;
+                    default:
+                        skip(key);
+                        break;
+                }
+            }
+            return contract;
+        }
+
+        /**
+         * Read the next key, or {@code -1} at the end of the stream.
+         */
+        int readKey() throws IOException {
+            var first = input.read();
+            if (first < 0) {
+                return -1;
+            }
+            long value = first & 0x7F;
+            var shift = 7;
+            var next = first;
+            while ((next & 0x80) != 0) {
+                next = input.readUnsignedByte();
+                value |= (long) (next & 0x7F) << shift;
+                shift += 7;
+            }
+            return (int) value;
+        }
+
+        int nextKey() throws IOException {
+            var key = readKey();
+            if (key < 0) {
+                throw new EOFException("Snapshot ends inside a group.");
+            }
+            return key;
+        }
+
+        boolean isGroupEnd(int key) {
+            return (key & 0x7) == GROUP_END;
+        }
+
+        void expectGroup(int key) throws IOException {
+            if ((key & 0x7) != GROUP_START) {
+                throw new IOException("Field " + (key >>> 3) + " is not a group.");
+            }
+        }
+
+        long readVarint() throws IOException {
+            long value = 0;
+            var shift = 0;
+            int next;
+            do {
+                next = input.readUnsignedByte();
+                value |= (long) (next & 0x7F) << shift;
+                shift += 7;
+            } while ((next & 0x80) != 0);
+            return value;
+        }
+
+        long readVarint(int key) throws IOException {
+            expect(key, VARINT);
+            return readVarint();
+        }
+
+        int readInteger(int key) throws IOException {
+            var value = (int) readVarint(key);
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        double readDouble(int key) throws IOException {
+            expect(key, FIXED64);
+            return input.readDouble();
+        }
+
+        String readString(int key) throws IOException {
+            expect(key, BYTES);
+            var length = (int) readVarint();
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            input.readFully(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+
+        void expect(int key, int wireType) throws IOException {
+            if ((key & 0x7) != wireType) {
+                throw new IOException("Field " + (key >>> 3) + " has wire type " + (key & 0x7) + " but expects " + wireType + ".");
+            }
+        }
+
+        void skipBytes(long count) throws IOException {
+            while (count > 0) {
+                var skipped = input.skipBytes((int) Math.min(count, Integer.MAX_VALUE));
+                if (skipped <= 0) {
+                    throw new EOFException("Snapshot ends inside a field.");
+                }
+                count -= skipped;
+            }
+        }
+
+        void skip(int key) throws IOException {
+            switch (key & 0x7) {
+                case VARINT:
+                    readVarint();
+                    break;
+                case FIXED64:
+                    skipBytes(8);
+                    break;
+                case BYTES:
+                    skipBytes(readVarint());
+                    break;
+                case GROUP_START:
+                    while (!isGroupEnd(key = nextKey())) {
+                        skip(key);
+                    }
+                    break;
+                default:
+                    throw new IOException("Unknown wire type " + (key & 0x7) + ".");
+            }
+        }
+    }
+}
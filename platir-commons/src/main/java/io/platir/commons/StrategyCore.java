@@ -13,9 +13,10 @@ public class StrategyCore implements Strategy {
     private String createDatetime;
     private String removeDatetime;
     private String strategyId;
-    private String state;
+    private StrategyState state;
     private StrategySettingCore strategySetting;
     private final Map<String, TransactionCore> transactions = new ConcurrentHashMap<>();
+    private transient volatile boolean dirty = true;
 
     @Expose(serialize = false, deserialize = false)
     private AccountCore account;
@@ -32,6 +33,7 @@ public class StrategyCore implements Strategy {
 
     public void setStrategySetting(StrategySettingCore strategySetting) {
         this.strategySetting = new StrategySettingCore(strategySetting);
+        dirty = true;
     }
 
     @Override
@@ -41,6 +43,7 @@ public class StrategyCore implements Strategy {
 
     public void setCreateDatetime(String datetime) {
         this.createDatetime = datetime;
+        dirty = true;
     }
 
     @Override
@@ -50,6 +53,7 @@ public class StrategyCore implements Strategy {
 
     public void setRemoveDatetime(String dateTime) {
         this.removeDatetime = dateTime;
+        dirty = true;
     }
 
     @Override
@@ -59,15 +63,26 @@ public class StrategyCore implements Strategy {
 
     public void setStrategyId(String strategyId) {
         this.strategyId = strategyId;
+        dirty = true;
     }
 
     @Override
     public String getState() {
-        return state;
+        return state == null ? null : state.value();
     }
 
     public void setState(String state) {
+        this.state = StrategyState.of(state);
+        dirty = true;
+    }
+
+    public StrategyState state() {
+        return state;
+    }
+
+    public void setState(StrategyState state) {
         this.state = state;
+        dirty = true;
     }
 
     @Override
@@ -90,4 +105,18 @@ public class StrategyCore implements Strategy {
         this.account = account;
     }
 
+    /**
+     * Check if the strategy is changed since the last snapshot. Transactions
+     * are not tracked because they are cleared on reload.
+     *
+     * @return {@code true} if changed
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void clearDirty() {
+        dirty = false;
+    }
+
 }
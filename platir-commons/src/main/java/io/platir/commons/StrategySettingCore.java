@@ -8,17 +8,18 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArraySet;
 
 public class StrategySettingCore implements StrategySetting {
 
     private LocalDateTime loadTime;
-    private final Set<LoggingListener> loggingListeners = new ConcurrentSkipListSet<>();
+    private final Set<LoggingListener> loggingListeners = new CopyOnWriteArraySet<>();
     private final EveryTimeCheckerCore configuredOpenTime;
     private final EveryTimeCheckerCore configuredCloseTime;
     private final EveryTimeCheckerCore alarmEveryTime;
     private final PointTimeCheckerCore alarmPointTime;
     private final Map<String, String> parameters = new HashMap<>();
+    private final RiskSettingCore risk;
 
     public StrategySettingCore() {
         loadTime = null;
@@ -26,6 +27,7 @@ public class StrategySettingCore implements StrategySetting {
         configuredCloseTime = new EveryTimeCheckerCore();
         alarmEveryTime = new EveryTimeCheckerCore();
         alarmPointTime = new PointTimeCheckerCore();
+        risk = new RiskSettingCore();
     }
 
     public StrategySettingCore(StrategySettingCore strategySetting) {
@@ -34,6 +36,7 @@ public class StrategySettingCore implements StrategySetting {
         configuredCloseTime = new EveryTimeCheckerCore(strategySetting.configuredCloseTime());
         alarmEveryTime = new EveryTimeCheckerCore(strategySetting.alarmEveryTime());
         alarmPointTime = new PointTimeCheckerCore(strategySetting.alarmPointTime());
+        risk = new RiskSettingCore(strategySetting.risk());
         loggingListeners.addAll(strategySetting.getLoggingListeners());
     }
 
@@ -81,4 +84,9 @@ public class StrategySettingCore implements StrategySetting {
     public Map<String, String> parameters() {
         return parameters;
     }
+
+    @Override
+    public RiskSettingCore risk() {
+        return risk;
+    }
 }
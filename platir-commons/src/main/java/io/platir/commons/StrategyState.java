@@ -0,0 +1,64 @@
+package io.platir.commons;
+
+import com.google.gson.annotations.SerializedName;
+import io.platir.Strategy;
+
+/**
+ * Strategy state kept by {@linkplain StrategyCore}, with the legal
+ * transitions looked up by ordinal.
+ * <p>
+ * A strategy is blocked and unblocked any number of times until it is
+ * removed. Staying in the same state is always legal.
+ */
+public enum StrategyState {
+
+    @SerializedName(Strategy.NORMAL)
+    NORMAL(Strategy.NORMAL),
+    @SerializedName(Strategy.BLOCKED)
+    BLOCKED(Strategy.BLOCKED),
+    @SerializedName(Strategy.REMOVED)
+    REMOVED(Strategy.REMOVED);
+
+    private static final boolean[][] transitions = new boolean[values().length][values().length];
+
+    static {
+        allow(NORMAL, BLOCKED, REMOVED);
+        allow(BLOCKED, NORMAL, REMOVED);
+    }
+
+    private final String value;
+
+    StrategyState(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public static boolean canTransit(StrategyState from, StrategyState to) {
+        return from == null || from == to || transitions[from.ordinal()][to.ordinal()];
+    }
+
+    public static StrategyState of(String value) {
+        if (value == null) {
+            return null;
+        }
+        switch (value) {
+            case Strategy.NORMAL:
+                return NORMAL;
+            case Strategy.BLOCKED:
+                return BLOCKED;
+            case Strategy.REMOVED:
+                return REMOVED;
+            default:
+                throw new IllegalArgumentException("Invalid strategy state(" + value + ").");
+        }
+    }
+
+    private static void allow(StrategyState from, StrategyState... to) {
+        for (var state : to) {
+            transitions[from.ordinal()][state.ordinal()] = true;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package io.platir.commons;
+
+import io.platir.setting.TimeChecker;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Base of time checkers that tells listeners when its times are changed, so
+ * that jobs scheduled at the next fire time are scheduled again.
+ */
+public abstract class TimeCheckerCore implements TimeChecker {
+
+    private final transient List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    public List<Runnable> changeListeners() {
+        return changeListeners;
+    }
+
+    protected void changed() {
+        changeListeners.forEach(Runnable::run);
+    }
+}
@@ -18,6 +18,22 @@ public class TradeCore implements Trade {
     @Expose(serialize = false, deserialize = false)
     private OrderCore order;
 
+    public TradeCore() {
+    }
+
+    public TradeCore(TradeCore trade, OrderCore order) {
+        tradeId = trade.getTradeId();
+        instrumentId = trade.getInstrumentId();
+        exchangeId = trade.getExchangeId();
+        price = trade.getPrice();
+        quantity = trade.getQuantity();
+        direction = trade.getDirection();
+        offset = trade.getOffset();
+        tradingDay = trade.getTradingDay();
+        updateDatetime = trade.getUpdateDatetime();
+        this.order = order;
+    }
+
     @Override
     public String getExchangeId() {
         return exchangeId;
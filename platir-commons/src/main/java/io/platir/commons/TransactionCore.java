@@ -1,8 +1,11 @@
 package io.platir.commons;
 
 import com.google.gson.annotations.Expose;
+import com.google.gson.annotations.JsonAdapter;
+import com.google.gson.annotations.SerializedName;
 import io.platir.Order;
 import io.platir.Transaction;
+import io.platir.utils.Utils;
 import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -10,7 +13,7 @@ import java.util.stream.Collectors;
 
 public class TransactionCore implements Transaction {
 
-    private String state;
+    private TransactionState state;
     private String transactionId;
     private String instrumentId;
     private String exchangeId;
@@ -18,16 +21,41 @@ public class TransactionCore implements Transaction {
     private Integer quantity;
     private String direction;
     private String tradingDay;
-    private String updateDatetime;
+    @SerializedName(value = "update_micros", alternate = "update_datetime")
+    @JsonAdapter(Utils.EpochMicrosAdapter.class)
+    private long updateMicros;
     private String offset;
     private final Map<String, OrderCore> orders = new ConcurrentHashMap<>();
 
     @Expose(serialize = false, deserialize = false)
     private StrategyCore strategy;
 
+    public TransactionCore() {
+    }
+
+    /**
+     * Copy transaction with its orders and trades.
+     *
+     * @param transaction transaction to copy
+     */
+    public TransactionCore(TransactionCore transaction) {
+        state = transaction.state();
+        transactionId = transaction.getTransactionId();
+        instrumentId = transaction.getInstrumentId();
+        exchangeId = transaction.getExchangeId();
+        price = transaction.getPrice();
+        quantity = transaction.getQuantity();
+        direction = transaction.getDirection();
+        tradingDay = transaction.getTradingDay();
+        updateMicros = transaction.getUpdateMicros();
+        offset = transaction.getOffset();
+        strategy = transaction.getStrategy();
+        transaction.orders().values().forEach(order -> orders.put(order.getOrderId(), new OrderCore(order, this)));
+    }
+
     @Override
     public String getState() {
-        return state;
+        return state == null ? null : state.value();
     }
 
     @Override
@@ -38,6 +66,14 @@ public class TransactionCore implements Transaction {
     }
 
     public void setState(String state) {
+        this.state = TransactionState.of(state);
+    }
+
+    public TransactionState state() {
+        return state;
+    }
+
+    public void setState(TransactionState state) {
         this.state = state;
     }
 
@@ -106,11 +142,19 @@ public class TransactionCore implements Transaction {
 
     @Override
     public String getUpdateDatetime() {
-        return updateDatetime;
+        return Utils.datetime(updateMicros);
     }
 
     public void setUpdateDatetime(String datetime) {
-        this.updateDatetime = datetime;
+        this.updateMicros = Utils.epochMicros(datetime);
+    }
+
+    public long getUpdateMicros() {
+        return updateMicros;
+    }
+
+    public void setUpdateMicros(long epochMicros) {
+        this.updateMicros = epochMicros;
     }
 
     @Override
@@ -0,0 +1,69 @@
+package io.platir.commons;
+
+import com.google.gson.annotations.SerializedName;
+import io.platir.Transaction;
+
+/**
+ * Transaction state kept by {@linkplain TransactionCore}, with the legal
+ * transitions looked up by ordinal.
+ * <p>
+ * A pending transaction is executing once its orders are queueing, and ends
+ * completed or rejected. A new transaction has no state and can take any,
+ * and staying in the same state is always legal.
+ */
+public enum TransactionState {
+
+    @SerializedName(Transaction.PENDING)
+    PENDING(Transaction.PENDING),
+    @SerializedName(Transaction.EXECUTING)
+    EXECUTING(Transaction.EXECUTING),
+    @SerializedName(Transaction.ALL_TRADED)
+    ALL_TRADED(Transaction.ALL_TRADED),
+    @SerializedName(Transaction.REJECTED)
+    REJECTED(Transaction.REJECTED);
+
+    private static final boolean[][] transitions = new boolean[values().length][values().length];
+
+    static {
+        allow(PENDING, EXECUTING, ALL_TRADED, REJECTED);
+        allow(EXECUTING, ALL_TRADED, REJECTED);
+    }
+
+    private final String value;
+
+    TransactionState(String value) {
+        this.value = value;
+    }
+
+    public String value() {
+        return value;
+    }
+
+    public static boolean canTransit(TransactionState from, TransactionState to) {
+        return from == null || from == to || transitions[from.ordinal()][to.ordinal()];
+    }
+
+    public static TransactionState of(String value) {
+        if (value == null) {
+            return null;
+        }
+        switch (value) {
+            case Transaction.PENDING:
+                return PENDING;
+            case Transaction.EXECUTING:
+                return EXECUTING;
+            case Transaction.ALL_TRADED:
+                return ALL_TRADED;
+            case Transaction.REJECTED:
+                return REJECTED;
+            default:
+                throw new IllegalArgumentException("Invalid transaction state(" + value + ").");
+        }
+    }
+
+    private static void allow(TransactionState from, TransactionState... to) {
+        for (var state : to) {
+            transitions[from.ordinal()][state.ordinal()] = true;
+        }
+    }
+}
@@ -15,6 +15,8 @@ public class UserCore implements User {
     private String lastLoginDatetime;
     private UserSettingCore userSetting;
     private final Map<String, AccountCore> accounts = new ConcurrentHashMap<>();
+    private transient String snapshotBase;
+    private transient int snapshotDepth = 0;
 
     public UserSettingCore getUserSetting() {
         return userSetting;
@@ -60,6 +62,34 @@ public class UserCore implements User {
         this.lastLoginDatetime = datetime;
     }
 
+    /**
+     * Get name of the settlement directory holding the snapshot this user is
+     * based on. A delta snapshot read from file has the name of its previous
+     * snapshot's directory.
+     *
+     * @return directory name, or {@code null} if not based on any snapshot
+     */
+    public String getSnapshotBase() {
+        return snapshotBase;
+    }
+
+    public void setSnapshotBase(String base) {
+        this.snapshotBase = base;
+    }
+
+    /**
+     * Get number of delta snapshots since the last full snapshot.
+     *
+     * @return delta depth, zero for a full snapshot
+     */
+    public int getSnapshotDepth() {
+        return snapshotDepth;
+    }
+
+    public void setSnapshotDepth(int depth) {
+        this.snapshotDepth = depth;
+    }
+
     @Override
     public Collection<Account> getAccounts() {
         return accounts.values().stream()
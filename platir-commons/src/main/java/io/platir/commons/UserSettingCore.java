@@ -1,6 +1,5 @@
 package io.platir.commons;
 
-import io.platir.setting.EveryTimeChecker;
 import io.platir.setting.UserSetting;
 
 public class UserSettingCore implements UserSetting {
@@ -30,7 +29,7 @@ public class UserSettingCore implements UserSetting {
     }
 
     @Override
-    public EveryTimeChecker settlementTime() {
+    public EveryTimeCheckerCore settlementTime() {
         return settlementTime;
     }
 
@@ -1,8 +1,14 @@
 package io.platir.utils;
 
+import com.google.gson.ExclusionStrategy;
+import com.google.gson.FieldAttributes;
 import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.TypeAdapter;
+import com.google.gson.annotations.Expose;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -14,16 +20,20 @@ import java.net.URISyntaxException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 public class Utils {
 
     private static final Gson gson;
+    private static final Gson compactGson;
 
     public static final String STDOUT_FILE = "stdout.txt";
     public static final DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("yyyyMMdd");
@@ -31,13 +41,25 @@ public class Utils {
     public static final DateTimeFormatter datetimeFormat = DateTimeFormatter.ofPattern("yyyyMMdd HH:mm:ss");
 
     static {
-        gson = new GsonBuilder()
-                .serializeNulls()
+        gson = gsonBuilder()
                 .setPrettyPrinting()
-                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .create();
+        compactGson = gsonBuilder()
                 .create();
     }
 
+    private static GsonBuilder gsonBuilder() {
+        /* Time classes are not open to reflection since JDK 16, so write them as ISO strings. */
+        return new GsonBuilder()
+                .serializeNulls()
+                .setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES)
+                .addSerializationExclusionStrategy(new ExposeExclusionStrategy(true))
+                .addDeserializationExclusionStrategy(new ExposeExclusionStrategy(false))
+                .registerTypeAdapter(LocalDate.class, new IsoTypeAdapter<>(LocalDate::parse).nullSafe())
+                .registerTypeAdapter(LocalTime.class, new IsoTypeAdapter<>(LocalTime::parse).nullSafe())
+                .registerTypeAdapter(LocalDateTime.class, new IsoTypeAdapter<>(LocalDateTime::parse).nullSafe());
+    }
+
     public static String date() {
         return LocalDate.now().format(dateFormat);
     }
@@ -50,6 +72,35 @@ public class Utils {
         return LocalDateTime.now().format(datetimeFormat);
     }
 
+    /**
+     * Render microseconds since the epoch as datetime in the system zone.
+     *
+     * @param epochMicros microseconds since the epoch, or {@code 0} if unset
+     * @return datetime string, or {@code null} if unset
+     */
+    public static String datetime(long epochMicros) {
+        if (epochMicros == 0L) {
+            return null;
+        }
+        var instant = Instant.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000L), Math.floorMod(epochMicros, 1_000_000L) * 1_000L);
+        return LocalDateTime.ofInstant(instant, ZoneId.systemDefault()).format(datetimeFormat);
+    }
+
+    /**
+     * Parse datetime in the system zone into microseconds since the epoch.
+     *
+     * @param datetime datetime string, or {@code null}
+     * @return microseconds since the epoch, or {@code 0} if datetime is
+     * {@code null} or empty
+     */
+    public static long epochMicros(String datetime) {
+        if (datetime == null || datetime.isEmpty()) {
+            return 0L;
+        }
+        var instant = LocalDateTime.parse(datetime, datetimeFormat).atZone(ZoneId.systemDefault()).toInstant();
+        return instant.getEpochSecond() * 1_000_000L + instant.getNano() / 1_000L;
+    }
+
     public static PrintStream stdout() {
         try {
             var file = file(Paths.get(STDOUT_FILE));
@@ -115,6 +166,14 @@ public class Utils {
         }
     }
 
+    public static String toJson(Object data) {
+        return compactGson.toJson(data);
+    }
+
+    public static <T> T fromJson(String json, Class<T> clazz) {
+        return compactGson.fromJson(json, clazz);
+    }
+
     public static String classFilePath(Class clazz) {
         try {
             return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
@@ -123,4 +182,73 @@ public class Utils {
             return "";
         }
     }
+
+    private static class IsoTypeAdapter<T> extends TypeAdapter<T> {
+
+        private final Function<String, T> parser;
+
+        IsoTypeAdapter(Function<String, T> parser) {
+            this.parser = parser;
+        }
+
+        @Override
+        public void write(JsonWriter writer, T value) throws IOException {
+            writer.value(value.toString());
+        }
+
+        @Override
+        public T read(JsonReader reader) throws IOException {
+            return parser.apply(reader.nextString());
+        }
+    }
+
+    /**
+     * Write timestamps in microseconds as numbers, and read both numbers and
+     * the datetime strings written before timestamps were kept in
+     * microseconds.
+     */
+    public static class EpochMicrosAdapter extends TypeAdapter<Long> {
+
+        @Override
+        public void write(JsonWriter writer, Long value) throws IOException {
+            writer.value(value == null ? 0L : value);
+        }
+
+        @Override
+        public Long read(JsonReader reader) throws IOException {
+            switch (reader.peek()) {
+                case NULL:
+                    reader.nextNull();
+                    return 0L;
+                case STRING:
+                    return epochMicros(reader.nextString());
+                default:
+                    return reader.nextLong();
+            }
+        }
+    }
+
+    /**
+     * Skip fields marked not to expose, such as the references to parents,
+     * while the unmarked fields are still written.
+     */
+    private static class ExposeExclusionStrategy implements ExclusionStrategy {
+
+        private final boolean serialize;
+
+        ExposeExclusionStrategy(boolean serialize) {
+            this.serialize = serialize;
+        }
+
+        @Override
+        public boolean shouldSkipField(FieldAttributes field) {
+            var expose = field.getAnnotation(Expose.class);
+            return expose != null && !(serialize ? expose.serialize() : expose.deserialize());
+        }
+
+        @Override
+        public boolean shouldSkipClass(Class<?> clazz) {
+            return false;
+        }
+    }
 }
@@ -0,0 +1,59 @@
+package io.platir.commons;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Next fire time skips excepted days of week and dates however many there are.
+ */
+public class EveryTimeCheckerCoreTest {
+
+    /* A Monday. */
+    private static final LocalDate MONDAY = LocalDate.of(2026, 10, 12);
+    private static final LocalTime NINE = LocalTime.of(9, 0);
+
+    @Test
+    public void firesLaterTodayOrFirstTimeTomorrow() {
+        var checker = new EveryTimeCheckerCore().every(NINE, LocalTime.of(14, 30));
+        assertEquals(LocalDateTime.of(MONDAY, NINE), checker.nextFireTime(MONDAY.atTime(8, 0)));
+        assertEquals(MONDAY.atTime(14, 30), checker.nextFireTime(MONDAY.atTime(9, 0)));
+        assertEquals(LocalDateTime.of(MONDAY.plusDays(1), NINE), checker.nextFireTime(MONDAY.atTime(15, 0)));
+    }
+
+    @Test
+    public void noFireTimeWithoutValueOrWhenAllWeekdaysExcepted() {
+        assertNull(new EveryTimeCheckerCore().nextFireTime(MONDAY.atStartOfDay()));
+        var checker = new EveryTimeCheckerCore().every(NINE).except(DayOfWeek.values());
+        assertNull(checker.nextFireTime(MONDAY.atStartOfDay()));
+    }
+
+    @Test
+    public void skipsExceptedSundayWhenOtherWeekdaysExcepted() {
+        var sunday = MONDAY.plusDays(6);
+        var checker = new EveryTimeCheckerCore().every(NINE)
+                .except(DayOfWeek.MONDAY, DayOfWeek.TUESDAY, DayOfWeek.WEDNESDAY,
+                        DayOfWeek.THURSDAY, DayOfWeek.FRIDAY, DayOfWeek.SATURDAY)
+                .except(sunday);
+        assertEquals(LocalDateTime.of(sunday.plusWeeks(1), NINE), checker.nextFireTime(MONDAY.atTime(10, 0)));
+    }
+
+    @Test
+    public void skipsConsecutiveExceptedDatesOverWeekends() {
+        var holiday = new ArrayList<LocalDate>();
+        for (var date = MONDAY; date.isBefore(MONDAY.plusWeeks(5)); date = date.plusDays(1)) {
+            if (date.getDayOfWeek() != DayOfWeek.SATURDAY && date.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                holiday.add(date);
+            }
+        }
+        var checker = new EveryTimeCheckerCore().every(NINE)
+                .except(DayOfWeek.SATURDAY, DayOfWeek.SUNDAY)
+                .except(holiday);
+        assertEquals(LocalDateTime.of(MONDAY.plusWeeks(5), NINE), checker.nextFireTime(MONDAY.minusDays(3).atTime(10, 0)));
+    }
+}
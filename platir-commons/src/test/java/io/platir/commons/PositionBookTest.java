@@ -0,0 +1,145 @@
+package io.platir.commons;
+
+import io.platir.Contract;
+import io.platir.Order;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Lots move between positions with their amounts, and the index follows.
+ */
+public class PositionBookTest {
+
+    private static final String ACCOUNT_ID = "account";
+    private static final String INSTRUMENT_ID = "c2205";
+    private static final String EXCHANGE_ID = "DCE";
+
+    private PositionBook book;
+    private List<String> changes;
+
+    @BeforeEach
+    public void setUp() {
+        book = new PositionBook();
+        changes = new ArrayList<>();
+        book.listeners().add((position, quantity, amount, closeAmount) -> changes.add(position.getState() + " " + quantity + " " + amount));
+    }
+
+    @Test
+    public void addAccumulatesIntoOnePosition() {
+        var first = open("20261015", 2, 5600D);
+        var second = open("20261015", 3, 8550D);
+        assertSame(first, second);
+        assertEquals(5, first.getQuantity());
+        assertEquals(14150D, first.getAmount());
+        assertEquals(2830D, first.getPrice());
+        assertSame(first, book.find(INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, "20261015"));
+        assertNull(book.find(INSTRUMENT_ID, EXCHANGE_ID, Order.SELL, Contract.OPEN, "20261015"));
+        assertEquals(List.of("OPEN 2 5600.0", "OPEN 3 8550.0"), changes);
+        assertTrue(book.isDirty());
+        book.clearDirty();
+        assertFalse(book.isDirty());
+    }
+
+    @Test
+    public void indexListsEarliestDayFirstAndFollowsChanges() {
+        open("20261016", 1, 2800D);
+        open("20261014", 1, 2700D);
+        assertEquals(List.of("20261014", "20261016"), days(Contract.OPEN));
+        /* Added and emptied positions after the index is built. */
+        open("20261015", 1, 2750D);
+        book.transfer(book.find(INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, "20261014"), 1, ContractState.CLOSING, "20261014", null, 2900D);
+        assertEquals(List.of("20261015", "20261016"), days(Contract.OPEN));
+        assertEquals(List.of("20261014"), days(Contract.CLOSING));
+        assertEquals(List.of(), days(Contract.CLOSED));
+    }
+
+    @Test
+    public void transferProratesAmountsAndKeepsOpenTime() {
+        var opening = book.add(ACCOUNT_ID, INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPENING, null, 3, 8400D, 0D);
+        opening.setOpenMicros(1000L);
+        var open = book.transfer(opening, 2, ContractState.OPEN, "20261016", 2790D, null);
+        assertEquals(1, opening.getQuantity());
+        assertEquals(2800D, opening.getAmount());
+        assertEquals(2, open.getQuantity());
+        assertEquals(5580D, open.getAmount());
+        assertEquals(1000L, open.getOpenMicros());
+        var closing = book.transfer(open, 2, ContractState.CLOSING, "20261016", null, 2850D);
+        assertNull(book.find(INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, "20261016"));
+        assertEquals(0, open.getQuantity());
+        assertEquals(5580D, closing.getAmount());
+        assertEquals(5700D, closing.getCloseAmount());
+        assertEquals(List.of("OPENING 3 8400.0", "OPENING -2 -5600.0", "OPEN 2 5580.0", "OPEN -2 -5580.0", "CLOSING 2 5580.0"), changes);
+    }
+
+    @Test
+    public void illegalTransferLeavesBookUnchanged() {
+        var open = open("20261016", 2, 5600D);
+        assertThrows(IllegalArgumentException.class, () -> book.transfer(open, 3, ContractState.CLOSING, "20261016", null, null));
+        assertThrows(IllegalArgumentException.class, () -> book.transfer(open, 0, ContractState.CLOSING, "20261016", null, null));
+        assertThrows(IllegalArgumentException.class, () -> book.transfer(open, 1, ContractState.CLOSED, "20261016", null, null));
+        assertEquals(2, open.getQuantity());
+        assertEquals(1, book.positions().size());
+        assertEquals(1, changes.size());
+    }
+
+    @Test
+    public void applyReplaysChangesAndRemovesEmptyPosition() {
+        book.apply(ACCOUNT_ID, INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, "20261016", 1000L, 2, 5600D, 0D);
+        book.apply(ACCOUNT_ID, INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, "20261016", 2000L, 1, 2900D, 0D);
+        var open = book.find(INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, "20261016");
+        assertEquals(3, open.getQuantity());
+        assertEquals(8500D, open.getAmount());
+        assertEquals(1000L, open.getOpenMicros());
+        assertEquals(List.of("20261016"), days(Contract.OPEN));
+        book.apply(ACCOUNT_ID, INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, "20261016", 1000L, -3, -8500D, 0D);
+        assertNull(book.find(INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, "20261016"));
+        assertTrue(book.positions().isEmpty());
+        assertEquals(List.of(), days(Contract.OPEN));
+    }
+
+    @Test
+    public void removeIfNotifiesAndReindexes() {
+        open("20261015", 1, 2800D);
+        open("20261016", 2, 5600D);
+        assertEquals(List.of("20261015", "20261016"), days(Contract.OPEN));
+        changes.clear();
+        book.removeIf(position -> position.getOpenTradingDay().equals("20261015"));
+        assertEquals(List.of("OPEN -1 -2800.0"), changes);
+        assertEquals(List.of("20261016"), days(Contract.OPEN));
+    }
+
+    @Test
+    public void contractsExpandLotsAndFoldBack() {
+        open("20261016", 2, 5600D);
+        var contracts = book.contracts();
+        assertEquals(2, contracts.size());
+        assertSame(contracts, book.contracts());
+        contracts.forEach(contract -> assertEquals(2800D, contract.getPrice()));
+        var folded = new PositionBook();
+        contracts.forEach(folded::addContract);
+        var position = folded.find(INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, "20261016");
+        assertEquals(2, position.getQuantity());
+        assertEquals(5600D, position.getAmount());
+        open("20261016", 1, 2800D);
+        assertEquals(3, book.contracts().size());
+    }
+
+    private PositionCore open(String day, int quantity, double amount) {
+        return book.add(ACCOUNT_ID, INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, Contract.OPEN, day, quantity, amount, 0D);
+    }
+
+    private List<String> days(String state) {
+        return book.find(INSTRUMENT_ID, EXCHANGE_ID, Order.BUY, state).stream()
+                .map(PositionCore::getOpenTradingDay)
+                .collect(Collectors.toList());
+    }
+}
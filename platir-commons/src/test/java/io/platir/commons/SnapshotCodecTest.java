@@ -0,0 +1,170 @@
+package io.platir.commons;
+
+import io.platir.Contract;
+import io.platir.Order;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Full snapshots read back the same user, and a chain of delta snapshots
+ * merges back into the current user.
+ */
+public class SnapshotCodecTest {
+
+    private static final String DAY = "20261016";
+    private static final String EXCHANGE_ID = "DCE";
+
+    private UserCore user;
+
+    @BeforeEach
+    public void setUp() {
+        user = new UserCore();
+        user.setUserId("user");
+        user.setPassword("password");
+        user.setCreateDatetime("2026-10-01 09:00:00.000");
+        user.setUserSetting(new UserSettingCore());
+        account("a", "a-1", "a-2");
+        account("b", "b-1");
+    }
+
+    @Test
+    public void fullSnapshotRoundTrips() throws Exception {
+        var bytes = write(user, false);
+        var read = read(bytes);
+        assertArrayEquals(bytes, write(read, false));
+        var account = read.accounts().get("a");
+        assertSame(read, account.getUser());
+        assertEquals(1.0E6, account.getYdBalance());
+        var position = account.positions().find("c2205", EXCHANGE_ID, Order.BUY, Contract.OPEN, DAY);
+        assertEquals(3, position.getQuantity());
+        assertEquals(8400D, position.getAmount());
+        assertEquals(1000L, position.getOpenMicros());
+        var strategy = account.strategies().get("a-1");
+        assertSame(account, strategy.getAccount());
+        var transaction = strategy.transactions().get("a-1-t");
+        assertSame(strategy, transaction.getStrategy());
+        var order = transaction.orders().get("a-1-o");
+        assertSame(transaction, order.getTransaction());
+        var trade = order.trades().get("a-1-d");
+        assertSame(order, trade.getOrder());
+        assertEquals(2800D, trade.getPrice());
+    }
+
+    @Test
+    public void deltaChainMergesIntoCurrentUser() throws Exception {
+        var full = read(write(user, false));
+        user.setSnapshotBase("20261014");
+        user.accounts().get("b").strategies().get("b-1").setRemoveDatetime("2026-10-15 15:00:00.000");
+        var first = read(write(user, true));
+        assertEquals(Set.of("b"), first.accounts().keySet());
+        assertEquals("20261014", first.getSnapshotBase());
+        user.setSnapshotBase("20261015");
+        user.accounts().get("a").positions().add("a", "c2205", EXCHANGE_ID, Order.SELL, Contract.OPEN, DAY, 1, 2810D, 0D);
+        user.accounts().get("a").strategies().get("a-2").setRemoveDatetime("2026-10-16 15:00:00.000");
+        var second = read(write(user, true));
+        assertEquals(Set.of("a"), second.accounts().keySet());
+        assertEquals(Set.of("a-2"), second.accounts().get("a").strategies().keySet());
+
+        SnapshotCodec.merge(second, first);
+        SnapshotCodec.merge(second, full);
+        assertNull(second.getSnapshotBase());
+        second.accounts().values().forEach(account -> {
+            assertSame(second, account.getUser());
+            account.strategies().values().forEach(strategy -> assertSame(account, strategy.getAccount()));
+        });
+        user.setSnapshotBase(null);
+        assertArrayEquals(write(user, false), write(second, false));
+    }
+
+    @Test
+    public void rejectsForeignOrNewerSnapshot() throws Exception {
+        assertThrows(IOException.class, () -> read(new byte[]{0, 0, 0, 0, 1}));
+        var output = new ByteArrayOutputStream();
+        var data = new DataOutputStream(output);
+        data.writeInt(SnapshotCodec.MAGIC);
+        data.writeByte(SnapshotCodec.VERSION + 1);
+        assertThrows(IOException.class, () -> read(output.toByteArray()));
+    }
+
+    private void account(String accountId, String... strategyIds) {
+        var account = new AccountCore();
+        account.setAccountId(accountId);
+        account.setState("NORMAL");
+        account.setYdBalance(1.0E6);
+        account.setAccountRule(new AccountSettingCore());
+        account.setUser(user);
+        var position = account.positions().add(accountId, "c2205", EXCHANGE_ID, Order.BUY, Contract.OPEN, DAY, 3, 8400D, 0D);
+        position.setOpenMicros(1000L);
+        account.positions().add(accountId, "c2205", EXCHANGE_ID, Order.BUY, Contract.CLOSING, DAY, 1, 2800D, 2850D);
+        for (var strategyId : strategyIds) {
+            var strategy = new StrategyCore();
+            strategy.setStrategyId(strategyId);
+            strategy.setState("NORMAL");
+            strategy.setCreateDatetime("2026-10-01 09:00:00.000");
+            strategy.setStrategySetting(new StrategySettingCore());
+            strategy.setAccount(account);
+            strategy.transactions().put(strategyId + "-t", transaction(strategy, strategyId));
+            account.strategies().put(strategyId, strategy);
+        }
+        user.accounts().put(accountId, account);
+    }
+
+    private static TransactionCore transaction(StrategyCore strategy, String strategyId) {
+        var transaction = new TransactionCore();
+        transaction.setTransactionId(strategyId + "-t");
+        transaction.setInstrumentId("c2205");
+        transaction.setExchangeId(EXCHANGE_ID);
+        transaction.setPrice(2800D);
+        transaction.setQuantity(1);
+        transaction.setDirection(Order.BUY);
+        transaction.setOffset(Order.OPEN);
+        transaction.setTradingDay(DAY);
+        transaction.setState(TransactionState.ALL_TRADED);
+        transaction.setUpdateMicros(2000L);
+        transaction.setStrategy(strategy);
+        var order = new OrderCore();
+        order.setOrderId(strategyId + "-o");
+        order.setInstrumentId("c2205");
+        order.setExchangeId(EXCHANGE_ID);
+        order.setPrice(2800D);
+        order.setQuantity(1);
+        order.setDirection(Order.BUY);
+        order.setOffset(Order.OPEN);
+        order.setTradingDay(DAY);
+        order.setState(OrderState.ALL_TRADED);
+        order.setTransaction(transaction);
+        var trade = new TradeCore();
+        trade.setTradeId(strategyId + "-d");
+        trade.setInstrumentId("c2205");
+        trade.setExchangeId(EXCHANGE_ID);
+        trade.setPrice(2800D);
+        trade.setQuantity(1);
+        trade.setDirection(Order.BUY);
+        trade.setOffset(Order.OPEN);
+        trade.setTradingDay(DAY);
+        trade.setOrder(order);
+        order.trades().put(trade.getTradeId(), trade);
+        transaction.orders().put(order.getOrderId(), order);
+        return transaction;
+    }
+
+    private static byte[] write(UserCore user, boolean delta) throws IOException {
+        var output = new ByteArrayOutputStream();
+        SnapshotCodec.write(output, user, delta, true);
+        return output.toByteArray();
+    }
+
+    private static UserCore read(byte[] bytes) throws IOException {
+        return SnapshotCodec.read(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,33 @@
+package io.platir.engine;
+
+import java.time.Clock;
+
+/**
+ * Source of event timestamps in microseconds since the epoch.
+ * <p>
+ * Core objects keep event timestamps as primitive microseconds and render
+ * datetime strings only when they are asked for, so no string is formatted on
+ * the order and fill paths. Set a {@linkplain ReplayClock} to the engine to
+ * stamp replayed events with the recorded times.
+ */
+public abstract class EngineClock {
+
+    private static final EngineClock SYSTEM = new SystemClock();
+
+    public static EngineClock system() {
+        return SYSTEM;
+    }
+
+    public abstract long epochMicros();
+
+    private static class SystemClock extends EngineClock {
+
+        private final Clock clock = Clock.systemUTC();
+
+        @Override
+        public long epochMicros() {
+            var now = clock.instant();
+            return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000L;
+        }
+    }
+}
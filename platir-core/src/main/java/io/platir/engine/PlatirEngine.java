@@ -11,7 +11,9 @@ import io.platir.User;
 import io.platir.broker.MarketDataService;
 import io.platir.broker.TradingService;
 import io.platir.engine.core.PlatirEngineCore;
+import io.platir.engine.metrics.EngineMetrics;
 import io.platir.user.UserStrategy;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -27,6 +29,8 @@ public abstract class PlatirEngine {
 
     public abstract void setUseService(MarketDataService marketDataService, Map<String, String> parameters);
 
+    public abstract void setClock(EngineClock clock);
+
     public abstract void initialize(GlobalSetting globalRule) throws InitializeEngineException;
 
     public abstract Set<User> getUsers();
@@ -44,4 +48,22 @@ public abstract class PlatirEngine {
     public abstract void blockStrategy(Strategy strategy) throws StopStrategyException;
 
     public abstract void removeStrategy(Strategy strategy) throws RemoveStrategyException;
+
+    public abstract int getMarketDataQueueDepth(Strategy strategy);
+
+    public abstract long getMarketDataDropCount(Strategy strategy);
+
+    public abstract List<String> getLogs(Strategy strategy);
+
+    /**
+     * Get a page of the strategy's log records, counted back from the newest.
+     *
+     * @param strategy strategy
+     * @param skip number of newest records skipped
+     * @param limit maximum number of records
+     * @return formatted records in the order they are logged
+     */
+    public abstract List<String> getLogs(Strategy strategy, int skip, int limit);
+
+    public abstract EngineMetrics getMetrics();
 }
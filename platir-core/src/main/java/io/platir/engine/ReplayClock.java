@@ -0,0 +1,27 @@
+package io.platir.engine;
+
+/**
+ * Clock that only moves when it is set, for deterministic replay. It is
+ * moved by the one thread that replays events.
+ */
+public class ReplayClock extends EngineClock {
+
+    private volatile long epochMicros;
+
+    public ReplayClock(long epochMicros) {
+        this.epochMicros = epochMicros;
+    }
+
+    @Override
+    public long epochMicros() {
+        return epochMicros;
+    }
+
+    public void set(long epochMicros) {
+        this.epochMicros = epochMicros;
+    }
+
+    public void advance(long micros) {
+        epochMicros += micros;
+    }
+}
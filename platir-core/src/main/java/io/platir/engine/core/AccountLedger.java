@@ -0,0 +1,235 @@
+package io.platir.engine.core;
+
+import io.platir.Instrument;
+import io.platir.Order;
+import io.platir.commons.AccountCore;
+import io.platir.commons.PositionCore;
+import io.platir.commons.PositionListener;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Incremental account settlement.
+ * <p>
+ * Margin, commission, closing commission and close profit are updated by the
+ * delta of every position change. Position profit and the opening margin and
+ * commission depend on the latest price, and they are re-marked only for the
+ * instruments whose positions or latest prices have changed since the last
+ * settlement. The ledger is rebuilt from positions when it is first used, when
+ * trading day or any instrument it holds changes, or after it is invalidated.
+ */
+class AccountLedger implements PositionListener {
+
+    private final AccountCore account;
+    private final InfoCenter infoCenter;
+    private final Map<String, InstrumentLedger> instruments = new HashMap<>();
+    private String tradingDay;
+    private boolean valid = false;
+    private double margin;
+    private double commission;
+    private double closingCommission;
+    private double closeProfit;
+    private double openingMargin;
+    private double openingCommission;
+    private double positionProfit;
+
+    AccountLedger(AccountCore account, InfoCenter infoCenter) {
+        this.account = account;
+        this.infoCenter = infoCenter;
+    }
+
+    @Override
+    public void onPositionChanged(PositionCore position, int quantity, double amount, double closeAmount) {
+        if (!valid) {
+            return;
+        }
+        try {
+            apply(position, quantity, amount, closeAmount);
+        } catch (InsufficientInfoException exception) {
+            /* Rebuild on next settlement and report missing information there. */
+            valid = false;
+        }
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * Settle account with the changes since last settlement.
+     *
+     * @param day trading day
+     * @throws InsufficientInfoException if instrument or latest price is
+     * missing
+     */
+    void settle(String day) throws InsufficientInfoException {
+        if (!valid || !day.equals(tradingDay) || isInstrumentUpdated()) {
+            rebuild(day);
+        }
+        for (var entry : instruments.entrySet()) {
+            remark(entry.getKey(), entry.getValue());
+        }
+        var balance = account.ydBalance() + positionProfit + closeProfit - commission;
+        var available = balance - openingCommission - closingCommission - openingMargin - margin;
+
+        account.setAvailable(available);
+        account.setBalance(balance);
+        account.setCloseProfit(closeProfit);
+        account.setClosingCommission(closingCommission);
+        account.setCommission(commission);
+        account.setMargin(margin);
+        account.setOpeningCommission(openingCommission);
+        account.setOpeningMargin(openingMargin);
+        account.setPositionProfit(positionProfit);
+        account.setSettleMicros(infoCenter.clock().epochMicros());
+        account.setTradingDay(tradingDay);
+    }
+
+    private boolean isInstrumentUpdated() throws InsufficientInfoException {
+        for (var entry : instruments.entrySet()) {
+            if (infoCenter.getInstrument(entry.getKey()).getVersion() != entry.getValue().instrument.getVersion()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void rebuild(String day) throws InsufficientInfoException {
+        instruments.clear();
+        margin = 0D;
+        commission = 0D;
+        closingCommission = 0D;
+        closeProfit = 0D;
+        openingMargin = 0D;
+        openingCommission = 0D;
+        positionProfit = 0D;
+        tradingDay = day;
+        for (var position : account.positions().positions()) {
+            apply(position, position.getQuantity(), position.getAmount(), position.getCloseAmount());
+        }
+        valid = true;
+    }
+
+    private void apply(PositionCore position, int quantity, double amount, double closeAmount) throws InsufficientInfoException {
+        var ledger = instruments.get(position.getInstrumentId());
+        if (ledger == null) {
+            ledger = new InstrumentLedger(infoCenter.getInstrument(position.getInstrumentId()));
+            instruments.put(position.getInstrumentId(), ledger);
+        }
+        var instrument = ledger.instrument;
+        var today = tradingDay.equals(position.getOpenTradingDay());
+        switch (position.state()) {
+            case OPENING:
+                ledger.openingQuantity += quantity;
+                ledger.changed = true;
+                break;
+            case OPEN:
+                if (today) {
+                    commission += commission(instrument, amount, quantity);
+                }
+                margin += margin(instrument, amount, quantity);
+                ledger.hold(position.getDirection(), quantity, amount);
+                break;
+            case CLOSING:
+                if (today) {
+                    commission += commission(instrument, amount, quantity);
+                }
+                margin += margin(instrument, amount, quantity);
+                closingCommission += commission(instrument, closeAmount, quantity);
+                ledger.hold(position.getDirection(), quantity, amount);
+                break;
+            case CLOSED:
+                if (today) {
+                    commission += commission(instrument, amount, quantity);
+                }
+                commission += commission(instrument, closeAmount, quantity);
+                closeProfit += profit(instrument, position.getDirection(), amount, closeAmount);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void remark(String instrumentId, InstrumentLedger ledger) throws InsufficientInfoException {
+        if (ledger.openingQuantity == 0 && ledger.holdQuantity == 0) {
+            if (ledger.changed) {
+                update(ledger, 0D, 0D, 0D);
+            }
+            return;
+        }
+        double price = infoCenter.getLatestPrice(instrumentId);
+        if (!ledger.changed && ledger.marked && price == ledger.price) {
+            return;
+        }
+        var instrument = ledger.instrument;
+        update(ledger,
+                commission(instrument, price * ledger.openingQuantity, ledger.openingQuantity),
+                margin(instrument, price * ledger.openingQuantity, ledger.openingQuantity),
+                instrument.getMultiple() * (ledger.netQuantity * price - ledger.netAmount));
+        ledger.price = price;
+        ledger.marked = true;
+    }
+
+    private void update(InstrumentLedger ledger, double newOpeningCommission, double newOpeningMargin, double newPositionProfit) {
+        openingCommission += newOpeningCommission - ledger.openingCommission;
+        openingMargin += newOpeningMargin - ledger.openingMargin;
+        positionProfit += newPositionProfit - ledger.positionProfit;
+        ledger.openingCommission = newOpeningCommission;
+        ledger.openingMargin = newOpeningMargin;
+        ledger.positionProfit = newPositionProfit;
+        ledger.changed = false;
+    }
+
+    private static double commission(Instrument instrument, double amount, int quantity) {
+        double commissionByAmount = instrument.getCommissionByAmount();
+        if (commissionByAmount == 0D) {
+            return quantity * instrument.getCommissionByQuantity();
+        } else {
+            return instrument.getMultiple() * amount * commissionByAmount;
+        }
+    }
+
+    private static double margin(Instrument instrument, double amount, int quantity) {
+        double marginByAmount = instrument.getMarginByAmount();
+        if (marginByAmount == 0D) {
+            return quantity * instrument.getMarginByQuantity();
+        } else {
+            return instrument.getMultiple() * amount * marginByAmount;
+        }
+    }
+
+    private static double profit(Instrument instrument, String direction, double amount, double closeAmount) {
+        if (direction.equals(Order.BUY)) {
+            return instrument.getMultiple() * (closeAmount - amount);
+        } else {
+            return instrument.getMultiple() * (amount - closeAmount);
+        }
+    }
+
+    private static class InstrumentLedger {
+
+        private final InstrumentSnapshot instrument;
+        private int openingQuantity;
+        private int holdQuantity;
+        private int netQuantity;
+        private double netAmount;
+        private double price;
+        private boolean marked = false;
+        private boolean changed = true;
+        private double openingCommission;
+        private double openingMargin;
+        private double positionProfit;
+
+        InstrumentLedger(InstrumentSnapshot instrument) {
+            this.instrument = instrument;
+        }
+
+        void hold(String direction, int quantity, double amount) {
+            var sign = direction.equals(Order.BUY) ? 1 : -1;
+            holdQuantity += quantity;
+            netQuantity += sign * quantity;
+            netAmount += sign * amount;
+            changed = true;
+        }
+    }
+}
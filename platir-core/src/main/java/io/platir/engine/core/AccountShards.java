@@ -0,0 +1,184 @@
+package io.platir.engine.core;
+
+import io.platir.commons.AccountCore;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+
+/**
+ * Runs every change of an account either under the account's monitor on the
+ * calling thread, or on the single thread of the shard that owns the account.
+ * <p>
+ * With no shard, commands synchronize on the account as the engine always
+ * did. With shards, accounts are spread over the shards by account ID, and a
+ * shard thread takes commands from a lock-free inbox and runs them one by
+ * one, so the accounts it owns are only changed by it and no monitor is
+ * taken. Callers of {@linkplain #call} park until their command returns, and
+ * commands of {@linkplain #execute} return at once. A shard thread calling
+ * for an account of its own runs the command directly, as a monitor would
+ * be reentered, so commands must not wait for other shards.
+ */
+class AccountShards {
+
+    private final Shard[] shards;
+
+    AccountShards(int shardCount) {
+        shards = new Shard[Math.max(0, shardCount)];
+        for (int index = 0; index < shards.length; ++index) {
+            shards[index] = new Shard(index);
+        }
+    }
+
+    int getShardCount() {
+        return shards.length;
+    }
+
+    /**
+     * Run the command with exclusive access to the account and return its
+     * result.
+     *
+     * @param <T> result type
+     * @param <E> exception type of the command
+     * @param account account changed by the command
+     * @param command command
+     * @return result of the command
+     * @throws E if the command throws it
+     */
+    <T, E extends Exception> T call(AccountCore account, AccountCommand<T, E> command) throws E {
+        var shard = shard(account);
+        if (shard == null) {
+            synchronized (account.syncObject()) {
+                return command.run();
+            }
+        }
+        if (Thread.currentThread() == shard.thread) {
+            return command.run();
+        }
+        var task = new CallTask<T, E>(command);
+        shard.offer(task);
+        return task.await();
+    }
+
+    /**
+     * Run the command with exclusive access to the account without waiting
+     * for it when the account is sharded. Exceptions are logged.
+     *
+     * @param account account changed by the command
+     * @param command command
+     */
+    void execute(AccountCore account, Runnable command) {
+        var shard = shard(account);
+        if (shard == null) {
+            synchronized (account.syncObject()) {
+                command.run();
+            }
+        } else if (Thread.currentThread() == shard.thread) {
+            command.run();
+        } else {
+            shard.offer(command);
+        }
+    }
+
+    private Shard shard(AccountCore account) {
+        if (shards.length == 0) {
+            return null;
+        }
+        return shards[Math.floorMod(account.getAccountId().hashCode(), shards.length)];
+    }
+
+    @FunctionalInterface
+    interface AccountCommand<T, E extends Exception> {
+
+        T run() throws E;
+    }
+
+    private static class Shard implements Runnable {
+
+        private final Queue<Runnable> inbox = new ConcurrentLinkedQueue<>();
+        private final Thread thread;
+        private volatile boolean waiting = false;
+
+        Shard(int index) {
+            thread = new Thread(this, "platir-shard-" + index);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        void offer(Runnable command) {
+            inbox.offer(command);
+            if (waiting) {
+                waiting = false;
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                var command = inbox.poll();
+                if (command == null) {
+                    waiting = true;
+                    if (inbox.isEmpty()) {
+                        LockSupport.park(this);
+                    }
+                    waiting = false;
+                    continue;
+                }
+                try {
+                    command.run();
+                } catch (Throwable throwable) {
+                    PlatirEngineCore.logger().log(Level.SEVERE, "Account command throws exception on {0}. {1}", new Object[]{thread.getName(), throwable.getMessage()});
+                }
+            }
+        }
+    }
+
+    private static class CallTask<T, E extends Exception> implements Runnable {
+
+        private final AccountCommand<T, E> command;
+        private final Thread caller = Thread.currentThread();
+        private T result;
+        private Throwable failure;
+        private volatile boolean done = false;
+
+        CallTask(AccountCommand<T, E> command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            try {
+                result = command.run();
+            } catch (Throwable throwable) {
+                failure = throwable;
+            }
+            done = true;
+            LockSupport.unpark(caller);
+        }
+
+        @SuppressWarnings("unchecked")
+        T await() throws E {
+            /* Like a monitor, waiting for the account is not interruptible. */
+            var interrupted = false;
+            while (!done) {
+                LockSupport.park(this);
+                interrupted |= Thread.interrupted();
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            if (failure == null) {
+                return result;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            /* The command only throws E besides unchecked exceptions. */
+            throw (E) failure;
+        }
+    }
+}
@@ -1,11 +1,8 @@
 package io.platir.engine.core;
 
 import io.platir.commons.AccountCore;
-import io.platir.Account;
-import io.platir.Contract;
 import io.platir.Instrument;
 import io.platir.Order;
-import io.platir.utils.Utils;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
@@ -13,45 +10,45 @@ import java.util.stream.Collectors;
 
 public class AccountUtils {
 
-    static Double computeCommission(Instrument instrument, Double price, Integer quantity) {
-        var commissionByAmount = instrument.getCommissionByAmount();
-        if (commissionByAmount.equals(0D)) {
+    static double computeCommission(Instrument instrument, double price, int quantity) {
+        double commissionByAmount = instrument.getCommissionByAmount();
+        if (commissionByAmount == 0D) {
             return quantity * instrument.getCommissionByQuantity();
         } else {
             return instrument.getMultiple() * quantity * price * commissionByAmount;
         }
     }
 
-    static Double computeMargin(Instrument instrument, Double price, Integer quantity) {
-        var marginByAmount = instrument.getMarginByAmount();
-        if (marginByAmount.equals(0D)) {
+    static double computeMargin(Instrument instrument, double price, int quantity) {
+        double marginByAmount = instrument.getMarginByAmount();
+        if (marginByAmount == 0D) {
             return quantity * instrument.getMarginByQuantity();
         } else {
             return instrument.getMultiple() * quantity * price * marginByAmount;
         }
     }
 
-    static Double computeProfit(Instrument instrument, Contract contract, Double price) {
-        switch (contract.getDirection()) {
+    static double computeProfit(Instrument instrument, String direction, double openPrice, double price, int quantity) {
+        switch (direction) {
             case Order.BUY:
-                return instrument.getMultiple() * (price - contract.getPrice());
+                return instrument.getMultiple() * quantity * (price - openPrice);
             case Order.SELL:
-                return instrument.getMultiple() * (contract.getPrice() - price);
+                return instrument.getMultiple() * quantity * (openPrice - price);
             default:
-                PlatirEngineCore.logger().log(Level.SEVERE, "Invalid contract direction {0}.", contract.getDirection());
+                PlatirEngineCore.logger().log(Level.SEVERE, "Invalid contract direction {0}.", direction);
                 return 0D;
         }
     }
 
-    static Map<String, Double> findLatestPrices(Account account) throws InsufficientInfoException {
+    static Map<String, Double> findLatestPrices(AccountCore account, InfoCenter infoCenter) throws InsufficientInfoException {
         final Map<String, Double> prices = new HashMap<>();
         try {
-            account.getContracts().stream()
-                    .map(contract -> contract.getInstrumentId())
+            account.positions().positions().stream()
+                    .map(position -> position.getInstrumentId())
                     .collect(Collectors.toSet())
                     .forEach(instrumentId -> {
                         try {
-                            prices.put(instrumentId, InfoCenter.getLatestPrice(instrumentId));
+                            prices.put(instrumentId, infoCenter.getLatestPrice(instrumentId));
                         } catch (InsufficientInfoException exception) {
                             throw new RuntimeException("No latest price for " + instrumentId + ".");
                         }
@@ -62,15 +59,30 @@ public class AccountUtils {
         }
     }
 
-    static Map<String, Instrument> findInstruments(Account account) throws InsufficientInfoException {
+    /**
+     * Find settlement prices of the instruments held by account, or latest
+     * prices if there is no settlement price of the trading day.
+     *
+     * @param account account
+     * @param infoCenter reference data and prices
+     * @return settlement prices
+     * @throws InsufficientInfoException if latest price is missing
+     */
+    static Map<String, Double> findSettlementPrices(AccountCore account, InfoCenter infoCenter) throws InsufficientInfoException {
+        var prices = findLatestPrices(account, infoCenter);
+        prices.replaceAll((instrumentId, price) -> infoCenter.getSettlementPriceOr(instrumentId, price));
+        return prices;
+    }
+
+    static Map<String, Instrument> findInstruments(AccountCore account, InfoCenter infoCenter) throws InsufficientInfoException {
         final Map<String, Instrument> instruments = new HashMap<>();
         try {
-            account.getContracts().stream()
-                    .map(contract -> contract.getInstrumentId())
+            account.positions().positions().stream()
+                    .map(position -> position.getInstrumentId())
                     .collect(Collectors.toSet())
                     .forEach(instrumentId -> {
                         try {
-                            instruments.put(instrumentId, InfoCenter.getInstrument(instrumentId));
+                            instruments.put(instrumentId, infoCenter.getInstrument(instrumentId));
                         } catch (InsufficientInfoException exception) {
                             throw new RuntimeException("No instrument " + instrumentId + ".");
                         }
@@ -81,51 +93,111 @@ public class AccountUtils {
         }
     }
 
-    static void settleAccount(AccountCore account, Map<String, Instrument> instruments, Map<String, Double> prices, String tradingDay) {
-        Double openingCommission = 0D;
-        Double openingMargin = 0D;
-        Double closingCommission = 0D;
-        Double margin = 0D;
-        Double commission = 0D;
-        Double closeProfit = 0D;
-        Double positionProfit = 0D;
+    static AccountLedger ledger(AccountCore account, InfoCenter infoCenter) {
+        for (var listener : account.positions().listeners()) {
+            if (listener instanceof AccountLedger) {
+                return (AccountLedger) listener;
+            }
+        }
+        var ledger = new AccountLedger(account, infoCenter);
+        account.positions().listeners().add(ledger);
+        return ledger;
+    }
+
+    /**
+     * Settle account incrementally with its {@linkplain AccountLedger}.
+     * <p>
+     * Caller has exclusive access to the account.
+     *
+     * @param account account to settle
+     * @param tradingDay trading day
+     * @param infoCenter reference data and prices
+     * @throws InsufficientInfoException if instrument or latest price is
+     * missing
+     */
+    static void settleAccount(AccountCore account, String tradingDay, InfoCenter infoCenter) throws InsufficientInfoException {
+        ledger(account, infoCenter).settle(tradingDay);
+    }
 
-        for (var contract : account.getContracts()) {
-            var instrument = instruments.get(contract.getInstrumentId());
-            var price = prices.get(contract.getInstrumentId());
-            switch (contract.getState()) {
-                case Contract.OPENING:
-                    openingCommission += computeCommission(instrument, price, 1);
-                    openingMargin += computeMargin(instrument, price, 1);
+    /**
+     * Settle account incrementally and then recompute it from all positions,
+     * and rebuild the ledger if the two disagree.
+     * <p>
+     * Caller has exclusive access to the account.
+     *
+     * @param account account to settle
+     * @param tradingDay trading day
+     * @param infoCenter reference data and prices
+     * @throws InsufficientInfoException if instrument or latest price is
+     * missing
+     */
+    static void verifyAccount(AccountCore account, String tradingDay, InfoCenter infoCenter) throws InsufficientInfoException {
+        var ledger = ledger(account, infoCenter);
+        ledger.settle(tradingDay);
+        var incremental = new double[]{account.getBalance(), account.getAvailable(), account.getMargin(), account.getCommission(), account.getCloseProfit(), account.getPositionProfit()};
+        settleAccount(account, findInstruments(account, infoCenter), findLatestPrices(account, infoCenter), tradingDay, infoCenter);
+        var recomputed = new double[]{account.getBalance(), account.getAvailable(), account.getMargin(), account.getCommission(), account.getCloseProfit(), account.getPositionProfit()};
+        for (int index = 0; index < incremental.length; ++index) {
+            if (Math.abs(incremental[index] - recomputed[index]) > 1E-6) {
+                PlatirEngineCore.logger().log(Level.WARNING, "Account({0}) incremental settlement differs from recompute, {1} against {2}.", new Object[]{account.getAccountId(), incremental[index], recomputed[index]});
+                ledger.invalidate();
+                break;
+            }
+        }
+    }
+
+    static void settleAccount(AccountCore account, Map<String, Instrument> instruments, Map<String, Double> prices, String tradingDay, InfoCenter infoCenter) {
+        double openingCommission = 0D;
+        double openingMargin = 0D;
+        double closingCommission = 0D;
+        double margin = 0D;
+        double commission = 0D;
+        double closeProfit = 0D;
+        double positionProfit = 0D;
+
+        for (var position : account.positions().positions()) {
+            var instrument = instruments.get(position.getInstrumentId());
+            var price = prices.get(position.getInstrumentId());
+            var quantity = position.getQuantity();
+            var openPrice = position.getAmount() / quantity;
+            var closePrice = position.getCloseAmount() / quantity;
+            switch (position.state()) {
+                case OPENING:
+                    openingCommission += computeCommission(instrument, price, quantity);
+                    openingMargin += computeMargin(instrument, price, quantity);
                     break;
-                case Contract.OPEN:
-                    if (contract.getOpenTradingDay().equals(tradingDay)) {
-                        commission += computeCommission(instrument, contract.getPrice(), 1);
+                case OPEN:
+                    if (position.getOpenTradingDay().equals(tradingDay)) {
+                        commission += computeCommission(instrument, openPrice, quantity);
                     }
-                    margin += computeMargin(instrument, contract.getPrice(), 1);
-                    positionProfit += computeProfit(instrument, contract, price);
+                    margin += computeMargin(instrument, openPrice, quantity);
+                    positionProfit += computeProfit(instrument, position.getDirection(), openPrice, price, quantity);
                     break;
-                case Contract.CLOSING:
-                    if (contract.getOpenTradingDay().equals(tradingDay)) {
-                        commission += computeCommission(instrument, contract.getPrice(), 1);
+                case CLOSING:
+                    if (position.getOpenTradingDay().equals(tradingDay)) {
+                        commission += computeCommission(instrument, openPrice, quantity);
                     }
-                    margin += computeMargin(instrument, contract.getPrice(), 1);
-                    closingCommission += computeCommission(instrument, contract.getClosePrice(), 1);
-                    positionProfit += computeProfit(instrument, contract, price);
-                case Contract.CLOSED:
-                    if (contract.getOpenTradingDay().equals(tradingDay)) {
-                        commission += computeCommission(instrument, contract.getPrice(), 1);
+                    margin += computeMargin(instrument, openPrice, quantity);
+                    closingCommission += computeCommission(instrument, closePrice, quantity);
+                    positionProfit += computeProfit(instrument, position.getDirection(), openPrice, price, quantity);
+                    break;
+                case CLOSED:
+                    if (position.getOpenTradingDay().equals(tradingDay)) {
+                        commission += computeCommission(instrument, openPrice, quantity);
                     }
-                    commission += computeCommission(instrument, contract.getClosePrice(), 1);
-                    closeProfit = computeProfit(instrument, contract, contract.getClosePrice());
+                    commission += computeCommission(instrument, closePrice, quantity);
+                    closeProfit += computeProfit(instrument, position.getDirection(), openPrice, closePrice, quantity);
+                    break;
+                case ABANDONED:
+                    break;
                 default:
-                    PlatirEngineCore.logger().log(Level.SEVERE, "Invalid contract state {0}.", contract.getState());
+                    PlatirEngineCore.logger().log(Level.SEVERE, "Invalid contract state {0}.", position.getState());
                     break;
             }
         }
 
-        Double balance = account.getYdBalance() + positionProfit + closeProfit - commission;
-        Double available = balance - openingCommission - closingCommission - openingMargin - margin;
+        var balance = account.ydBalance() + positionProfit + closeProfit - commission;
+        var available = balance - openingCommission - closingCommission - openingMargin - margin;
 
         account.setAvailable(available);
         account.setBalance(balance);
@@ -136,7 +208,7 @@ public class AccountUtils {
         account.setOpeningCommission(openingCommission);
         account.setOpeningMargin(openingMargin);
         account.setPositionProfit(positionProfit);
-        account.setSettleDatetime(Utils.datetime());
+        account.setSettleMicros(infoCenter.clock().epochMicros());
         account.setTradingDay(tradingDay);
     }
 }
@@ -1,7 +1,7 @@
 package io.platir.engine.core;
 
-import io.platir.Transaction;
 import io.platir.commons.UserCore;
+import io.platir.commons.TransactionState;
 import io.platir.engine.timer.EngineTimer;
 import io.platir.engine.timer.TimerJob;
 import io.platir.utils.Utils;
@@ -32,10 +32,15 @@ class ClearEngineJob implements TimerJob {
             rollTradingDay();
             tryForceCancelAll();
             checkIfAllUsersDone();
-            InfoCenter.write(Utils.file(Paths.get(Commons.clearBackupDirectory().toString(), Commons.infoCenterBackupFilename())));
+            engine.getInfoCenter().write(Utils.file(Paths.get(Commons.clearBackupDirectory().toString(), Commons.infoCenterBackupFilename())));
         }
     }
 
+    @Override
+    public LocalDateTime nextTime(LocalDateTime datetime) {
+        return engine.getGlobalSetting().clearTime().nextFireTime(datetime);
+    }
+
     private void tryForceCancelAll() {
         if (!engine.getTradingAdapter().isTransactionAllDone()) {
             PlatirEngineCore.logger().warning("Some transactions remain incompleted or unsettled, force canceling all.");
@@ -53,7 +58,7 @@ class ClearEngineJob implements TimerJob {
 
     private void checkIfUserDone(UserCore user) {
         user.accounts().values().forEach(account -> account.strategies().values().forEach(strategy -> strategy.transactions().values().forEach(transaction -> {
-            if (transaction.getState().equals(Transaction.EXECUTING) || transaction.getState().equals(Transaction.PENDING)) {
+            if (transaction.state() == TransactionState.EXECUTING || transaction.state() == TransactionState.PENDING) {
                 PlatirEngineCore.logger().log(Level.SEVERE, "User({0}) account({1}) strategy({2}) transaction({3}) is still alive at clearance, need manual intervention.", new Object[]{user.getUserId(), account.getAccountId(), strategy.getStrategyId(), transaction.getTransactionId()});
             }
         })));
@@ -65,6 +70,6 @@ class ClearEngineJob implements TimerJob {
         while (tomorrow.getDayOfWeek() == DayOfWeek.SATURDAY || tomorrow.getDayOfWeek() == DayOfWeek.SUNDAY) {
             tomorrow = tomorrow.plusDays(1);
         }
-        InfoCenter.setTradingDay(tomorrow.format(Utils.dateFormat));
+        engine.getInfoCenter().setTradingDay(tomorrow.format(Utils.dateFormat));
     }
 }
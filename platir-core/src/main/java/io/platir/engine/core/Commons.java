@@ -7,6 +7,8 @@ import java.nio.file.Paths;
 
 class Commons {
 
+    private static final String SNAPSHOT_SUFFIX = ".snapshot";
+
     static Path instanceDirectory() {
         var code = Integer.toString(classFilePath(Utils.class).hashCode());
         return Paths.get(Utils.cwd().toString(), "Platir", code);
@@ -18,11 +20,27 @@ class Commons {
     }
 
     static String userPreBackupFilename(String userId) {
-        return userId + ".pre";
+        return userId + ".pre" + SNAPSHOT_SUFFIX;
     }
 
     static String userBackupFilename(String userId) {
-        return userId;
+        return userId + SNAPSHOT_SUFFIX;
+    }
+
+    static String userJsonExportFilename(String userId) {
+        return userId + ".json";
+    }
+
+    static boolean isUserBackupFile(Path path) {
+        var name = path.getFileName().toString();
+        return name.endsWith(SNAPSHOT_SUFFIX) && !name.endsWith(userPreBackupFilename(""));
+    }
+
+    /**
+     * JSON user backup written before binary snapshots, named by user ID only.
+     */
+    static boolean isUserLegacyBackupFile(Path path) {
+        return !path.getFileName().toString().contains(".");
     }
 
     static Path clearBackupDirectory() {
@@ -33,6 +51,10 @@ class Commons {
         return "InfoCenter.json";
     }
 
+    static Path journalDirectory() {
+        return Paths.get(instanceDirectory().toString(), "Journal");
+    }
+
     static Path loggingDirectory() {
         return Paths.get(instanceDirectory().toString(), "Logging");
     }
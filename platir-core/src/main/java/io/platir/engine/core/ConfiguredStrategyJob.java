@@ -24,6 +24,25 @@ public class ConfiguredStrategyJob implements TimerJob {
         tryAlarm(datetime, timer);
     }
 
+    @Override
+    public LocalDateTime nextTime(LocalDateTime datetime) {
+        var setting = strategy.getStrategySetting();
+        return earliest(setting.configuredOpenTime().nextFireTime(datetime),
+                setting.configuredCloseTime().nextFireTime(datetime),
+                setting.alarmEveryTime().nextFireTime(datetime),
+                setting.alarmPointTime().nextFireTime(datetime));
+    }
+
+    private static LocalDateTime earliest(LocalDateTime... datetimes) {
+        LocalDateTime earliest = null;
+        for (var datetime : datetimes) {
+            if (datetime != null && (earliest == null || datetime.isBefore(earliest))) {
+                earliest = datetime;
+            }
+        }
+        return earliest;
+    }
+
     private void tryConfiguredOpen(LocalDateTime datetime, EngineTimer timer) {
         var checker = strategy.getStrategySetting().configuredOpenTime();
         if (checker.check(datetime)) {
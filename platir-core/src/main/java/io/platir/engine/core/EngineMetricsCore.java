@@ -0,0 +1,157 @@
+package io.platir.engine.core;
+
+import io.platir.Strategy;
+import io.platir.commons.StrategyCore;
+import io.platir.engine.metrics.EngineMetrics;
+import io.platir.engine.metrics.EngineMetricsMXBean;
+import io.platir.engine.metrics.LatencyHistogram;
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.ToLongFunction;
+import java.util.logging.Level;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Latency histograms are created once for all stages, so the hot paths keep
+ * their histograms and record without lookup. Queue depths and pool usage
+ * are read from the engine on demand.
+ */
+class EngineMetricsCore implements EngineMetrics, EngineMetricsMXBean {
+
+    private final PlatirEngineCore engine;
+    private final Map<String, LatencyHistogram> latencies;
+
+    EngineMetricsCore(PlatirEngineCore engine) {
+        this.engine = engine;
+        Map<String, LatencyHistogram> created = new LinkedHashMap<>();
+        for (var stage : new String[]{ORDER_VALIDATION, ACCOUNT_LOCK_WAIT, SETTLE_ACCOUNT, BROKER_SEND, EXECUTION_REPORT, FILL_TO_CALLBACK, MARKET_DATA_TO_CALLBACK}) {
+            created.put(stage, new LatencyHistogram());
+        }
+        this.latencies = Collections.unmodifiableMap(created);
+    }
+
+    void registerMBean() {
+        try {
+            var name = new ObjectName("io.platir:type=EngineMetrics,name=" + Commons.instanceDirectory().getFileName());
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        } catch (JMException exception) {
+            PlatirEngineCore.logger().log(Level.WARNING, "Can''t register engine metrics to JMX. {0}", exception.getMessage());
+        }
+    }
+
+    @Override
+    public Set<String> getStages() {
+        return latencies.keySet();
+    }
+
+    @Override
+    public LatencyHistogram getLatency(String stage) {
+        return latencies.get(stage);
+    }
+
+    @Override
+    public int getTransactionQueueDepth(Strategy strategy) {
+        var tradingAdapter = engine.getTradingAdapter();
+        return tradingAdapter == null ? 0 : tradingAdapter.getTransactionQueueDepth((StrategyCore) strategy);
+    }
+
+    @Override
+    public int getMarketDataQueueDepth(Strategy strategy) {
+        var marketDataAdapter = engine.getMarketDataAdapter();
+        return marketDataAdapter == null ? 0 : marketDataAdapter.getQueueDepth((StrategyCore) strategy);
+    }
+
+    @Override
+    public long getMarketDataDropCount(Strategy strategy) {
+        var marketDataAdapter = engine.getMarketDataAdapter();
+        return marketDataAdapter == null ? 0L : marketDataAdapter.getDropCount((StrategyCore) strategy);
+    }
+
+    @Override
+    public long getThrottledOrderCount(Strategy strategy) {
+        var tradingAdapter = engine.getTradingAdapter();
+        return tradingAdapter == null ? 0L : tradingAdapter.getThrottledOrderCount((StrategyCore) strategy);
+    }
+
+    @Override
+    public int getTransactionQueueDepth() {
+        var tradingAdapter = engine.getTradingAdapter();
+        return tradingAdapter == null ? 0 : tradingAdapter.getTransactionQueueDepth();
+    }
+
+    @Override
+    public int getMarketDataQueueDepth() {
+        var marketDataAdapter = engine.getMarketDataAdapter();
+        return marketDataAdapter == null ? 0 : marketDataAdapter.getQueueDepth();
+    }
+
+    @Override
+    public long getMarketDataDropCount() {
+        var marketDataAdapter = engine.getMarketDataAdapter();
+        return marketDataAdapter == null ? 0L : marketDataAdapter.getDropCount();
+    }
+
+    @Override
+    public long getThrottledOrderCount() {
+        var tradingAdapter = engine.getTradingAdapter();
+        return tradingAdapter == null ? 0L : tradingAdapter.getThrottledOrderCount();
+    }
+
+    @Override
+    public int getDispatcherActiveCount() {
+        var dispatcher = engine.getDispatcher();
+        return dispatcher == null ? 0 : dispatcher.getActiveCount();
+    }
+
+    @Override
+    public int getDispatcherPoolSize() {
+        var dispatcher = engine.getDispatcher();
+        return dispatcher == null ? 0 : dispatcher.getPoolSize();
+    }
+
+    @Override
+    public int getDispatcherQueueSize() {
+        var dispatcher = engine.getDispatcher();
+        return dispatcher == null ? 0 : dispatcher.getQueueSize();
+    }
+
+    @Override
+    public Map<String, Long> getLatencyCount() {
+        return collect(LatencyHistogram::getCount);
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP50Nanos() {
+        return collect(histogram -> histogram.getPercentileNanos(50D));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP99Nanos() {
+        return collect(histogram -> histogram.getPercentileNanos(99D));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyP999Nanos() {
+        return collect(histogram -> histogram.getPercentileNanos(99.9D));
+    }
+
+    @Override
+    public Map<String, Long> getLatencyMaxNanos() {
+        return collect(LatencyHistogram::getMaxNanos);
+    }
+
+    @Override
+    public void reset() {
+        latencies.values().forEach(LatencyHistogram::reset);
+    }
+
+    private Map<String, Long> collect(ToLongFunction<LatencyHistogram> value) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        latencies.forEach((stage, histogram) -> values.put(stage, value.applyAsLong(histogram)));
+        return values;
+    }
+}
@@ -1,80 +1,98 @@
 package io.platir.engine.core;
 
+import io.platir.Instrument;
 import io.platir.commons.InstrumentCore;
+import io.platir.engine.EngineClock;
 import io.platir.utils.Utils;
 import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Reference data, prices and clock of an engine.
+ * <p>
+ * Nothing here takes a lock. Instruments are published as immutable versioned
+ * snapshots, a latest price is written into its per-instrument slot with a
+ * single volatile store after its time, a new slot is published with both
+ * already set, and settlement prices are replaced as immutable
+ * values. Readers see either the old or the new value and never block
+ * writers.
+ */
 class InfoCenter {
 
-    private static String tradingDay;
-    private static final Object tradingDaySync = new Object();
-    private static final Map<String, SettlementPrice> settlementPrices = new ConcurrentHashMap<>();
-    private static final Map<String, LatestPrice> latestPrices = new ConcurrentHashMap<>();
-    private static final Map<String, InstrumentCore> instruments = new ConcurrentHashMap<>();
+    private volatile String tradingDay;
+    private volatile EngineClock clock = EngineClock.system();
+    private final Map<String, SettlementPrice> settlementPrices = new ConcurrentHashMap<>();
+    private final Map<String, LatestPrice> latestPrices = new ConcurrentHashMap<>();
+    private final Map<String, InstrumentSnapshot> instruments = new ConcurrentHashMap<>();
 
-    static String getTradingDay() throws InsufficientInfoException {
-        synchronized (tradingDaySync) {
-            if (tradingDay == null || tradingDay.compareTo(Utils.date()) < 0) {
-                throw new InsufficientInfoException("No trading day.");
-            }
-            return tradingDay;
-        }
+    EngineClock clock() {
+        return clock;
     }
 
-    static InstrumentCore getInstrument(String instrumentId) throws InsufficientInfoException {
-        synchronized (instruments) {
-            if (!instruments.containsKey(instrumentId)) {
-                throw new InsufficientInfoException("No instrument for " + instrumentId + ".");
-            }
-            return instruments.get(instrumentId);
+    void setClock(EngineClock clock) {
+        this.clock = clock;
+    }
+
+    String getTradingDay() throws InsufficientInfoException {
+        var day = tradingDay;
+        if (day == null || day.compareTo(Utils.date()) < 0) {
+            throw new InsufficientInfoException("No trading day.");
         }
+        return day;
     }
 
-    static Double getSettlementPriceOr(String instrumentId, Double orValue) {
-        synchronized (settlementPrices) {
-            var settlementPrice = settlementPrices.get(instrumentId);
-            if (settlementPrice == null || settlementPrice.getTradingDay().compareTo(Utils.date()) < 0) {
-                return orValue;
-            } else {
-                return settlementPrice.getPrice();
-            }
+    InstrumentSnapshot getInstrument(String instrumentId) throws InsufficientInfoException {
+        var instrument = instruments.get(instrumentId);
+        if (instrument == null) {
+            throw new InsufficientInfoException("No instrument for " + instrumentId + ".");
         }
+        return instrument;
     }
 
-    static Double getLatestPrice(String instrumentId) throws InsufficientInfoException {
-        synchronized (latestPrices) {
-            if (!latestPrices.containsKey(instrumentId)) {
-                throw new InsufficientInfoException("No latest price for " + instrumentId + ".");
-            }
-            return latestPrices.get(instrumentId).getPrice();
+    Double getSettlementPriceOr(String instrumentId, Double orValue) {
+        var settlementPrice = settlementPrices.get(instrumentId);
+        if (settlementPrice == null || settlementPrice.tradingDay.compareTo(Utils.date()) < 0) {
+            return orValue;
+        } else {
+            return settlementPrice.price;
         }
     }
 
-    static void setSettlementPrice(String instrumentId, Double price, String tradingDay) {
-        synchronized (settlementPrices) {
-            var settlementPrice = settlementPrices.computeIfAbsent(instrumentId, key -> new SettlementPrice());
-            settlementPrice.setPrice(price);
-            settlementPrice.setTradingDay(tradingDay);
+    double getLatestPrice(String instrumentId) throws InsufficientInfoException {
+        var latestPrice = latestPrices.get(instrumentId);
+        if (latestPrice == null) {
+            throw new InsufficientInfoException("No latest price for " + instrumentId + ".");
         }
+        return latestPrice.price;
     }
 
-    static void setLatestPrice(String instrumentId, Double price) {
-        synchronized (latestPrices) {
-            var latestPrice = latestPrices.computeIfAbsent(instrumentId, key -> new LatestPrice());
-            latestPrice.setPrice(price);
-            latestPrice.setUpdateDateTime(Utils.datetime());
+    void setSettlementPrice(String instrumentId, Double price, String tradingDay) {
+        var settlementPrice = settlementPrices.get(instrumentId);
+        if (settlementPrice != null && settlementPrice.price.equals(price) && settlementPrice.tradingDay.equals(tradingDay)) {
+            /* Snapshots repeat the settlement price, don't republish it. */
+            return;
         }
+        settlementPrices.put(instrumentId, new SettlementPrice(price, tradingDay));
     }
 
-    static void setInstrument(InstrumentCore instrument) {
-        synchronized (instruments) {
-            if (instrument != null) {
-                instruments.put(instrument.getInstrumentId(), instrument);
+    void setLatestPrice(String instrumentId, double price) {
+        var updateMicros = clock.epochMicros();
+        var latestPrice = latestPrices.get(instrumentId);
+        if (latestPrice == null) {
+            latestPrice = latestPrices.putIfAbsent(instrumentId, new LatestPrice(price, updateMicros));
+            if (latestPrice == null) {
+                return;
             }
         }
+        latestPrice.update(price, updateMicros);
+    }
+
+    void setInstrument(Instrument instrument) {
+        if (instrument != null) {
+            instruments.compute(instrument.getInstrumentId(), (key, old) -> new InstrumentSnapshot(instrument, old == null ? 1L : old.getVersion() + 1));
+        }
     }
 
     /**
@@ -85,23 +103,26 @@ class InfoCenter {
      *
      * @param day trading day string
      */
-    static void setTradingDay(String day) {
-        synchronized (tradingDaySync) {
-            tradingDay = day;
-        }
+    void setTradingDay(String day) {
+        tradingDay = day;
     }
 
-    static void read(File file) {
+    void read(File file) {
         var info = Utils.readJson(file, WritableInfo.class);
         setTradingDay(info.tradingDay);
         info.instruments.values().forEach(instrument -> setInstrument(instrument));
     }
 
-    static void write(File file) {
+    void write(File file) {
         var info = new WritableInfo();
         info.tradingDay = tradingDay;
-        info.instruments.putAll(instruments);
-        info.latestPrices.putAll(latestPrices);
+        instruments.forEach((instrumentId, instrument) -> info.instruments.put(instrumentId, instrument.toCore()));
+        latestPrices.forEach((instrumentId, latestPrice) -> {
+            var price = new WritableLatestPrice();
+            price.price = latestPrice.price;
+            price.updateDateTime = Utils.datetime(latestPrice.updateMicros);
+            info.latestPrices.put(instrumentId, price);
+        });
         info.settlementPrices.putAll(settlementPrices);
         Utils.writeJson(file, info);
     }
@@ -110,53 +131,41 @@ class InfoCenter {
 
         String tradingDay;
         Map<String, SettlementPrice> settlementPrices = new HashMap<>();
-        Map<String, LatestPrice> latestPrices = new HashMap<>();
+        Map<String, WritableLatestPrice> latestPrices = new HashMap<>();
         Map<String, InstrumentCore> instruments = new HashMap<>();
     }
 
-    private static class SettlementPrice {
-
-        private Double price;
-        private String tradingDay;
+    private static class WritableLatestPrice {
 
-        public Double getPrice() {
-            return price;
-        }
+        Double price;
+        String updateDateTime;
+    }
 
-        public void setPrice(Double price) {
-            this.price = price;
-        }
+    private static class SettlementPrice {
 
-        public String getTradingDay() {
-            return tradingDay;
-        }
+        private final Double price;
+        private final String tradingDay;
 
-        public void setTradingDay(String tradingDay) {
+        SettlementPrice(Double price, String tradingDay) {
+            this.price = price;
             this.tradingDay = tradingDay;
         }
-
     }
 
     private static class LatestPrice {
 
-        private Double price;
-        private String updateDateTime;
+        /* Written before the price, and visible after the price is read. */
+        private long updateMicros;
+        private volatile double price;
 
-        public Double getPrice() {
-            return price;
-        }
-
-        public void setPrice(Double price) {
+        LatestPrice(double price, long updateMicros) {
+            this.updateMicros = updateMicros;
             this.price = price;
         }
 
-        public String getUpdateTime() {
-            return updateDateTime;
-        }
-
-        public void setUpdateDateTime(String updateTime) {
-            this.updateDateTime = updateTime;
+        void update(double price, long updateMicros) {
+            this.updateMicros = updateMicros;
+            this.price = price;
         }
-
     }
 }
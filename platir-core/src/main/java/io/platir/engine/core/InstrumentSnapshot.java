@@ -0,0 +1,93 @@
+package io.platir.engine.core;
+
+import io.platir.Instrument;
+import io.platir.commons.InstrumentCore;
+
+/**
+ * Immutable instrument published by {@linkplain InfoCenter}.
+ * <p>
+ * Every update of an instrument publishes a new snapshot with the next
+ * version, so readers holding a snapshot see consistent values and can tell
+ * whether the instrument has changed since.
+ */
+final class InstrumentSnapshot implements Instrument {
+
+    private final String instrumentId;
+    private final String exchangeId;
+    private final Double multiple;
+    private final Double commissionByQuantity;
+    private final Double commissionByAmount;
+    private final Double marginByQuantity;
+    private final Double marginByAmount;
+    private final String updateDatetime;
+    private final long version;
+
+    InstrumentSnapshot(Instrument instrument, long version) {
+        this.instrumentId = instrument.getInstrumentId();
+        this.exchangeId = instrument.getExchangeId();
+        this.multiple = instrument.getMultiple();
+        this.commissionByQuantity = instrument.getCommissionByQuantity();
+        this.commissionByAmount = instrument.getCommissionByAmount();
+        this.marginByQuantity = instrument.getMarginByQuantity();
+        this.marginByAmount = instrument.getMarginByAmount();
+        this.updateDatetime = instrument.getUpdateDatetime();
+        this.version = version;
+    }
+
+    long getVersion() {
+        return version;
+    }
+
+    InstrumentCore toCore() {
+        var instrument = new InstrumentCore();
+        instrument.setInstrumentId(instrumentId);
+        instrument.setExchangeId(exchangeId);
+        instrument.setMultiple(multiple);
+        instrument.setCommissionByQuantity(commissionByQuantity);
+        instrument.setCommissionByAmount(commissionByAmount);
+        instrument.setMarginByQuantity(marginByQuantity);
+        instrument.setMarginByAmount(marginByAmount);
+        instrument.setUpdateDatetime(updateDatetime);
+        return instrument;
+    }
+
+    @Override
+    public String getInstrumentId() {
+        return instrumentId;
+    }
+
+    @Override
+    public String getExchangeId() {
+        return exchangeId;
+    }
+
+    @Override
+    public Double getMultiple() {
+        return multiple;
+    }
+
+    @Override
+    public Double getMarginByAmount() {
+        return marginByAmount;
+    }
+
+    @Override
+    public Double getMarginByQuantity() {
+        return marginByQuantity;
+    }
+
+    @Override
+    public Double getCommissionByAmount() {
+        return commissionByAmount;
+    }
+
+    @Override
+    public Double getCommissionByQuantity() {
+        return commissionByQuantity;
+    }
+
+    @Override
+    public String getUpdateDatetime() {
+        return updateDatetime;
+    }
+}
@@ -0,0 +1,484 @@
+package io.platir.engine.core;
+
+import io.platir.commons.OrderCore;
+import io.platir.commons.PositionCore;
+import io.platir.commons.PositionListener;
+import io.platir.commons.TradeCore;
+import io.platir.commons.TransactionCore;
+import io.platir.setting.GlobalSetting;
+import io.platir.utils.Utils;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary journal of position changes, transactions, orders and
+ * trades.
+ * <p>
+ * The journal is a series of fixed-size segment files mapped into memory.
+ * Records are encoded under the journal lock into a reused buffer and copied
+ * into the mapping after one bounds check, and a new segment is mapped when
+ * the current one can't hold the record. A writer thread forces the mapping to
+ * disk, so records appended while a force is in progress are committed
+ * together by the next force. The fsync setting decides whether the mapping is
+ * forced and whether the caller waits for it.
+ * <p>
+ * A record is {@code [int length][int crc][long sequence][byte type][fields]}
+ * where the CRC covers the bytes after it. Sequences increase over segments,
+ * and every segment is named by its first sequence. The unused tail of a
+ * segment is zero, so replay stops at the first zero length, or at the first
+ * torn or corrupted record. A journal opened again continues the last
+ * segment after its last intact record, and a new segment is only created
+ * when the last one is full.
+ * <p>
+ * After a settlement, segments whose records are all in the snapshots of
+ * every account are deleted, so replay only reads records since the oldest
+ * snapshot.
+ */
+class Journal implements PositionListener {
+
+    static final byte POSITION = 1;
+    static final byte TRANSACTION = 2;
+    static final byte ORDER = 3;
+    static final byte TRADE = 4;
+
+    private static final int HEADER_SIZE = 8;
+    private static final int BODY_MIN_SIZE = 9;
+    private static final int RECORD_SIZE = 64 * 1024;
+    private static final int SEGMENT_SIZE = 64 * 1024 * 1024;
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final String fsync;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition committed = lock.newCondition();
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32 crc = new CRC32();
+    private final Thread writer;
+    private MappedByteBuffer segment;
+    private long sequence;
+    private long durableSequence;
+    private boolean closed = false;
+
+    private Journal(Path directory, long sequence, String fsync, MappedByteBuffer segment) {
+        this.directory = directory;
+        this.sequence = sequence;
+        this.durableSequence = sequence;
+        this.fsync = fsync;
+        this.segment = segment;
+        /* Start from the opening sequence, or a record appended before the writer runs is never forced. */
+        this.writer = new Thread(() -> write(sequence), "platir-journal");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    static Journal open(Path directory, String fsync) throws IOException {
+        Utils.dir(directory);
+        var files = list(directory);
+        if (files.isEmpty()) {
+            return new Journal(directory, 0L, fsync, map(directory, 1L));
+        }
+        var lastFile = files.get(files.size() - 1);
+        var tail = scanTail(lastFile, (sequence, type, body) -> {
+        });
+        var lastSequence = tail.sequence == 0L ? firstSequence(lastFile) - 1 : tail.sequence;
+        return new Journal(directory, lastSequence, fsync, reopen(lastFile, tail));
+    }
+
+    private static MappedByteBuffer map(Path directory, long firstSequence) throws IOException {
+        var file = directory.resolve(String.format("%020d", firstSequence) + SUFFIX);
+        try (var channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            /* Mapping beyond the end extends the file to the segment size. */
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        }
+    }
+
+    /* Map an existing segment again for writing after its last intact record. */
+    private static MappedByteBuffer reopen(Path file, Tail tail) throws IOException {
+        MappedByteBuffer segment;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, SEGMENT_SIZE);
+        }
+        if (tail.torn) {
+            /* Zero the torn record, so it isn't read after the records written over it. */
+            var end = Math.min(SEGMENT_SIZE, tail.position + HEADER_SIZE + RECORD_SIZE);
+            for (var position = tail.position; position < end; ++position) {
+                segment.put(position, (byte) 0);
+            }
+        }
+        segment.position(tail.position);
+        return segment;
+    }
+
+    /**
+     * List journal files in the order of their sequences.
+     *
+     * @param directory journal directory
+     * @return journal files
+     * @throws IOException if the directory can't be listed
+     */
+    static List<Path> list(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (var paths = Files.list(directory)) {
+            return paths.filter(path -> path.getFileName().toString().endsWith(SUFFIX))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Visit intact records of a journal file in order.
+     * <p>
+     * The file is mapped and scanned in place. The visitor gets the mapping
+     * itself with its position at the record fields and its limit at the
+     * record end, and must not keep it.
+     *
+     * @param file journal file
+     * @param visitor record visitor
+     * @return sequence of the last intact record, or {@code 0} if none
+     * @throws IOException if the file can't be read
+     */
+    static long scan(Path file, RecordVisitor visitor) throws IOException {
+        return scanTail(file, visitor).sequence;
+    }
+
+    private static Tail scanTail(Path file, RecordVisitor visitor) throws IOException {
+        MappedByteBuffer buffer;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        var checksum = new CRC32();
+        var lastSequence = 0L;
+        var end = buffer.limit();
+        var position = 0;
+        var unused = false;
+        while (end - position >= HEADER_SIZE) {
+            var length = buffer.getInt(position);
+            var expected = buffer.getInt(position + 4);
+            var start = position + HEADER_SIZE;
+            if (length == 0 && expected == 0) {
+                /* Unused tail of the segment. */
+                unused = true;
+                break;
+            }
+            if (length < BODY_MIN_SIZE || length > end - start) {
+                break;
+            }
+            buffer.limit(start + length).position(start);
+            checksum.reset();
+            checksum.update(buffer);
+            if ((int) checksum.getValue() != expected) {
+                break;
+            }
+            buffer.position(start);
+            lastSequence = buffer.getLong();
+            visitor.visit(lastSequence, buffer.get(), buffer);
+            buffer.limit(end);
+            position = start + length;
+        }
+        buffer.limit(end);
+        var tail = new Tail();
+        tail.sequence = lastSequence;
+        tail.position = position;
+        if (!unused && end - position >= HEADER_SIZE) {
+            tail.torn = true;
+            PlatirEngineCore.logger().log(Level.WARNING, "Journal {0} has torn or corrupted record at byte {1}.", new Object[]{file.getFileName(), position});
+        }
+        return tail;
+    }
+
+    private static long firstSequence(Path file) {
+        var name = file.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+        } catch (NumberFormatException exception) {
+            return 1L;
+        }
+    }
+
+    /**
+     * Delete segments whose records are all at or before the specified
+     * sequence. The segment being written is kept.
+     *
+     * @param upTo sequence of the last record that is no longer needed
+     * @return number of deleted segments
+     * @throws IOException if a segment can't be deleted
+     */
+    int truncate(long upTo) throws IOException {
+        var files = list(directory);
+        int deleted = 0;
+        for (int index = 0; index + 1 < files.size(); ++index) {
+            /* Last sequence of a segment is one before the first of the next. */
+            if (firstSequence(files.get(index + 1)) - 1 > upTo) {
+                break;
+            }
+            Files.delete(files.get(index));
+            ++deleted;
+        }
+        return deleted;
+    }
+
+    /**
+     * Get sequence of the last appended record.
+     *
+     * @return last sequence
+     */
+    long sequence() {
+        lock.lock();
+        try {
+            return sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onPositionChanged(PositionCore position, int quantity, double amount, double closeAmount) {
+        lock.lock();
+        try {
+            begin(POSITION);
+            putString(position.getAccountId());
+            putString(position.getInstrumentId());
+            putString(position.getExchangeId());
+            putString(position.getDirection());
+            putString(position.getState());
+            putString(position.getOpenTradingDay());
+            record.putLong(position.getOpenMicros());
+            record.putInt(quantity);
+            record.putDouble(amount);
+            record.putDouble(closeAmount);
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void transaction(TransactionCore transaction) {
+        lock.lock();
+        try {
+            begin(TRANSACTION);
+            putString(transaction.getStrategy().getStrategyId());
+            putString(transaction.getTransactionId());
+            putString(transaction.getInstrumentId());
+            putString(transaction.getExchangeId());
+            putDouble(transaction.getPrice());
+            putInteger(transaction.getQuantity());
+            putString(transaction.getDirection());
+            putString(transaction.getOffset());
+            putString(transaction.getState());
+            putString(transaction.getTradingDay());
+            record.putLong(transaction.getUpdateMicros());
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void order(OrderCore order) {
+        lock.lock();
+        try {
+            begin(ORDER);
+            var transaction = order.getTransaction();
+            putString(transaction.getStrategy().getStrategyId());
+            putString(transaction.getTransactionId());
+            putString(order.getOrderId());
+            putString(order.getInstrumentId());
+            putString(order.getExchangeId());
+            putDouble(order.getPrice());
+            putInteger(order.getQuantity());
+            putString(order.getDirection());
+            putString(order.getOffset());
+            putString(order.getState());
+            putString(order.getTradingDay());
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void trade(TradeCore trade) {
+        lock.lock();
+        try {
+            begin(TRADE);
+            var order = trade.getOrder();
+            var transaction = order.getTransaction();
+            putString(transaction.getStrategy().getStrategyId());
+            putString(transaction.getTransactionId());
+            putString(order.getOrderId());
+            putString(trade.getTradeId());
+            putString(trade.getInstrumentId());
+            putString(trade.getExchangeId());
+            putDouble(trade.getPrice());
+            putInteger(trade.getQuantity());
+            putString(trade.getDirection());
+            putString(trade.getOffset());
+            putString(trade.getTradingDay());
+            putString(trade.getUpdateDatetime());
+            commit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void begin(byte type) {
+        record.clear();
+        record.position(HEADER_SIZE);
+        record.putLong(sequence + 1);
+        record.put(type);
+    }
+
+    private void commit() {
+        var length = record.position() - HEADER_SIZE;
+        crc.reset();
+        crc.update(record.array(), HEADER_SIZE, length);
+        record.putInt(0, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        try {
+            if (closed) {
+                PlatirEngineCore.logger().log(Level.SEVERE, "Journal is closed, record {0} is lost.", sequence + 1);
+                return;
+            }
+            if (segment.remaining() < record.remaining()) {
+                roll();
+            }
+            segment.put(record);
+            var appended = ++sequence;
+            if (!fsync.equals(GlobalSetting.JOURNAL_FSYNC_NONE)) {
+                notEmpty.signal();
+            }
+            if (fsync.equals(GlobalSetting.JOURNAL_FSYNC_SYNC)) {
+                while (durableSequence < appended) {
+                    committed.await();
+                }
+            }
+        } catch (IOException exception) {
+            PlatirEngineCore.logger().log(Level.SEVERE, "Can''t map journal segment, record {0} is lost. {1}", new Object[]{sequence + 1, exception.getMessage()});
+        } catch (InterruptedException exception) {
+            PlatirEngineCore.logger().log(Level.WARNING, "Journal append is interrupted.");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void roll() throws IOException {
+        if (!fsync.equals(GlobalSetting.JOURNAL_FSYNC_NONE)) {
+            segment.force();
+        }
+        segment = map(directory, sequence + 1);
+        durableSequence = sequence;
+        committed.signalAll();
+    }
+
+    private void write(long forcedSequence) {
+        while (true) {
+            MappedByteBuffer forcing;
+            long upTo;
+            lock.lock();
+            try {
+                while (sequence == forcedSequence && !closed) {
+                    notEmpty.awaitUninterruptibly();
+                }
+                if (sequence == forcedSequence) {
+                    return;
+                }
+                forcing = segment;
+                upTo = sequence;
+            } finally {
+                lock.unlock();
+            }
+            if (!fsync.equals(GlobalSetting.JOURNAL_FSYNC_NONE)) {
+                /* Records of the previous segment are forced when it rolls. */
+                forcing.force();
+            }
+            forcedSequence = upTo;
+            lock.lock();
+            try {
+                durableSequence = Math.max(durableSequence, upTo);
+                committed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void putString(String value) {
+        if (value == null) {
+            record.putInt(-1);
+        } else {
+            var bytes = value.getBytes(StandardCharsets.UTF_8);
+            record.putInt(bytes.length);
+            record.put(bytes);
+        }
+    }
+
+    private void putDouble(Double value) {
+        record.putDouble(value == null ? Double.NaN : value);
+    }
+
+    private void putInteger(Integer value) {
+        record.putInt(value == null ? Integer.MIN_VALUE : value);
+    }
+
+    static String getString(ByteBuffer body) {
+        var length = body.getInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    static Double getDouble(ByteBuffer body) {
+        var value = body.getDouble();
+        return Double.isNaN(value) ? null : value;
+    }
+
+    static Integer getInteger(ByteBuffer body) {
+        var value = body.getInt();
+        return value == Integer.MIN_VALUE ? null : value;
+    }
+
+    /* End of the intact records of a segment. */
+    private static class Tail {
+
+        private long sequence;
+        private int position;
+        private boolean torn;
+    }
+
+    @FunctionalInterface
+    interface RecordVisitor {
+
+        void visit(long sequence, byte type, ByteBuffer body);
+    }
+}
@@ -0,0 +1,225 @@
+package io.platir.engine.core;
+
+import io.platir.commons.AccountCore;
+import io.platir.commons.OrderCore;
+import io.platir.commons.StrategyCore;
+import io.platir.commons.TradeCore;
+import io.platir.commons.TransactionCore;
+import io.platir.commons.UserCore;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+
+/**
+ * Apply journal records on top of reloaded user snapshots.
+ * <p>
+ * A record is applied only if its sequence is after the journal sequence
+ * saved in the snapshot of the owner account, so changes already in the
+ * snapshot are not applied twice. Call it before the journal listens to the
+ * reloaded accounts, or the replayed changes are journaled again.
+ * <p>
+ * Records are read in place from the mapped journal, and the strings in them
+ * are decoded through a cache because the same IDs and states repeat in many
+ * records.
+ */
+class JournalReplay {
+
+    private final Map<String, AccountCore> accounts = new HashMap<>();
+    private final Map<String, StrategyCore> strategies = new HashMap<>();
+    private final StringCache strings = new StringCache();
+    private int appliedCount = 0;
+    private int skippedCount = 0;
+
+    JournalReplay(Set<UserCore> users) {
+        users.forEach(user -> {
+            user.accounts().values().forEach(account -> {
+                accounts.put(account.getAccountId(), account);
+                account.strategies().values().forEach(strategy -> strategies.put(strategy.getStrategyId(), strategy));
+            });
+        });
+    }
+
+    void replay(Path directory) throws IOException {
+        for (var file : Journal.list(directory)) {
+            try {
+                Journal.scan(file, this::apply);
+            } catch (NoSuchFileException exception) {
+                /* Deleted after listing, its records are all in snapshots. */
+            }
+        }
+        PlatirEngineCore.logger().log(Level.INFO, "Journal replay applied {0} records and skipped {1} records of unknown accounts or strategies.", new Object[]{appliedCount, skippedCount});
+    }
+
+    private void apply(long sequence, byte type, ByteBuffer body) {
+        switch (type) {
+            case Journal.POSITION:
+                applyPosition(sequence, body);
+                break;
+            case Journal.TRANSACTION:
+                applyTransaction(sequence, body);
+                break;
+            case Journal.ORDER:
+                applyOrder(sequence, body);
+                break;
+            case Journal.TRADE:
+                applyTrade(sequence, body);
+                break;
+            default:
+                PlatirEngineCore.logger().log(Level.WARNING, "Unknown journal record type {0} at sequence {1}.", new Object[]{type, sequence});
+                break;
+        }
+    }
+
+    private boolean isApplicable(AccountCore account, long sequence) {
+        if (account == null) {
+            ++skippedCount;
+            return false;
+        }
+        var snapshotSequence = account.getJournalSequence();
+        if (snapshotSequence != null && sequence <= snapshotSequence) {
+            return false;
+        }
+        ++appliedCount;
+        return true;
+    }
+
+    private void applyPosition(long sequence, ByteBuffer body) {
+        var accountId = strings.get(body);
+        var account = accounts.get(accountId);
+        if (!isApplicable(account, sequence)) {
+            return;
+        }
+        var instrumentId = strings.get(body);
+        var exchangeId = strings.get(body);
+        var direction = strings.get(body);
+        var state = strings.get(body);
+        var openTradingDay = strings.get(body);
+        var openMicros = body.getLong();
+        var quantity = body.getInt();
+        var amount = body.getDouble();
+        var closeAmount = body.getDouble();
+        account.positions().apply(accountId, instrumentId, exchangeId, direction, state, openTradingDay, openMicros, quantity, amount, closeAmount);
+    }
+
+    private TransactionCore findTransaction(long sequence, String strategyId, String transactionId) {
+        var strategy = strategies.get(strategyId);
+        if (!isApplicable(strategy == null ? null : strategy.getAccount(), sequence)) {
+            return null;
+        }
+        return strategy.transactions().computeIfAbsent(transactionId, key -> {
+            var transaction = new TransactionCore();
+            transaction.setTransactionId(key);
+            transaction.setStrategy(strategy);
+            return transaction;
+        });
+    }
+
+    private OrderCore findOrder(TransactionCore transaction, String orderId) {
+        return transaction.orders().computeIfAbsent(orderId, key -> {
+            var order = new OrderCore();
+            order.setOrderId(key);
+            order.setTransaction(transaction);
+            return order;
+        });
+    }
+
+    private void applyTransaction(long sequence, ByteBuffer body) {
+        var strategyId = strings.get(body);
+        var transaction = findTransaction(sequence, strategyId, strings.get(body));
+        if (transaction == null) {
+            return;
+        }
+        transaction.setInstrumentId(strings.get(body));
+        transaction.setExchangeId(strings.get(body));
+        transaction.setPrice(Journal.getDouble(body));
+        transaction.setQuantity(Journal.getInteger(body));
+        transaction.setDirection(strings.get(body));
+        transaction.setOffset(strings.get(body));
+        transaction.setState(strings.get(body));
+        transaction.setTradingDay(strings.get(body));
+        transaction.setUpdateMicros(body.getLong());
+    }
+
+    private void applyOrder(long sequence, ByteBuffer body) {
+        var strategyId = strings.get(body);
+        var transaction = findTransaction(sequence, strategyId, strings.get(body));
+        if (transaction == null) {
+            return;
+        }
+        var order = findOrder(transaction, strings.get(body));
+        order.setInstrumentId(strings.get(body));
+        order.setExchangeId(strings.get(body));
+        order.setPrice(Journal.getDouble(body));
+        order.setQuantity(Journal.getInteger(body));
+        order.setDirection(strings.get(body));
+        order.setOffset(strings.get(body));
+        order.setState(strings.get(body));
+        order.setTradingDay(strings.get(body));
+    }
+
+    private void applyTrade(long sequence, ByteBuffer body) {
+        var strategyId = strings.get(body);
+        var transaction = findTransaction(sequence, strategyId, strings.get(body));
+        if (transaction == null) {
+            return;
+        }
+        var order = findOrder(transaction, strings.get(body));
+        var trade = new TradeCore();
+        trade.setTradeId(strings.get(body));
+        trade.setInstrumentId(strings.get(body));
+        trade.setExchangeId(strings.get(body));
+        trade.setPrice(Journal.getDouble(body));
+        trade.setQuantity(Journal.getInteger(body));
+        trade.setDirection(strings.get(body));
+        trade.setOffset(strings.get(body));
+        trade.setTradingDay(strings.get(body));
+        trade.setUpdateDatetime(strings.get(body));
+        trade.setOrder(order);
+        order.trades().putIfAbsent(trade.getTradeId(), trade);
+    }
+
+    /**
+     * Direct-mapped cache of decoded strings. The bytes of a string are read
+     * into a reused buffer, and the cached string is returned without
+     * allocation if the slot holds the same bytes.
+     */
+    private static class StringCache {
+
+        private static final int CAPACITY = 1 << 16;
+
+        private final byte[][] keys = new byte[CAPACITY][];
+        private final String[] values = new String[CAPACITY];
+        private byte[] scratch = new byte[256];
+
+        String get(ByteBuffer body) {
+            var length = body.getInt();
+            if (length < 0) {
+                return null;
+            }
+            if (scratch.length < length) {
+                scratch = new byte[length];
+            }
+            body.get(scratch, 0, length);
+            int hash = 1;
+            for (int index = 0; index < length; ++index) {
+                hash = 31 * hash + scratch[index];
+            }
+            var slot = (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+            var key = keys[slot];
+            if (key != null && Arrays.equals(key, 0, key.length, scratch, 0, length)) {
+                return values[slot];
+            }
+            var value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            keys[slot] = Arrays.copyOf(scratch, length);
+            values[slot] = value;
+            return value;
+        }
+    }
+}
@@ -18,7 +18,8 @@ class LoadStrategyJob implements TimerJob {
 
     @Override
     public void onTime(LocalDateTime datetime, EngineTimer timer) {
-        if (datetime.compareTo(strategy.getStrategySetting().getLoadDatetime()) < 0) {
+        var loadDatetime = strategy.getStrategySetting().getLoadDatetime();
+        if (loadDatetime == null || datetime.compareTo(loadDatetime) < 0) {
             return;
         }
         try {
@@ -31,6 +32,13 @@ class LoadStrategyJob implements TimerJob {
 
     }
 
+    @Override
+    public LocalDateTime nextTime(LocalDateTime datetime) {
+        var loadDatetime = strategy.getStrategySetting().getLoadDatetime();
+        /* Load datetime can be set later and doesn't tell the timer, so poll until it is set. */
+        return loadDatetime != null ? loadDatetime : TimerJob.super.nextTime(datetime);
+    }
+
     private void callbackOnload() {
         var userStrategyManager = engine.getUserStrategyManager();
         try {
@@ -0,0 +1,409 @@
+package io.platir.engine.core;
+
+import io.platir.utils.Utils;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Log records of the engine and all strategies in one series of segment
+ * files.
+ * <p>
+ * A record is a header line of its body length and the user, account and
+ * strategy IDs separated by tabs, followed by the formatted body. Only the
+ * newest segment is open, and it rolls over when it reaches the segment size,
+ * {@value #SEGMENT_SIZE} bytes by default, so the number of open files doesn't
+ * depend on the number of strategies. Offsets of every strategy's records are kept in
+ * memory for the open segment and written to an index file beside the
+ * segment when it rolls, so records of a strategy are read without scanning
+ * the segments. A segment left without index by a crash is scanned once when
+ * the store opens. When a segment rolls over, the oldest segments beyond the
+ * configured count are deleted with their indexes.
+ * <p>
+ * Records are appended by the logging thread only, and read by any thread.
+ * A reader takes the segment list and the offsets of the open segment under
+ * the store lock and reads the files without it, so reading a long history
+ * doesn't stall the logging thread.
+ */
+class LogStore {
+
+    private static final long SEGMENT_SIZE = 64L * 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String INDEX_SUFFIX = ".index";
+    private static final int HEADER_READ_SIZE = 4096;
+
+    private final Path directory;
+    private final int segmentCount;
+    private final long segmentSize;
+    private Map<String /* StrategyId */, Offsets> index = new HashMap<>();
+    private Path segmentPath;
+    private long segmentNumber;
+    private OutputStream segment;
+    private long position;
+    private long unflushedBytes = 0;
+    private long unflushedSince = 0;
+
+    private LogStore(Path directory, long segmentNumber, int segmentCount, long segmentSize) {
+        this.directory = directory;
+        this.segmentCount = segmentCount;
+        this.segmentSize = segmentSize;
+        this.segmentNumber = segmentNumber;
+        this.segmentPath = segmentPath(directory, segmentNumber);
+    }
+
+    static LogStore open(Path directory, int segmentCount) throws IOException {
+        return open(directory, segmentCount, SEGMENT_SIZE);
+    }
+
+    static LogStore open(Path directory, int segmentCount, long segmentSize) throws IOException {
+        Utils.dir(directory);
+        var segments = listSegments(directory);
+        if (segments.isEmpty()) {
+            var store = new LogStore(directory, 1, segmentCount, segmentSize);
+            store.openSegment(0L);
+            return store;
+        }
+        for (int i = 0; i < segments.size() - 1; ++i) {
+            if (!Files.exists(indexPath(segments.get(i)))) {
+                var offsets = new HashMap<String, Offsets>();
+                scan(segments.get(i), offsets);
+                writeIndex(segments.get(i), offsets);
+            }
+        }
+        var last = segments.get(segments.size() - 1);
+        if (Files.exists(indexPath(last))) {
+            /* Crashed after the index is written, the segment is complete. */
+            var store = new LogStore(directory, segmentNumber(last) + 1, segmentCount, segmentSize);
+            store.openSegment(0L);
+            store.deleteOldSegments();
+            return store;
+        }
+        var store = new LogStore(directory, segmentNumber(last), segmentCount, segmentSize);
+        store.openSegment(scan(last, store.index));
+        store.deleteOldSegments();
+        return store;
+    }
+
+    synchronized void append(String userId, String accountId, String strategyId, String text) throws IOException {
+        var body = text.getBytes(StandardCharsets.UTF_8);
+        var header = ("@" + body.length + "\t" + tag(userId) + "\t" + tag(accountId) + "\t" + tag(strategyId) + "\n").getBytes(StandardCharsets.UTF_8);
+        if (position > 0 && position + header.length + body.length > segmentSize) {
+            roll();
+        }
+        index.computeIfAbsent(tag(strategyId), key -> new Offsets()).add(position);
+        segment.write(header);
+        segment.write(body);
+        position += header.length + body.length;
+        if (unflushedBytes == 0) {
+            unflushedSince = System.currentTimeMillis();
+        }
+        unflushedBytes += header.length + body.length;
+    }
+
+    /**
+     * Flush the open segment if the specified bytes are pending or the
+     * oldest pending record is older than the specified time.
+     *
+     * @param maxBytes maximum pending bytes
+     * @param maxMillis maximum pending time in milliseconds
+     * @param nowMillis current time in milliseconds
+     * @throws IOException if the segment can't be written
+     */
+    synchronized void flush(long maxBytes, long maxMillis, long nowMillis) throws IOException {
+        if (unflushedBytes > 0 && (unflushedBytes >= maxBytes || nowMillis - unflushedSince >= maxMillis)) {
+            flush();
+        }
+    }
+
+    synchronized void close() throws IOException {
+        flush();
+        segment.close();
+    }
+
+    /**
+     * Read a page of formatted records of the specified strategy in the order
+     * they are appended, counted back from the newest record. Records of the
+     * engine have empty strategy ID.
+     *
+     * @param strategyId strategy ID
+     * @param skip number of newest records skipped
+     * @param limit maximum number of records
+     * @return formatted records
+     * @throws IOException if a segment can't be read
+     */
+    List<String> read(String strategyId, int skip, int limit) throws IOException {
+        List<Path> segments;
+        Path current;
+        long[] currentOffsets;
+        synchronized (this) {
+            flush();
+            segments = listSegments(directory);
+            current = segmentPath;
+            var offsets = index.get(strategyId);
+            currentOffsets = offsets == null ? new long[0] : offsets.toArray();
+        }
+        /* Collect offsets from the newest segment back until the page is covered. */
+        var wanted = (long) Math.max(0, skip) + Math.max(0, limit);
+        List<Map.Entry<Path, long[]>> found = new ArrayList<>();
+        long count = 0;
+        for (int i = segments.size() - 1; i >= 0 && count < wanted; --i) {
+            var path = segments.get(i);
+            long[] offsets;
+            try {
+                offsets = path.equals(current) ? currentOffsets : readIndex(path, strategyId);
+            } catch (NoSuchFileException exception) {
+                /* Deleted after listing, and the older segments too. */
+                break;
+            }
+            if (offsets.length > 0) {
+                found.add(Map.entry(path, offsets));
+                count += offsets.length;
+            }
+        }
+        var records = new ArrayList<String>();
+        var first = Math.max(0L, count - wanted);
+        var end = count - Math.max(0, skip);
+        long start = 0;
+        for (int i = found.size() - 1; i >= 0; --i) {
+            var offsets = found.get(i).getValue();
+            var from = (int) Math.max(0L, first - start);
+            var to = (int) Math.min(offsets.length, end - start);
+            start += offsets.length;
+            if (from >= to) {
+                continue;
+            }
+            try (var channel = FileChannel.open(found.get(i).getKey(), StandardOpenOption.READ)) {
+                for (int j = from; j < to; ++j) {
+                    records.add(readRecord(channel, offsets[j]));
+                }
+            } catch (NoSuchFileException exception) {
+                /* Deleted after its index is read. */
+            }
+        }
+        return records;
+    }
+
+    private void flush() throws IOException {
+        segment.flush();
+        unflushedBytes = 0;
+    }
+
+    private void roll() throws IOException {
+        close();
+        writeIndex(segmentPath, index);
+        index = new HashMap<>();
+        segmentPath = segmentPath(directory, ++segmentNumber);
+        openSegment(0L);
+        deleteOldSegments();
+    }
+
+    /* Delete the segment first, so no segment is ever left without index. */
+    private void deleteOldSegments() throws IOException {
+        if (segmentCount <= 0) {
+            return;
+        }
+        var segments = listSegments(directory);
+        for (int i = 0; i < segments.size() - segmentCount; ++i) {
+            Files.deleteIfExists(segments.get(i));
+            Files.deleteIfExists(indexPath(segments.get(i)));
+        }
+    }
+
+    private void openSegment(long length) throws IOException {
+        /* Cut a record torn by a crash, so the new records start at a header. */
+        try (var channel = FileChannel.open(segmentPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            channel.truncate(length);
+        }
+        position = length;
+        segment = new BufferedOutputStream(new FileOutputStream(segmentPath.toFile(), true), BUFFER_SIZE);
+    }
+
+    /* Tabs and new lines would break the header. */
+    private static String tag(String id) {
+        return id == null ? "" : id.replace('\t', ' ').replace('\n', ' ');
+    }
+
+    private static String readRecord(FileChannel channel, long offset) throws IOException {
+        var buffer = ByteBuffer.allocate(HEADER_READ_SIZE);
+        channel.read(buffer, offset);
+        buffer.flip();
+        var headerLength = headerLength(buffer);
+        var header = parseHeader(new String(buffer.array(), 0, headerLength - 1, StandardCharsets.UTF_8));
+        var body = new byte[Integer.parseInt(header[0])];
+        var buffered = Math.min(body.length, buffer.limit() - headerLength);
+        System.arraycopy(buffer.array(), headerLength, body, 0, buffered);
+        var rest = ByteBuffer.wrap(body, buffered, body.length - buffered);
+        while (rest.hasRemaining()) {
+            if (channel.read(rest, offset + headerLength + rest.position()) < 0) {
+                throw new EOFException("Truncated log record at " + offset + ".");
+            }
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    /* Length of the header line including the new line. */
+    private static int headerLength(ByteBuffer buffer) throws IOException {
+        for (int index = 0; index < buffer.limit(); ++index) {
+            if (buffer.get(index) == '\n') {
+                return index + 1;
+            }
+        }
+        throw new IOException("Log record header is longer than " + HEADER_READ_SIZE + " bytes.");
+    }
+
+    /* Collect offsets of complete records and return the end of the last one. */
+    private static long scan(Path path, Map<String, Offsets> offsets) throws IOException {
+        long position = 0;
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER_SIZE))) {
+            var size = Files.size(path);
+            while (position < size) {
+                var line = readLine(input);
+                if (line == null) {
+                    break;
+                }
+                String[] header;
+                int length;
+                try {
+                    header = parseHeader(line);
+                    length = Integer.parseInt(header[0]);
+                } catch (IOException | NumberFormatException exception) {
+                    break;
+                }
+                var end = position + line.length + 1 + length;
+                if (end > size) {
+                    /* Torn record at the end. */
+                    break;
+                }
+                input.skipBytes(length);
+                offsets.computeIfAbsent(header[3], key -> new Offsets()).add(position);
+                position = end;
+            }
+        }
+        return position;
+    }
+
+    private static byte[] readLine(DataInputStream input) throws IOException {
+        var line = new ByteArrayOutputStream(128);
+        while (true) {
+            int next = input.read();
+            if (next == -1) {
+                return null;
+            }
+            if (next == '\n') {
+                return line.toByteArray();
+            }
+            line.write(next);
+        }
+    }
+
+    private static String[] parseHeader(byte[] line) throws IOException {
+        return parseHeader(new String(line, StandardCharsets.UTF_8));
+    }
+
+    private static String[] parseHeader(String line) throws IOException {
+        if (!line.startsWith("@")) {
+            throw new IOException("Invalid log record header: " + line + ".");
+        }
+        var fields = line.substring(1).split("\t", -1);
+        if (fields.length != 4) {
+            throw new IOException("Invalid log record header: " + line + ".");
+        }
+        return fields;
+    }
+
+    private static void writeIndex(Path segmentPath, Map<String, Offsets> index) throws IOException {
+        var temporary = Path.of(indexPath(segmentPath) + ".tmp");
+        try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), BUFFER_SIZE))) {
+            output.writeInt(index.size());
+            for (var entry : index.entrySet()) {
+                output.writeUTF(entry.getKey());
+                var offsets = entry.getValue().toArray();
+                output.writeInt(offsets.length);
+                for (var offset : offsets) {
+                    output.writeLong(offset);
+                }
+            }
+        }
+        Files.move(temporary, indexPath(segmentPath), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static long[] readIndex(Path segmentPath, String strategyId) throws IOException {
+        try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexPath(segmentPath)), BUFFER_SIZE))) {
+            var count = input.readInt();
+            for (int i = 0; i < count; ++i) {
+                var key = input.readUTF();
+                var length = input.readInt();
+                if (key.equals(strategyId)) {
+                    var offsets = new long[length];
+                    for (int j = 0; j < length; ++j) {
+                        offsets[j] = input.readLong();
+                    }
+                    return offsets;
+                }
+                input.skipBytes(8 * length);
+            }
+            return new long[0];
+        } catch (EOFException exception) {
+            throw new IOException("Truncated log index of " + segmentPath + ".", exception);
+        }
+    }
+
+    private static List<Path> listSegments(Path directory) throws IOException {
+        try (var stream = Files.list(directory)) {
+            return stream.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static Path segmentPath(Path directory, long segmentNumber) {
+        return directory.resolve(String.format("%020d", segmentNumber) + SEGMENT_SUFFIX);
+    }
+
+    private static Path indexPath(Path segmentPath) {
+        var name = segmentPath.getFileName().toString();
+        return segmentPath.resolveSibling(name.substring(0, name.length() - SEGMENT_SUFFIX.length()) + INDEX_SUFFIX);
+    }
+
+    private static long segmentNumber(Path segmentPath) {
+        var name = segmentPath.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /* Growable array of record offsets of one strategy. */
+    private static class Offsets {
+
+        private long[] offsets = new long[16];
+        private int size = 0;
+
+        void add(long offset) {
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+            }
+            offsets[size++] = offset;
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(offsets, size);
+        }
+    }
+}
@@ -1,71 +1,298 @@
 package io.platir.engine.core;
 
 import io.platir.LoggingListener;
-import io.platir.commons.StrategyCore;
-import io.platir.utils.Utils;
+import io.platir.setting.GlobalSetting;
 import java.io.IOException;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentSkipListSet;
-import java.util.logging.FileHandler;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
-import java.util.logging.SimpleFormatter;
 
+/**
+ * Logging handler of the engine and all strategies that queues records for
+ * its logging thread instead of writing them on the caller's thread.
+ * <p>
+ * Records are put into a bounded ring by any number of threads and taken by
+ * the logging thread in batches of {@value #BATCH_SIZE}. The logging thread
+ * finds the source of a record by its logger name, calls the listeners of the
+ * source and appends the record to the {@linkplain LogStore} tagged with the
+ * user, account and strategy IDs of the source. The store is flushed when
+ * {@value #FLUSH_BYTES} bytes are pending or the oldest pending record is
+ * {@value #FLUSH_MILLIS} ms old. When the ring is full, the overflow setting
+ * decides whether the record is dropped or the caller waits, and the number
+ * of dropped records is logged.
+ * <p>
+ * The caller of a record is never inferred, because that walks the stack of
+ * the logging thread. Stored records name their logger as the source.
+ */
 class LoggingDispatcher extends Handler {
 
-    private final FileHandler file;
-    private final Set<LoggingListener> listeners = new ConcurrentSkipListSet<>();
+    private static final int BATCH_SIZE = 256;
+    private static final long FLUSH_MILLIS = 200L;
+    private static final int FLUSH_BYTES = 64 * 1024;
+    private static final long BLOCK_NANOS = 100_000L;
 
-    LoggingDispatcher(Set<LoggingListener> listeners) {
-        this.listeners.addAll(listeners);
-        file = getDefaultFileHandler(null);
+    private final LogStore store;
+    private final String overflow;
+    private final AtomicReferenceArray<LogRecord> ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(0);
+    private final LongAdder dropCount = new LongAdder();
+    private final Map<String /* LoggerName */, LogSource> sources = new ConcurrentHashMap<>();
+    private final LogSource unknownSource = new LogSource("", "", "", Set.of());
+    private final Thread writer;
+    private volatile long head = 0;
+    private volatile boolean waiting = false;
+    private volatile boolean closed = false;
+
+    /* Only touched by the logging thread. */
+    private long reportedDropCount = 0;
+
+    LoggingDispatcher(LogStore store, int capacity, String overflow) {
+        this.store = store;
+        this.overflow = overflow;
+        this.ring = new AtomicReferenceArray<>(ringSize(capacity));
+        this.mask = ring.length() - 1;
+        setFormatter(new StoreFormatter());
+        this.writer = new Thread(this::write, "platir-logging");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        /* Daemon thread, write what is left before the JVM exits. */
+        Runtime.getRuntime().addShutdownHook(new Thread(this::close, "platir-logging-shutdown"));
+    }
+
+    private static int ringSize(int capacity) {
+        var size = 1;
+        while (size < capacity && size < (1 << 30)) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Tag records of the specified logger with the IDs, and pass them to the
+     * listeners. Registering a logger again replaces its listeners.
+     */
+    void register(String loggerName, String userId, String accountId, String strategyId, Set<LoggingListener> listeners) {
+        var source = sources.get(loggerName);
+        if (source == null) {
+            source = sources.computeIfAbsent(loggerName, key -> new LogSource(userId, accountId, strategyId, listeners));
+        }
+        source.setListeners(listeners);
     }
 
-    LoggingDispatcher(StrategyCore strategy) {
-        this.listeners.addAll(strategy.getStrategySetting().getLoggingListeners());
-        file = getDefaultFileHandler(strategy);
+    long getDropCount() {
+        return dropCount.sum();
     }
 
     @Override
     public void publish(LogRecord record) {
-        listeners.parallelStream().forEach(listener -> listener.onLog(record));
-        if (file != null) {
-            file.publish(record);
-            file.flush();
+        if (closed || !isLoggable(record)) {
+            return;
+        }
+        while (!offer(record)) {
+            if (!overflow.equals(GlobalSetting.LOGGING_BLOCK) || closed || Thread.currentThread() == writer) {
+                dropCount.increment();
+                return;
+            }
+            wakeUp();
+            LockSupport.parkNanos(BLOCK_NANOS);
         }
+        wakeUp();
     }
 
     @Override
     public void flush() {
     }
 
+    /**
+     * Stop taking records, and wait a while for the logging thread to write
+     * the queued records and close the store.
+     */
     @Override
     public void close() throws SecurityException {
-        listeners.clear();
+        closed = true;
+        LockSupport.unpark(writer);
+        if (Thread.currentThread() == writer) {
+            return;
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean offer(LogRecord record) {
+        while (true) {
+            var claimed = tail.get();
+            if (claimed - head >= ring.length()) {
+                return false;
+            }
+            if (tail.compareAndSet(claimed, claimed + 1)) {
+                ring.lazySet((int) (claimed & mask), record);
+                return true;
+            }
+        }
+    }
+
+    private void wakeUp() {
+        if (waiting) {
+            waiting = false;
+            LockSupport.unpark(writer);
+        }
     }
 
-    private FileHandler getDefaultFileHandler(StrategyCore strategy) {
+    private void write() {
+        while (true) {
+            var closing = closed;
+            var drained = drain(System.currentTimeMillis());
+            if (closing && drained == 0 && tail.get() == head) {
+                closeStore();
+                return;
+            }
+            if (drained == 0) {
+                waiting = true;
+                if (tail.get() == head && !closed) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FLUSH_MILLIS));
+                }
+                waiting = false;
+            }
+        }
+    }
+
+    private int drain(long nowMillis) {
+        int drained = 0;
+        var current = head;
+        while (drained < BATCH_SIZE) {
+            var index = (int) (current & mask);
+            var record = ring.get(index);
+            if (record == null) {
+                /* Empty, or a producer has claimed the slot but not put the record yet. */
+                break;
+            }
+            ring.lazySet(index, null);
+            head = ++current;
+            ++drained;
+            dispatch(record);
+        }
+        reportDropped();
+        if (store != null) {
+            try {
+                store.flush(FLUSH_BYTES, FLUSH_MILLIS, nowMillis);
+            } catch (IOException exception) {
+                reportError("Can't flush log store.", exception, ErrorManager.FLUSH_FAILURE);
+            }
+        }
+        return drained;
+    }
+
+    private void dispatch(LogRecord record) {
+        var source = record.getLoggerName() == null ? null : sources.get(record.getLoggerName());
+        if (source == null) {
+            source = unknownSource;
+        }
+        for (var listener : source.listeners) {
+            try {
+                listener.onLog(record);
+            } catch (Exception exception) {
+                reportError("Logging listener throws exception.", exception, ErrorManager.GENERIC_FAILURE);
+            }
+        }
+        if (store == null) {
+            return;
+        }
+        String text;
+        try {
+            text = getFormatter().format(record);
+        } catch (Exception exception) {
+            reportError("Can't format log record.", exception, ErrorManager.FORMAT_FAILURE);
+            return;
+        }
         try {
-            Path logPath;
-            if (strategy != null) {
-                logPath = Paths.get(Commons.loggingDirectory().toString(), strategy.getAccount().getUser().getUserId(), strategy.getAccount().getAccountId(), strategy.getStrategyId() + ".log");
-            } else {
-                logPath = Paths.get(Commons.loggingDirectory().toString(), "default.log");
+            store.append(source.userId, source.accountId, source.strategyId, text);
+        } catch (IOException exception) {
+            reportError("Can't write log store.", exception, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private void reportDropped() {
+        var dropped = dropCount.sum();
+        if (dropped != reportedDropCount) {
+            var record = new LogRecord(Level.WARNING, "Logging queue is full and {0} records are dropped.");
+            record.setParameters(new Object[]{dropped - reportedDropCount});
+            record.setLoggerName(PlatirEngineCore.logger().getName());
+            record.setSourceClassName(LoggingDispatcher.class.getName());
+            reportedDropCount = dropped;
+            dispatch(record);
+        }
+    }
+
+    private void closeStore() {
+        if (store != null) {
+            try {
+                store.close();
+            } catch (IOException exception) {
+                reportError("Can't close log store.", exception, ErrorManager.CLOSE_FAILURE);
             }
-            var handler = new FileHandler(Utils.file(logPath).getAbsolutePath(), true);
-            handler.setFormatter(new SimpleFormatter());
-            return handler;
-        } catch (IOException | SecurityException ex) {
-            var strategyId = "";
-            if (strategy != null) {
-                strategyId = strategy.getStrategyId();
+        }
+    }
+
+    /**
+     * Format as {@linkplain java.util.logging.SimpleFormatter} does by
+     * default, with the logger name as the source.
+     */
+    private static class StoreFormatter extends Formatter {
+
+        private static final String FORMAT = "%1$tb %1$td, %1$tY %1$tl:%1$tM:%1$tS %1$Tp %2$s%n%3$s: %4$s%5$s%n";
+
+        @Override
+        public String format(LogRecord record) {
+            var datetime = ZonedDateTime.ofInstant(record.getInstant(), ZoneId.systemDefault());
+            var thrown = "";
+            if (record.getThrown() != null) {
+                var writer = new StringWriter();
+                try (var printer = new PrintWriter(writer)) {
+                    printer.println();
+                    record.getThrown().printStackTrace(printer);
+                }
+                thrown = writer.toString();
             }
-            PlatirEngineCore.logger().log(Level.SEVERE, "Can''t create logging file handler for strategy({0}). {1}", new Object[]{strategyId, ex.getMessage()});
-            return null;
+            return String.format(FORMAT, datetime, record.getLoggerName(), record.getLevel().getLocalizedName(), formatMessage(record), thrown);
         }
     }
 
+    private static class LogSource {
+
+        private final String userId;
+        private final String accountId;
+        private final String strategyId;
+        private final Set<LoggingListener> listeners = new CopyOnWriteArraySet<>();
+
+        LogSource(String userId, String accountId, String strategyId, Set<LoggingListener> listeners) {
+            this.userId = userId;
+            this.accountId = accountId;
+            this.strategyId = strategyId;
+            this.listeners.addAll(listeners);
+        }
+
+        void setListeners(Set<LoggingListener> listeners) {
+            this.listeners.retainAll(listeners);
+            this.listeners.addAll(listeners);
+        }
+    }
 }
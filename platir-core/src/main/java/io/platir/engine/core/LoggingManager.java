@@ -1,12 +1,89 @@
 package io.platir.engine.core;
 
+import io.platir.LoggingListener;
 import io.platir.commons.StrategyCore;
+import io.platir.setting.GlobalSetting;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 import java.util.logging.Handler;
+import java.util.logging.Level;
 
+/**
+ * Logging of the engine and strategies through one handler and one log
+ * store, so the number of threads and open files is the same however many
+ * strategies there are.
+ */
 class LoggingManager {
 
+    private int capacity = 8192;
+    private String overflow = GlobalSetting.LOGGING_DROP;
+    private int segmentCount = 16;
+    private LogStore store;
+    private LoggingDispatcher dispatcher;
+
+    synchronized void configure(GlobalSetting globalSetting) {
+        capacity = globalSetting.getLoggingQueueCapacity();
+        overflow = globalSetting.getLoggingOverflow();
+        segmentCount = globalSetting.getLoggingSegmentCount();
+    }
+
+    Handler getEngineHandler(Set<LoggingListener> listeners) {
+        var handler = dispatcher();
+        handler.register(PlatirEngineCore.logger().getName(), "", "", "", listeners);
+        return handler;
+    }
+
+    /**
+     * Get the logging handler of the strategy's logger. The handler takes the
+     * listeners in the strategy setting at the time.
+     *
+     * @param strategy strategy
+     * @return logging handler
+     */
     Handler getLoggingHandler(StrategyCore strategy) {
-        return new LoggingDispatcher(strategy);
+        var handler = dispatcher();
+        var account = strategy.getAccount();
+        handler.register(strategy.getStrategyId(), account.getUser().getUserId(), account.getAccountId(), strategy.getStrategyId(), strategy.getStrategySetting().getLoggingListeners());
+        return handler;
+    }
+
+    /**
+     * Read a page of formatted log records of the strategy in order, counted
+     * back from the newest.
+     *
+     * @param strategyId strategy ID
+     * @param skip number of newest records skipped
+     * @param limit maximum number of records
+     * @return formatted records, empty if there is no log store
+     */
+    List<String> read(String strategyId, int skip, int limit) {
+        LogStore logStore;
+        synchronized (this) {
+            logStore = store;
+        }
+        if (logStore == null) {
+            return new ArrayList<>();
+        }
+        try {
+            return logStore.read(strategyId, skip, limit);
+        } catch (IOException exception) {
+            PlatirEngineCore.logger().log(Level.SEVERE, "Can''t read logs of strategy({0}). {1}", new Object[]{strategyId, exception.getMessage()});
+            return new ArrayList<>();
+        }
     }
 
+    private synchronized LoggingDispatcher dispatcher() {
+        if (dispatcher == null) {
+            try {
+                store = LogStore.open(Commons.loggingDirectory(), segmentCount);
+            } catch (IOException exception) {
+                /* Listeners still receive records. */
+                PlatirEngineCore.logger().log(Level.SEVERE, "Can''t open log store. {0}", exception.getMessage());
+            }
+            dispatcher = new LoggingDispatcher(store, capacity, overflow);
+        }
+        return dispatcher;
+    }
 }
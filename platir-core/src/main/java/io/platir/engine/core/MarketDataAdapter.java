@@ -1,29 +1,41 @@
 package io.platir.engine.core;
 
 import io.platir.commons.StrategyCore;
+import io.platir.commons.StrategyState;
 import io.platir.Strategy;
 import io.platir.broker.Bar;
 import io.platir.broker.MarketDataListener;
 import io.platir.broker.MarketDataResponse;
 import io.platir.broker.MarketDataService;
 import io.platir.broker.MarketDataSnapshot;
+import io.platir.setting.GlobalSetting;
 import io.platir.user.MarketDataRequestException;
+import io.platir.engine.metrics.EngineMetrics;
+import io.platir.engine.metrics.LatencyHistogram;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 class MarketDataAdapter implements MarketDataListener {
 
     private final MarketDataService marketDataService;
     private final UserStrategyLookup userStrategyManager;
-    private final Boolean isParallel;
+    private final GlobalSetting globalSetting;
+    private final Executor dispatcher;
     private final Map<String, StrategyMarketDataAdapter> strategies = new ConcurrentHashMap<>();
+    private final Map<StrategyCore, StrategyMarketDataQueue> queues = new ConcurrentHashMap<>();
+    private final LatencyHistogram callbackLatency;
+    private final InfoCenter infoCenter;
 
-    MarketDataAdapter(MarketDataService marketDataService, UserStrategyLookup userStrategyManager, Boolean parallel) {
+    MarketDataAdapter(MarketDataService marketDataService, UserStrategyLookup userStrategyManager, GlobalSetting globalSetting, Executor dispatcher, EngineMetrics metrics, InfoCenter infoCenter) {
         this.marketDataService = marketDataService;
         this.userStrategyManager = userStrategyManager;
-        this.isParallel = parallel;
+        this.globalSetting = globalSetting;
+        this.dispatcher = dispatcher;
+        this.callbackLatency = metrics.getLatency(EngineMetrics.MARKET_DATA_TO_CALLBACK);
+        this.infoCenter = infoCenter;
     }
 
     @Override
@@ -33,6 +45,7 @@ class MarketDataAdapter implements MarketDataListener {
 
     @Override
     public void onMarketDataSnapshot(MarketDataSnapshot marketDataSnapshot) {
+        updatePrices(marketDataSnapshot);
         var adapter = strategies.get(marketDataSnapshot.getInstrumentId());
         if (adapter != null) {
             adapter.broadcast(marketDataSnapshot);
@@ -47,8 +60,26 @@ class MarketDataAdapter implements MarketDataListener {
         }
     }
 
+    /**
+     * Keep latest and settlement prices in {@linkplain InfoCenter} from every
+     * snapshot, subscribed by a strategy or not.
+     *
+     * @param marketDataSnapshot market data snapshot
+     */
+    private void updatePrices(MarketDataSnapshot marketDataSnapshot) {
+        var instrumentId = marketDataSnapshot.getInstrumentId();
+        var lastPrice = marketDataSnapshot.getLastPrice();
+        if (lastPrice != null && Double.isFinite(lastPrice)) {
+            infoCenter.setLatestPrice(instrumentId, lastPrice);
+        }
+        var settlementPrice = marketDataSnapshot.getSettlementPrice();
+        if (settlementPrice != null && Double.isFinite(settlementPrice) && marketDataSnapshot.getTradingDay() != null) {
+            infoCenter.setSettlementPrice(instrumentId, settlementPrice, marketDataSnapshot.getTradingDay());
+        }
+    }
+
     void marketDataRequest(Strategy strategy, String instrumentId) throws MarketDataRequestException {
-        if (!strategy.getState().equals(Strategy.NORMAL)) {
+        if (((StrategyCore) strategy).state() != StrategyState.NORMAL) {
             throw new MarketDataRequestException("Strategy(" + strategy.getStrategyId() + ") is " + strategy.getState() + ".");
         }
         if (!strategies.containsKey(instrumentId)) {
@@ -57,10 +88,46 @@ class MarketDataAdapter implements MarketDataListener {
                 throw new MarketDataRequestException("Market data request returns " + code + ".");
             }
         }
-        strategies.computeIfAbsent(instrumentId, key -> new StrategyMarketDataAdapter(userStrategyManager, isParallel)).add((StrategyCore) strategy);
+        var strategyCore = (StrategyCore) strategy;
+        var queue = queues.computeIfAbsent(strategyCore, key -> new StrategyMarketDataQueue(key, this, userStrategyManager, dispatcher, globalSetting.getMarketDataQueueCapacity(), globalSetting.getMarketDataOverflow(), callbackLatency));
+        strategies.computeIfAbsent(instrumentId, key -> new StrategyMarketDataAdapter(globalSetting.isMarketDataParallel())).add(strategyCore, queue);
         tryRemoveDeadSubscription();
     }
 
+    void remove(StrategyCore strategy) {
+        var queue = queues.remove(strategy);
+        if (queue != null) {
+            queue.close();
+        }
+        strategies.values().forEach(adapter -> adapter.remove(strategy));
+    }
+
+    int getQueueDepth(StrategyCore strategy) {
+        var queue = queues.get(strategy);
+        return queue == null ? 0 : queue.getDepth();
+    }
+
+    long getDropCount(StrategyCore strategy) {
+        var queue = queues.get(strategy);
+        return queue == null ? 0L : queue.getDropCount();
+    }
+
+    int getQueueDepth() {
+        int depth = 0;
+        for (var queue : queues.values()) {
+            depth += queue.getDepth();
+        }
+        return depth;
+    }
+
+    long getDropCount() {
+        long dropCount = 0;
+        for (var queue : queues.values()) {
+            dropCount += queue.getDropCount();
+        }
+        return dropCount;
+    }
+
     private void tryRemoveDeadSubscription() {
         final var now = LocalDateTime.now();
         strategies.values().removeIf(adapter -> Duration.between(adapter.getTimestamp(), now).toDays() > 30);
@@ -0,0 +1,115 @@
+package io.platir.engine.core;
+
+import io.platir.commons.AccountCore;
+import io.platir.commons.StrategyCore;
+import io.platir.setting.GlobalSetting;
+import io.platir.setting.RiskSetting;
+import io.platir.user.NewOrderException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Order rate throttles of every strategy, every account and the engine.
+ * <p>
+ * New orders take a token from the strategy, account and global buckets in
+ * turn before anything is locked, and a token taken is given back if a later
+ * bucket rejects the order. A rejected order costs a few atomic reads, so a
+ * strategy calling in a tight loop sheds its load without touching the
+ * account. Every rejection is counted against the strategy that sent the
+ * order, whichever bucket rejects it.
+ */
+class OrderThrottle {
+
+    private final GlobalSetting globalSetting;
+    private final TokenBucket globalBucket = new TokenBucket();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final Map<String /* AccountId */, TokenBucket> accountBuckets = new ConcurrentHashMap<>();
+    private final Map<String /* StrategyId */, TokenBucket> strategyBuckets = new ConcurrentHashMap<>();
+
+    OrderThrottle(GlobalSetting globalSetting) {
+        this.globalSetting = globalSetting;
+    }
+
+    void acquire(StrategyCore strategy) throws NewOrderException {
+        var nowNanos = System.nanoTime();
+        var strategyRisk = strategy.getStrategySetting().risk();
+        var strategyRate = rate(strategyRisk);
+        if (!bucket(strategy).tryAcquire(strategyRate, burst(strategyRisk, strategyRate), nowNanos)) {
+            reject(strategy);
+            throw new NewOrderException("Strategy(" + strategy.getStrategyId() + ") order rate exceeds " + strategyRate + "/s.");
+        }
+        var account = strategy.getAccount();
+        var accountRisk = account.getAccountSetting().risk();
+        var accountRate = rate(accountRisk);
+        if (!bucket(account).tryAcquire(accountRate, burst(accountRisk, accountRate), nowNanos)) {
+            bucket(strategy).release(strategyRate);
+            reject(strategy);
+            throw new NewOrderException("Account(" + account.getAccountId() + ") order rate exceeds " + accountRate + "/s.");
+        }
+        var globalRate = globalSetting.getOrderRate();
+        var globalBurst = globalSetting.getOrderBurst();
+        if (!globalBucket.tryAcquire(globalRate, globalBurst > 0 ? globalBurst : globalRate, nowNanos)) {
+            bucket(strategy).release(strategyRate);
+            bucket(account).release(accountRate);
+            reject(strategy);
+            throw new NewOrderException("Engine order rate exceeds " + globalRate + "/s.");
+        }
+    }
+
+    long getRejectedCount(StrategyCore strategy) {
+        var bucket = strategyBuckets.get(strategy.getStrategyId());
+        return bucket == null ? 0L : bucket.getRejectedCount();
+    }
+
+    /**
+     * Get number of orders rejected by all throttles, including those of
+     * removed strategies.
+     *
+     * @return rejected order count
+     */
+    long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+    void remove(StrategyCore strategy) {
+        strategyBuckets.remove(strategy.getStrategyId());
+    }
+
+    void remove(AccountCore account) {
+        accountBuckets.remove(account.getAccountId());
+        account.strategies().keySet().forEach(strategyBuckets::remove);
+    }
+
+    private void reject(StrategyCore strategy) {
+        bucket(strategy).reject();
+        rejectedCount.increment();
+    }
+
+    private static double rate(RiskSetting risk) {
+        var rate = risk.maxOrderRate().get().doubleValue();
+        return rate == Double.MAX_VALUE ? 0D : rate;
+    }
+
+    /* Unset burst allows one second of orders at once. */
+    private static double burst(RiskSetting risk, double rate) {
+        var burst = risk.maxOrderBurst().get().doubleValue();
+        return burst == Double.MAX_VALUE ? rate : burst;
+    }
+
+    private TokenBucket bucket(StrategyCore strategy) {
+        var bucket = strategyBuckets.get(strategy.getStrategyId());
+        if (bucket == null) {
+            bucket = strategyBuckets.computeIfAbsent(strategy.getStrategyId(), key -> new TokenBucket());
+        }
+        return bucket;
+    }
+
+    private TokenBucket bucket(AccountCore account) {
+        var bucket = accountBuckets.get(account.getAccountId());
+        if (bucket == null) {
+            bucket = accountBuckets.computeIfAbsent(account.getAccountId(), key -> new TokenBucket());
+        }
+        return bucket;
+    }
+}
@@ -2,6 +2,8 @@ package io.platir.engine.core;
 
 import io.platir.commons.SettingFactoryCore;
 import io.platir.commons.StrategyCore;
+import io.platir.commons.StrategyState;
+import io.platir.commons.TimeCheckerCore;
 import io.platir.Account;
 import io.platir.Strategy;
 import io.platir.User;
@@ -12,6 +14,7 @@ import io.platir.setting.AccountSetting;
 import io.platir.engine.AddAccountException;
 import io.platir.engine.AddStrategyException;
 import io.platir.engine.AddUserException;
+import io.platir.engine.EngineClock;
 import io.platir.setting.GlobalSetting;
 import io.platir.engine.InitializeEngineException;
 import io.platir.engine.PlatirEngine;
@@ -20,7 +23,9 @@ import io.platir.engine.RemoveStrategyException;
 import io.platir.engine.RunStrategyException;
 import io.platir.setting.SettingFactory;
 import io.platir.engine.StopStrategyException;
+import io.platir.engine.metrics.EngineMetrics;
 import io.platir.engine.timer.EngineTimer;
+import io.platir.engine.timer.TimerJob;
 import io.platir.setting.StrategySetting;
 import io.platir.setting.UserSetting;
 import io.platir.user.UserStrategy;
@@ -34,10 +39,9 @@ import java.nio.channels.FileLock;
 import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -46,22 +50,21 @@ public class PlatirEngineCore extends PlatirEngine {
     private final EngineTimer engineTimer = EngineTimer.newTimer();
     private final UserManager userManager = new UserManager();
     private final UserStrategyManager userStrategyManager = new UserStrategyManager();
+    private final EngineMetricsCore metrics = new EngineMetricsCore(this);
     private final Map<String, String> tradingServiceParameters = new HashMap<>();
     private final Map<String, String> marketDataServiceParameters = new HashMap<>();
+    private final InfoCenter infoCenter = new InfoCenter();
+    private AccountShards accountShards = new AccountShards(0);
 
     private TradingAdapter tradingAdapter;
     private MarketDataAdapter marketDataAdapter;
     private TradingService tradingService;
     private MarketDataService marketDataService;
     private GlobalSettingCore globalSetting;
+    private StrategyDispatcher dispatcher;
+    private Journal journal;
 
     private static final Logger engineLogger = Logger.getLogger(PlatirEngineCore.class.getSimpleName());
-    private static final ExecutorService threads = Executors.newCachedThreadPool();
-
-    static ExecutorService threads() {
-        return threads;
-    }
-
     static Logger logger() {
         return engineLogger;
     }
@@ -70,6 +73,14 @@ public class PlatirEngineCore extends PlatirEngine {
         return globalSetting;
     }
 
+    InfoCenter getInfoCenter() {
+        return infoCenter;
+    }
+
+    AccountShards getAccountShards() {
+        return accountShards;
+    }
+
     UserManager getUserManager() {
         return userManager;
     }
@@ -82,8 +93,20 @@ public class PlatirEngineCore extends PlatirEngine {
         return tradingAdapter;
     }
 
+    MarketDataAdapter getMarketDataAdapter() {
+        return marketDataAdapter;
+    }
+
+    StrategyDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
+    Journal getJournal() {
+        return journal;
+    }
+
     UserSession createSession(StrategyCore strategy) {
-        return new UserSession(strategy, tradingAdapter, marketDataAdapter, userStrategyManager.getLoggingManager().getLoggingHandler(strategy));
+        return new UserSession(strategy, tradingAdapter, marketDataAdapter, infoCenter, accountShards, userStrategyManager.getLoggingManager().getLoggingHandler(strategy));
     }
 
     @Override
@@ -111,22 +134,55 @@ public class PlatirEngineCore extends PlatirEngine {
         }
     }
 
+    @Override
+    public void setClock(EngineClock clock) {
+        if (clock != null) {
+            infoCenter.setClock(clock);
+        }
+    }
+
     @Override
     public void initialize(GlobalSetting globalSetting) throws InitializeEngineException {
-        globalSetting = new GlobalSettingCore((GlobalSettingCore) globalSetting);
+        this.globalSetting = new GlobalSettingCore((GlobalSettingCore) globalSetting);
+        userStrategyManager.getLoggingManager().configure(globalSetting);
+        this.dispatcher = new StrategyDispatcher(globalSetting.isVirtualThreads());
+        this.accountShards = new AccountShards(globalSetting.getAccountShards());
+        userManager.setAccountShards(accountShards);
+        if (globalSetting.isMetricsJmx()) {
+            metrics.registerMBean();
+        }
+        try {
+            this.journal = Journal.open(Commons.journalDirectory(), globalSetting.getJournalFsync());
+            userManager.setJournal(journal);
+            /* Force records appended since the last force before the JVM exits. */
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close, "platir-journal-shutdown"));
+        } catch (IOException exception) {
+            throw new InitializeEngineException("Can't open journal. " + exception.getMessage(), exception);
+        }
         try {
             if (!globalSetting.isInitialDefered()) {
                 initializeNow();
             }
         } finally {
-            engineTimer.addJob(new ReinitEngineJob(this));
-            engineTimer.addJob(new ClearEngineJob(this));
-            logger().addHandler(new LoggingDispatcher(globalSetting.getLoggingListeners()));
+            addTimerJob(new ReinitEngineJob(this), this.globalSetting.reinitTime());
+            addTimerJob(new ClearEngineJob(this), this.globalSetting.clearTime());
+            logger().addHandler(userStrategyManager.getLoggingManager().getEngineHandler(globalSetting.getLoggingListeners()));
             /* Can't initialize twice. */
             lockInstance();
         }
     }
 
+    /**
+     * Add a job that is due at the next fire time of its checkers, and
+     * reschedule it when the checkers are changed.
+     */
+    private void addTimerJob(TimerJob job, TimeCheckerCore... checkers) {
+        for (var checker : checkers) {
+            checker.changeListeners().add(() -> engineTimer.rescheduleJob(job));
+        }
+        engineTimer.addJob(job);
+    }
+
     private void lockInstance() {
         File file = Utils.file(Paths.get(Commons.instanceDirectory().toString(), ".lock"));
         try {
@@ -141,14 +197,14 @@ public class PlatirEngineCore extends PlatirEngine {
         if (returnCode != 0) {
             throw new InitializeEngineException("Initializing trading service returns " + returnCode + ".");
         } else {
-            InfoCenter.setTradingDay(tradingService.getTradingDay());
+            infoCenter.setTradingDay(tradingService.getTradingDay());
         }
         returnCode = marketDataService.initialize(tradingServiceParameters);
         if (returnCode != 0) {
             throw new InitializeEngineException("Initializing market data service returns " + returnCode + ".");
         }
-        tradingAdapter = new TradingAdapter(tradingService, userStrategyManager.getLookup());
-        marketDataAdapter = new MarketDataAdapter(marketDataService, userStrategyManager.getLookup(), globalSetting.isMarketDataParallel());
+        tradingAdapter = new TradingAdapter(tradingService, userStrategyManager.getLookup(), globalSetting, dispatcher.executor(), journal, metrics, infoCenter, accountShards);
+        marketDataAdapter = new MarketDataAdapter(marketDataService, userStrategyManager.getLookup(), globalSetting, dispatcher.executor(), metrics, infoCenter);
     }
 
     @Override
@@ -164,7 +220,7 @@ public class PlatirEngineCore extends PlatirEngine {
             throw new AddUserException("No settlement time setting.");
         }
         var userCore = userManager.addUser(userId, password, userSetting);
-        engineTimer.addJob(new SettleUserJob(userCore, this));
+        addTimerJob(new SettleUserJob(userCore, this), userCore.getUserSetting().settlementTime());
         return userCore;
     }
 
@@ -175,7 +231,10 @@ public class PlatirEngineCore extends PlatirEngine {
 
     @Override
     public void removeAccount(String accountId, User user) throws RemoveAccountException {
-        userManager.removeAccount(accountId, user);
+        var removed = userManager.removeAccount(accountId, user);
+        if (tradingAdapter != null) {
+            tradingAdapter.remove(removed);
+        }
     }
 
     @Override
@@ -183,7 +242,8 @@ public class PlatirEngineCore extends PlatirEngine {
         StrategyCore newStrategy = userManager.addStrategy(account, strategySetting);
         userStrategyManager.addUserStrategy(newStrategy, userStrategy);
         engineTimer.addJob(new LoadStrategyJob(newStrategy, this));
-        engineTimer.addJob(new ConfiguredStrategyJob(newStrategy, this));
+        var setting = newStrategy.getStrategySetting();
+        addTimerJob(new ConfiguredStrategyJob(newStrategy, this), setting.configuredOpenTime(), setting.configuredCloseTime(), setting.alarmEveryTime(), setting.alarmPointTime());
         return newStrategy;
     }
 
@@ -191,7 +251,10 @@ public class PlatirEngineCore extends PlatirEngine {
     public void unblockStrategy(Strategy strategy) throws RunStrategyException {
         var core = ((StrategyCore) strategy);
         synchronized (core.syncObject()) {
-            core.setState(Strategy.NORMAL);
+            if (!StrategyState.canTransit(core.state(), StrategyState.NORMAL)) {
+                throw new RunStrategyException("Strategy(" + core.getStrategyId() + ") is " + core.getState() + ".");
+            }
+            core.setState(StrategyState.NORMAL);
         }
     }
 
@@ -199,13 +262,45 @@ public class PlatirEngineCore extends PlatirEngine {
     public void blockStrategy(Strategy strategy) throws StopStrategyException {
         var core = ((StrategyCore) strategy);
         synchronized (core.syncObject()) {
-            core.setState(Strategy.BLOCKED);
+            if (!StrategyState.canTransit(core.state(), StrategyState.BLOCKED)) {
+                throw new StopStrategyException("Strategy(" + core.getStrategyId() + ") is " + core.getState() + ".");
+            }
+            core.setState(StrategyState.BLOCKED);
         }
     }
 
     @Override
     public void removeStrategy(Strategy strategy) throws RemoveStrategyException {
-        userStrategyManager.removeUserStrategy(userManager.removeStrategy(strategy.getStrategyId(), strategy.getAccount()));
+        var removed = userManager.removeStrategy(strategy.getStrategyId(), strategy.getAccount());
+        userStrategyManager.removeUserStrategy(removed);
+        if (tradingAdapter != null) {
+            tradingAdapter.remove(removed);
+        }
+    }
+
+    @Override
+    public int getMarketDataQueueDepth(Strategy strategy) {
+        return marketDataAdapter == null ? 0 : marketDataAdapter.getQueueDepth((StrategyCore) strategy);
+    }
+
+    @Override
+    public long getMarketDataDropCount(Strategy strategy) {
+        return marketDataAdapter == null ? 0L : marketDataAdapter.getDropCount((StrategyCore) strategy);
+    }
+
+    @Override
+    public List<String> getLogs(Strategy strategy) {
+        return userStrategyManager.getLoggingManager().read(strategy.getStrategyId(), 0, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<String> getLogs(Strategy strategy, int skip, int limit) {
+        return userStrategyManager.getLoggingManager().read(strategy.getStrategyId(), skip, limit);
+    }
+
+    @Override
+    public EngineMetrics getMetrics() {
+        return metrics;
     }
 
 }
@@ -0,0 +1,273 @@
+package io.platir.engine.core;
+
+import io.platir.Order;
+import io.platir.commons.AccountCore;
+import io.platir.commons.OrderCore;
+import io.platir.commons.OrderState;
+import io.platir.commons.StrategyCore;
+import io.platir.commons.TransactionCore;
+import io.platir.commons.UserCore;
+import io.platir.setting.MaxNumberChecker;
+import io.platir.user.NewOrderException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+
+/**
+ * Pre-trade checks of new orders against the risk settings of their account
+ * and strategy.
+ * <p>
+ * Checks run in the order they are added, before the account is locked. A
+ * check that reserves something is released if a later check or the order
+ * allocation fails. Counters of open lots and outstanding notional follow
+ * fills and cancels, are dropped with their removed account or strategy, and
+ * are rebuilt from reloaded users at recovery.
+ */
+class PreTradeRisk {
+
+    private final InfoCenter infoCenter;
+    private final List<RiskCheck> checks = new CopyOnWriteArrayList<>();
+    private final Map<String /* AccountId */, RiskCounters> accountCounters = new ConcurrentHashMap<>();
+    private final Map<String /* StrategyId */, RiskCounters> strategyCounters = new ConcurrentHashMap<>();
+
+    PreTradeRisk(InfoCenter infoCenter) {
+        this.infoCenter = infoCenter;
+        checks.add(this::checkOrderQuantity);
+        checks.add(this::checkPriceDeviation);
+        checks.add(new OpenPositionCheck());
+        checks.add(new OutstandingNotionalCheck());
+    }
+
+    void addCheck(RiskCheck check) {
+        checks.add(check);
+    }
+
+    RiskOrder check(StrategyCore strategy, String instrumentId, Double price, Integer quantity, String offset) throws NewOrderException {
+        if (price == null || quantity == null || quantity <= 0) {
+            throw new NewOrderException("Invalid price(" + price + ") or quantity(" + quantity + ").");
+        }
+        InstrumentSnapshot instrument;
+        try {
+            instrument = infoCenter.getInstrument(instrumentId);
+        } catch (InsufficientInfoException exception) {
+            throw new NewOrderException("Insufficient information for new order. " + exception.getMessage(), exception);
+        }
+        var order = new RiskOrder(strategy, instrument, price, quantity, offset);
+        int passed = 0;
+        try {
+            for (var check : checks) {
+                check.check(order);
+                ++passed;
+            }
+        } catch (NewOrderException exception) {
+            release(order, passed);
+            throw exception;
+        }
+        return order;
+    }
+
+    /**
+     * Undo the reservations of an order that is not sent.
+     *
+     * @param order checked order
+     */
+    void release(RiskOrder order) {
+        release(order, checks.size());
+    }
+
+    void onTraded(TransactionCore transaction, OrderCore order, int quantity) {
+        var account = transaction.getStrategy().getAccount();
+        releaseNotional(transaction, order, quantity);
+        if (!order.getOffset().equals(Order.OPEN)) {
+            counters(account).releaseLots(order.getInstrumentId(), quantity);
+        }
+    }
+
+    void onCanceled(TransactionCore transaction, OrderCore order, int quantity) {
+        var account = transaction.getStrategy().getAccount();
+        releaseNotional(transaction, order, quantity);
+        if (order.getOffset().equals(Order.OPEN)) {
+            counters(account).releaseLots(order.getInstrumentId(), quantity);
+        }
+    }
+
+    void recover(Set<UserCore> users) {
+        accountCounters.clear();
+        strategyCounters.clear();
+        users.forEach(user -> user.accounts().values().forEach(account -> {
+            var counters = counters(account);
+            account.positions().positions().forEach(position -> {
+                switch (position.state()) {
+                    case OPENING:
+                    case OPEN:
+                    case CLOSING:
+                        counters.tryReserveLots(position.getInstrumentId(), position.getQuantity(), Double.MAX_VALUE);
+                        break;
+                    default:
+                        break;
+                }
+            });
+            account.strategies().values().forEach(strategy -> strategy.transactions().values().forEach(transaction -> transaction.orders().values().forEach(order -> {
+                if (order.state() == OrderState.QUEUEING) {
+                    int traded = 0;
+                    for (var trade : order.trades().values()) {
+                        traded += trade.getQuantity();
+                    }
+                    var notional = notional(order, order.getQuantity() - traded);
+                    counters.tryReserveNotional(notional, Double.MAX_VALUE);
+                    counters(strategy).tryReserveNotional(notional, Double.MAX_VALUE);
+                }
+            })));
+        }));
+    }
+
+    void remove(StrategyCore strategy) {
+        strategyCounters.remove(strategy.getStrategyId());
+    }
+
+    void remove(AccountCore account) {
+        accountCounters.remove(account.getAccountId());
+        account.strategies().keySet().forEach(strategyCounters::remove);
+    }
+
+    RiskCounters counters(AccountCore account) {
+        var counters = accountCounters.get(account.getAccountId());
+        if (counters == null) {
+            counters = accountCounters.computeIfAbsent(account.getAccountId(), key -> new RiskCounters());
+        }
+        return counters;
+    }
+
+    RiskCounters counters(StrategyCore strategy) {
+        var counters = strategyCounters.get(strategy.getStrategyId());
+        if (counters == null) {
+            counters = strategyCounters.computeIfAbsent(strategy.getStrategyId(), key -> new RiskCounters());
+        }
+        return counters;
+    }
+
+    private void release(RiskOrder order, int passed) {
+        for (int index = passed - 1; index >= 0; --index) {
+            checks.get(index).release(order);
+        }
+    }
+
+    private void releaseNotional(TransactionCore transaction, OrderCore order, int quantity) {
+        var notional = notional(order, quantity);
+        counters(transaction.getStrategy().getAccount()).releaseNotional(notional);
+        counters(transaction.getStrategy()).releaseNotional(notional);
+    }
+
+    private double notional(OrderCore order, int quantity) {
+        try {
+            return order.getPrice() * quantity * infoCenter.getInstrument(order.getInstrumentId()).getMultiple();
+        } catch (InsufficientInfoException exception) {
+            if (PlatirEngineCore.logger().isLoggable(Level.WARNING)) {
+                PlatirEngineCore.logger().log(Level.WARNING, "Can''t compute notional of order({0}). {1}", new Object[]{order.getOrderId(), exception.getMessage()});
+            }
+            return 0D;
+        }
+    }
+
+    private static double limit(MaxNumberChecker checker) {
+        return checker.get().doubleValue();
+    }
+
+    private void checkOrderQuantity(RiskOrder order) throws NewOrderException {
+        var max = Math.min(limit(order.account.getAccountSetting().risk().maxOrderQuantity()), limit(order.strategy.getStrategySetting().risk().maxOrderQuantity()));
+        if (order.quantity > max) {
+            throw new NewOrderException("Order quantity " + order.quantity + " exceeds limit " + max + ".");
+        }
+    }
+
+    private void checkPriceDeviation(RiskOrder order) throws NewOrderException {
+        var max = Math.min(limit(order.account.getAccountSetting().risk().maxPriceDeviation()), limit(order.strategy.getStrategySetting().risk().maxPriceDeviation()));
+        if (max == Double.MAX_VALUE) {
+            return;
+        }
+        try {
+            var latestPrice = infoCenter.getLatestPrice(order.instrument.getInstrumentId());
+            var deviation = Math.abs(order.price - latestPrice) / latestPrice;
+            if (!(deviation <= max)) {
+                throw new NewOrderException("Order price " + order.price + " deviates " + deviation + " from latest price " + latestPrice + " over limit " + max + ".");
+            }
+        } catch (InsufficientInfoException exception) {
+            throw new NewOrderException("No latest price for price collar. " + exception.getMessage(), exception);
+        }
+    }
+
+    interface RiskCheck {
+
+        void check(RiskOrder order) throws NewOrderException;
+
+        default void release(RiskOrder order) {
+        }
+    }
+
+    static class RiskOrder {
+
+        final StrategyCore strategy;
+        final AccountCore account;
+        final InstrumentSnapshot instrument;
+        final double price;
+        final int quantity;
+        final String offset;
+        final double notional;
+
+        RiskOrder(StrategyCore strategy, InstrumentSnapshot instrument, double price, int quantity, String offset) {
+            this.strategy = strategy;
+            this.account = strategy.getAccount();
+            this.instrument = instrument;
+            this.price = price;
+            this.quantity = quantity;
+            this.offset = offset;
+            this.notional = price * quantity * instrument.getMultiple();
+        }
+    }
+
+    private class OpenPositionCheck implements RiskCheck {
+
+        @Override
+        public void check(RiskOrder order) throws NewOrderException {
+            if (!Order.OPEN.equals(order.offset)) {
+                return;
+            }
+            var max = limit(order.account.getAccountSetting().maxOpenPosition());
+            if (!counters(order.account).tryReserveLots(order.instrument.getInstrumentId(), order.quantity, max)) {
+                throw new NewOrderException("Open position of " + order.instrument.getInstrumentId() + " exceeds limit " + max + ".");
+            }
+        }
+
+        @Override
+        public void release(RiskOrder order) {
+            if (Order.OPEN.equals(order.offset)) {
+                counters(order.account).releaseLots(order.instrument.getInstrumentId(), order.quantity);
+            }
+        }
+    }
+
+    private class OutstandingNotionalCheck implements RiskCheck {
+
+        @Override
+        public void check(RiskOrder order) throws NewOrderException {
+            var accountMax = limit(order.account.getAccountSetting().risk().maxOutstandingNotional());
+            if (!counters(order.account).tryReserveNotional(order.notional, accountMax)) {
+                throw new NewOrderException("Account(" + order.account.getAccountId() + ") outstanding notional exceeds limit " + accountMax + ".");
+            }
+            var strategyMax = limit(order.strategy.getStrategySetting().risk().maxOutstandingNotional());
+            if (!counters(order.strategy).tryReserveNotional(order.notional, strategyMax)) {
+                counters(order.account).releaseNotional(order.notional);
+                throw new NewOrderException("Strategy(" + order.strategy.getStrategyId() + ") outstanding notional exceeds limit " + strategyMax + ".");
+            }
+        }
+
+        @Override
+        public void release(RiskOrder order) {
+            counters(order.account).releaseNotional(order.notional);
+            counters(order.strategy).releaseNotional(order.notional);
+        }
+    }
+}
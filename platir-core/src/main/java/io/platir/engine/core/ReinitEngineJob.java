@@ -1,17 +1,13 @@
 package io.platir.engine.core;
 
-import io.platir.commons.UserCore;
 import io.platir.engine.InitializeEngineException;
 import io.platir.engine.timer.EngineTimer;
 import io.platir.engine.timer.TimerJob;
-import io.platir.utils.Utils;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
-import java.util.HashSet;
-import java.util.Set;
 import java.util.logging.Level;
 
 class ReinitEngineJob implements TimerJob {
@@ -35,6 +31,11 @@ class ReinitEngineJob implements TimerJob {
         }
     }
 
+    @Override
+    public LocalDateTime nextTime(LocalDateTime datetime) {
+        return engine.getGlobalSetting().reinitTime().nextFireTime(datetime);
+    }
+
     private void reinitEngine() {
         try {
             engine.initializeNow();
@@ -44,18 +45,29 @@ class ReinitEngineJob implements TimerJob {
     }
 
     private void reloadData() throws IOException {
-        InfoCenter.read(Paths.get(findLatestDate(Commons.clearBackupDirectory().getParent()).toString(), Commons.infoCenterBackupFilename()).toFile());
-        Set<UserCore> users = new HashSet<>();
-        Files.list(findLatestDate(Commons.settlementBackupDirectory().getParent())).forEach(path -> {
-            users.add(Utils.readJson(path.toFile(), UserCore.class));
+        engine.getInfoCenter().read(Paths.get(findLatestDate(Commons.clearBackupDirectory().getParent()).toString(), Commons.infoCenterBackupFilename()).toFile());
+        var userManager = engine.getUserManager();
+        var userStrategyManager = engine.getUserStrategyManager();
+        var loader = new UserLoader(engine.getGlobalSetting().getReloadParallelism());
+        /* Keep the old users if any snapshot fails to load. */
+        var users = loader.load(findLatestDate(Commons.settlementBackupDirectory().getParent()));
+        userManager.clear();
+        loader.publish(user -> {
+            userStrategyManager.reload(user);
+            userManager.reload(user);
         });
-        engine.getUserStrategyManager().reload(users);
-        engine.getUserManager().reload(users);
+        try {
+            /* Apply changes after the snapshots before the journal listens to reloaded accounts. */
+            new JournalReplay(users).replay(Commons.journalDirectory());
+        } finally {
+            engine.getTradingAdapter().recover(users);
+            userManager.attachJournal();
+        }
     }
 
     private Path findLatestDate(Path root) throws IOException {
         try {
-            return Files.list(root).filter(path -> Files.isRegularFile(path))
+            return Files.list(root).filter(path -> Files.isDirectory(path))
                     .reduce((Path first, Path second) -> first.getFileName().toString().compareTo(second.getFileName().toString()) > 0 ? first : second)
                     .get();
         } catch (IOException exception) {
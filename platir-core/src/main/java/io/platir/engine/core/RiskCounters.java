@@ -0,0 +1,76 @@
+package io.platir.engine.core;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of an account or a strategy kept up to date by orders, fills and
+ * cancels, so that pre-trade limits are checked without settling the account.
+ * <p>
+ * Every counter is changed by compare-and-set. A reservation succeeds only if
+ * the new value is within the limit, so concurrent orders can't overshoot it.
+ */
+class RiskCounters {
+
+    private final AtomicLong notionalBits = new AtomicLong(Double.doubleToRawLongBits(0D));
+    private final Map<String /* InstrumentId */, AtomicInteger> openLots = new ConcurrentHashMap<>();
+
+    boolean tryReserveNotional(double notional, double max) {
+        while (true) {
+            var bits = notionalBits.get();
+            var reserved = Double.longBitsToDouble(bits) + notional;
+            if (reserved > max) {
+                return false;
+            }
+            if (notionalBits.compareAndSet(bits, Double.doubleToRawLongBits(reserved))) {
+                return true;
+            }
+        }
+    }
+
+    void releaseNotional(double notional) {
+        while (true) {
+            var bits = notionalBits.get();
+            var released = Math.max(0D, Double.longBitsToDouble(bits) - notional);
+            if (notionalBits.compareAndSet(bits, Double.doubleToRawLongBits(released))) {
+                return;
+            }
+        }
+    }
+
+    double getNotional() {
+        return Double.longBitsToDouble(notionalBits.get());
+    }
+
+    boolean tryReserveLots(String instrumentId, int quantity, double max) {
+        var lots = lots(instrumentId);
+        while (true) {
+            var current = lots.get();
+            if (current + quantity > max) {
+                return false;
+            }
+            if (lots.compareAndSet(current, current + quantity)) {
+                return true;
+            }
+        }
+    }
+
+    void releaseLots(String instrumentId, int quantity) {
+        lots(instrumentId).accumulateAndGet(quantity, (current, released) -> Math.max(0, current - released));
+    }
+
+    int getLots(String instrumentId) {
+        var lots = openLots.get(instrumentId);
+        return lots == null ? 0 : lots.get();
+    }
+
+    private AtomicInteger lots(String instrumentId) {
+        var lots = openLots.get(instrumentId);
+        if (lots == null) {
+            lots = openLots.computeIfAbsent(instrumentId, key -> new AtomicInteger(0));
+        }
+        return lots;
+    }
+}
@@ -1,15 +1,21 @@
 package io.platir.engine.core;
 
-import io.platir.Order;
 import io.platir.commons.AccountCore;
 import io.platir.commons.OrderCore;
+import io.platir.commons.SnapshotCodec;
 import io.platir.commons.UserCore;
+import io.platir.commons.OrderState;
 import io.platir.engine.timer.EngineTimer;
 import io.platir.engine.timer.TimerJob;
 import io.platir.utils.Utils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDateTime;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 
@@ -28,22 +34,40 @@ class SettleUserJob implements TimerJob {
         var setting = user.getUserSetting();
         if (setting.settlementTime().check(datetime)) {
             try {
-                writeUser(Commons.userPreBackupFilename(user.getUserId()));
+                var directory = Commons.settlementBackupDirectory();
+                var delta = isDelta(directory);
+                writeUser(directory, Commons.userPreBackupFilename(user.getUserId()), delta, false);
                 settleUser();
-                writeUser(Commons.userBackupFilename(user.getUserId()));
+                writeSnapshot(directory, delta);
+                truncateJournal();
+                if (engine.getGlobalSetting().isSnapshotJsonExport()) {
+                    Utils.writeJson(Utils.file(Paths.get(directory.toString(), Commons.userJsonExportFilename(user.getUserId()))), user);
+                }
             } catch (Throwable throwable) {
                 PlatirEngineCore.logger().log(Level.SEVERE, "User({0}) settlement throws exception. {1}", new Object[]{user.getUserId(), throwable.getMessage()});
             }
         }
     }
 
+    @Override
+    public LocalDateTime nextTime(LocalDateTime datetime) {
+        return user.getUserSetting().settlementTime().nextFireTime(datetime);
+    }
+
     private void settleUser() {
         user.accounts().values().forEach(account -> {
             try {
                 for (OrderCore orderCancel : findAliveOrders(account)) {
                     engine.getTradingAdapter().forceCancel(orderCancel.getOrderId());
                 }
-                AccountUtils.settleAccount(account, AccountUtils.findInstruments(account), AccountUtils.findLatestPrices(account), InfoCenter.getTradingDay());
+                var infoCenter = engine.getInfoCenter();
+                engine.getAccountShards().call(account, () -> {
+                    var tradingDay = infoCenter.getTradingDay();
+                    AccountUtils.verifyAccount(account, tradingDay, infoCenter);
+                    /* Mark positions to settlement prices for the day end. */
+                    AccountUtils.settleAccount(account, AccountUtils.findInstruments(account, infoCenter), AccountUtils.findSettlementPrices(account, infoCenter), tradingDay, infoCenter);
+                    return null;
+                });
             } catch (InsufficientInfoException exception) {
                 PlatirEngineCore.logger().log(Level.SEVERE, "Account({0}) under user({1}) not enough information for settlement. {2}", new Object[]{account.getAccountId(), user.getUserId(), exception.getMessage()});
             } catch (ForceCancelException exception) {
@@ -52,8 +76,78 @@ class SettleUserJob implements TimerJob {
         });
     }
 
-    private void writeUser(String filename) {
-        Utils.writeJson(Utils.file(Paths.get(Commons.settlementBackupDirectory().toString(), filename)), user);
+    /**
+     * Write a delta snapshot if the user has a previous snapshot in an earlier
+     * directory and the delta chain is shorter than the compact interval. If
+     * the previous snapshot is gone, a full snapshot is written instead.
+     */
+    private boolean isDelta(Path directory) {
+        var base = user.getSnapshotBase();
+        if (base == null || base.equals(directory.getFileName().toString())
+                || user.getSnapshotDepth() >= engine.getGlobalSetting().getSnapshotCompactInterval()) {
+            return false;
+        }
+        var baseFile = directory.resolveSibling(base).resolve(Commons.userBackupFilename(user.getUserId()));
+        if (!Files.isRegularFile(baseFile)) {
+            PlatirEngineCore.logger().log(Level.WARNING, "User({0}) previous snapshot {1} is missing and writes full snapshot.", new Object[]{user.getUserId(), baseFile});
+            return false;
+        }
+        return true;
+    }
+
+    private void writeSnapshot(Path directory, boolean delta) throws IOException {
+        Map<AccountCore, Long> sequences = new HashMap<>();
+        user.accounts().values().forEach(account -> sequences.put(account, account.getJournalSequence()));
+        try {
+            SnapshotCodec.writeUser(Utils.file(Paths.get(directory.toString(), Commons.userBackupFilename(user.getUserId()))), user, delta, true, (account, encoding) -> {
+                engine.getAccountShards().call(account, () -> {
+                    /* Records of the account up to now are in its snapshot and skipped by replay. */
+                    account.setJournalSequence(engine.getJournal().sequence());
+                    encoding.run();
+                    return null;
+                });
+            });
+        } catch (IOException | RuntimeException exception) {
+            /* Changes are marked clean but may not be written, so write all next time. */
+            user.setSnapshotBase(null);
+            /* Journal records after the written sequences are still needed. */
+            sequences.forEach((account, sequence) -> account.setJournalSequence(sequence));
+            throw exception;
+        }
+        user.setSnapshotBase(directory.getFileName().toString());
+        user.setSnapshotDepth(delta ? user.getSnapshotDepth() + 1 : 0);
+    }
+
+    /**
+     * Delete journal segments whose records are all in the snapshots of every
+     * account. Nothing is deleted while an account has no snapshot.
+     */
+    private void truncateJournal() {
+        var oldest = Long.MAX_VALUE;
+        for (var each : engine.getUserManager().getUsers()) {
+            for (var account : each.accounts().values()) {
+                var sequence = account.getJournalSequence();
+                if (sequence == null) {
+                    return;
+                }
+                oldest = Math.min(oldest, sequence);
+            }
+        }
+        if (oldest == Long.MAX_VALUE) {
+            return;
+        }
+        try {
+            var deleted = engine.getJournal().truncate(oldest);
+            if (deleted > 0) {
+                PlatirEngineCore.logger().log(Level.INFO, "Journal deletes {0} segments up to sequence {1}.", new Object[]{deleted, oldest});
+            }
+        } catch (IOException exception) {
+            PlatirEngineCore.logger().log(Level.WARNING, "Can''t delete journal segments. {0}", exception.getMessage());
+        }
+    }
+
+    private void writeUser(Path directory, String filename, boolean delta, boolean clean) throws IOException {
+        SnapshotCodec.writeUser(Utils.file(Paths.get(directory.toString(), filename)), user, delta, clean);
     }
 
     private Set<OrderCore> findAliveOrders(AccountCore account) {
@@ -61,7 +155,7 @@ class SettleUserJob implements TimerJob {
         account.strategies().values().forEach(strategy -> {
             strategy.transactions().values().forEach(transaction -> {
                 transaction.orders().values().forEach(order -> {
-                    if (order.getState().equals(Order.QUEUEING)) {
+                    if (order.state() == OrderState.QUEUEING) {
                         toCancel.add(order);
                     }
                 });
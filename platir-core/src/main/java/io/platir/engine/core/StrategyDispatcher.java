@@ -0,0 +1,70 @@
+package io.platir.engine.core;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Shared executor for strategy callbacks.
+ * <p>
+ * Strategy queues are multiplexed over a fixed pool sized to the number of
+ * cores, and every queue keeps at most one drain task on the pool at a time so
+ * a strategy's callbacks are ordered. If virtual threads are requested and the
+ * running JDK has them, every task runs on its own virtual thread instead.
+ */
+class StrategyDispatcher {
+
+    private final ExecutorService executor;
+
+    StrategyDispatcher(boolean virtualThreads) {
+        ExecutorService created = null;
+        if (virtualThreads) {
+            created = newVirtualThreadExecutor();
+        }
+        if (created == null) {
+            created = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DispatcherThreadFactory());
+        }
+        this.executor = created;
+    }
+
+    ExecutorService executor() {
+        return executor;
+    }
+
+    int getActiveCount() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getActiveCount() : 0;
+    }
+
+    int getPoolSize() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getPoolSize() : 0;
+    }
+
+    int getQueueSize() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : 0;
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            /* Compiled for JDK 11, so look up the JDK 21 factory reflectively. */
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException exception) {
+            PlatirEngineCore.logger().log(Level.WARNING, "Virtual threads are not supported, use platform threads. {0}", exception.getMessage());
+            return null;
+        }
+    }
+
+    private static class DispatcherThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCounter = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            var thread = new Thread(runnable, "platir-dispatcher-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
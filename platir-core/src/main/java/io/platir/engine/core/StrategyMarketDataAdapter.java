@@ -9,24 +9,19 @@ import java.util.concurrent.atomic.AtomicReference;
 class StrategyMarketDataAdapter {
 
     private final Boolean isParallel;
-    private final UserStrategyLookup userStrategyLookup;
     private final Map<StrategyCore, StrategyMarketDataQueue> strategies = new ConcurrentHashMap<>();
     private final AtomicReference<LocalDateTime> timestamp = new AtomicReference<>();
 
-    StrategyMarketDataAdapter(UserStrategyLookup userStrategyLookup, Boolean parallel) {
+    StrategyMarketDataAdapter(Boolean parallel) {
         this.isParallel = parallel;
-        this.userStrategyLookup = userStrategyLookup;
+        setTimestamp();
     }
 
     void remove(StrategyCore strategy) {
         strategies.remove(strategy);
     }
 
-    void add(StrategyCore strategy) {
-        var queue = new StrategyMarketDataQueue(strategy, this, userStrategyLookup);
-        if (isParallel) {
-            PlatirEngineCore.threads().submit(queue);
-        }
+    void add(StrategyCore strategy, StrategyMarketDataQueue queue) {
         strategies.put(strategy, queue);
     }
 
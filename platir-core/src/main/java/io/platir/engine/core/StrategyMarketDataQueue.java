@@ -1,48 +1,115 @@
 package io.platir.engine.core;
 
 import io.platir.commons.StrategyCore;
+import io.platir.commons.StrategyState;
 import io.platir.Strategy;
 import io.platir.broker.Bar;
 import io.platir.broker.MarketDataSnapshot;
+import io.platir.engine.metrics.LatencyHistogram;
+import io.platir.setting.GlobalSetting;
 import io.platir.user.UserStrategy;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 
+/**
+ * Bounded ring of market data for one strategy over all its subscribed
+ * instruments.
+ * <p>
+ * The queue is drained by at most one task on the shared dispatcher at a time,
+ * so the strategy sees its market data in order and never concurrently. A
+ * task drains up to {@value #BATCH_SIZE} market data per lock and calls back
+ * outside the lock, then resubmits itself if more has arrived so that busy
+ * strategies don't starve the others. When the ring is full, the overflow
+ * setting decides whether the producer blocks, the oldest market data is
+ * dropped or the queued snapshots of the same instrument are conflated into
+ * the new one. Enqueue times are kept in a parallel ring, so the latency to
+ * the callback is recorded without allocation.
+ */
 class StrategyMarketDataQueue implements Runnable {
 
+    private static final int BATCH_SIZE = 64;
+
     private final StrategyCore strategy;
     private final UserStrategyLookup userStrategyLookup;
-    private final StrategyMarketDataAdapter strategyMarketDataAdapter;
-    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+    private final MarketDataAdapter marketDataAdapter;
+    private final Executor executor;
+    private final String overflow;
+    private final Object[] ring;
+    private final long[] ringNanos;
+    private final LatencyHistogram callbackLatency;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private int head = 0;
+    private int count = 0;
+    private long dropCount = 0;
+    private boolean closed = false;
+    private boolean scheduled = false;
+    private final Object[] batch = new Object[BATCH_SIZE];
+    private final long[] batchNanos = new long[BATCH_SIZE];
 
-    StrategyMarketDataQueue(StrategyCore strategy, StrategyMarketDataAdapter strategyMarketDataAdapter, UserStrategyLookup userStrategyLookup) {
+    StrategyMarketDataQueue(StrategyCore strategy, MarketDataAdapter marketDataAdapter, UserStrategyLookup userStrategyLookup, Executor executor, int capacity, String overflow, LatencyHistogram callbackLatency) {
         this.strategy = strategy;
         this.userStrategyLookup = userStrategyLookup;
-        this.strategyMarketDataAdapter = strategyMarketDataAdapter;
+        this.marketDataAdapter = marketDataAdapter;
+        this.executor = executor;
+        this.overflow = overflow;
+        this.ring = new Object[Math.max(1, capacity)];
+        this.ringNanos = new long[ring.length];
+        this.callbackLatency = callbackLatency;
     }
 
     @Override
     public void run() {
-        while (true) {
-            try {
-                callback(queue.poll(24, TimeUnit.DAYS));
-            } catch (NoSuchUserStrategyException exception) {
-                /* User strategy not found, so it is unavailable. */
-                break;
-            } catch (Throwable exception) {
-                PlatirEngineCore.logger().log(Level.SEVERE, "Strategy({0}) market data callback throws exception. {1}", new Object[]{strategy.getStrategyId(), exception.getMessage()});
+        var drained = drain();
+        try {
+            for (int index = 0; index < drained; ++index) {
+                var marketData = batch[index];
+                batch[index] = null;
+                callbackLatency.record(System.nanoTime() - batchNanos[index]);
+                try {
+                    callback(marketData);
+                } catch (NoSuchUserStrategyException exception) {
+                    throw exception;
+                } catch (Throwable exception) {
+                    if (PlatirEngineCore.logger().isLoggable(Level.SEVERE)) {
+                        PlatirEngineCore.logger().log(Level.SEVERE, "Strategy({0}) market data callback throws exception. {1}", new Object[]{strategy.getStrategyId(), exception.getMessage()});
+                    }
+                }
             }
+        } catch (NoSuchUserStrategyException exception) {
+            /* User strategy not found, so it is unavailable. Remove itself out of adapter. */
+            marketDataAdapter.remove(strategy);
+            close();
+            return;
         }
-        /* Remove itself out of adapter. */
-        strategyMarketDataAdapter.remove(strategy);
-        queue.clear();
+        reschedule();
     }
 
     void push(Object marketData) {
-        if (!queue.offer(marketData)) {
-            PlatirEngineCore.logger().log(Level.SEVERE, "Strategy({0}) market data queue is full.", strategy.getStrategyId());
+        lock.lock();
+        try {
+            if (!closed && count == ring.length) {
+                overflow(marketData);
+            }
+            if (closed || count == ring.length) {
+                return;
+            }
+            var slot = (head + count) % ring.length;
+            ring[slot] = marketData;
+            ringNanos[slot] = System.nanoTime();
+            ++count;
+            if (!scheduled) {
+                scheduled = true;
+                submit();
+            }
+        } catch (InterruptedException exception) {
+            PlatirEngineCore.logger().log(Level.WARNING, "Strategy({0}) market data push is interrupted.", strategy.getStrategyId());
+            Thread.currentThread().interrupt();
+        } finally {
+            lock.unlock();
         }
     }
 
@@ -50,15 +117,139 @@ class StrategyMarketDataQueue implements Runnable {
         try {
             callback(marketData);
         } catch (NoSuchUserStrategyException exception) {
-            strategyMarketDataAdapter.remove(strategy);
+            marketDataAdapter.remove(strategy);
         } catch (Throwable exception) {
-            PlatirEngineCore.logger().log(Level.SEVERE, "Strategy({0}) market data callback throws exception. {1}", new Object[]{strategy.getStrategyId(), exception.getMessage()});
+            if (PlatirEngineCore.logger().isLoggable(Level.SEVERE)) {
+                PlatirEngineCore.logger().log(Level.SEVERE, "Strategy({0}) market data callback throws exception. {1}", new Object[]{strategy.getStrategyId(), exception.getMessage()});
+            }
+        }
+    }
+
+    int getDepth() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long getDropCount() {
+        lock.lock();
+        try {
+            return dropCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void overflow(Object marketData) throws InterruptedException {
+        switch (overflow) {
+            case GlobalSetting.MARKET_DATA_BLOCK:
+                while (count == ring.length && !closed) {
+                    notFull.await();
+                }
+                return;
+            case GlobalSetting.MARKET_DATA_CONFLATE:
+                if (marketData instanceof MarketDataSnapshot && conflate(((MarketDataSnapshot) marketData).getInstrumentId()) > 0) {
+                    return;
+                }
+                break;
+            case GlobalSetting.MARKET_DATA_DROP_OLDEST:
+                break;
+            default:
+                PlatirEngineCore.logger().log(Level.SEVERE, "Invalid market data overflow {0}, drop the oldest.", overflow);
+                break;
+        }
+        ring[head] = null;
+        head = (head + 1) % ring.length;
+        --count;
+        ++dropCount;
+    }
+
+    /**
+     * Remove queued snapshots of the specified instrument and keep the others
+     * in order.
+     *
+     * @param instrumentId instrument of the snapshots to remove
+     * @return number of removed snapshots
+     */
+    private int conflate(String instrumentId) {
+        int kept = 0;
+        for (int index = 0; index < count; ++index) {
+            var slot = (head + index) % ring.length;
+            var marketData = ring[slot];
+            ring[slot] = null;
+            if (!(marketData instanceof MarketDataSnapshot) || !((MarketDataSnapshot) marketData).getInstrumentId().equals(instrumentId)) {
+                var keptSlot = (head + kept) % ring.length;
+                ring[keptSlot] = marketData;
+                ringNanos[keptSlot] = ringNanos[slot];
+                ++kept;
+            }
+        }
+        var removed = count - kept;
+        count = kept;
+        dropCount += removed;
+        return removed;
+    }
+
+    private int drain() {
+        lock.lock();
+        try {
+            var drained = Math.min(count, batch.length);
+            for (int index = 0; index < drained; ++index) {
+                batch[index] = ring[head];
+                batchNanos[index] = ringNanos[head];
+                ring[head] = null;
+                head = (head + 1) % ring.length;
+            }
+            count -= drained;
+            notFull.signalAll();
+            return drained;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reschedule() {
+        lock.lock();
+        try {
+            if (count > 0 && !closed) {
+                submit();
+            } else {
+                scheduled = false;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void submit() {
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException exception) {
+            scheduled = false;
+            PlatirEngineCore.logger().log(Level.SEVERE, "Strategy({0}) market data dispatch is rejected. {1}", new Object[]{strategy.getStrategyId(), exception.getMessage()});
+        }
+    }
+
+    void close() {
+        lock.lock();
+        try {
+            for (int index = 0; index < count; ++index) {
+                ring[(head + index) % ring.length] = null;
+            }
+            count = 0;
+            closed = true;
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
         }
     }
 
     private void callback(Object marketData) throws NoSuchUserStrategyException {
         synchronized (strategy.syncObject()) {
-            if (!strategy.getState().equals(Strategy.NORMAL)) {
+            if (strategy.state() != StrategyState.NORMAL) {
                 return;
             }
         }
@@ -0,0 +1,115 @@
+package io.platir.engine.core;
+
+import io.platir.commons.StrategyCore;
+import io.platir.commons.TransactionCore;
+import io.platir.engine.metrics.LatencyHistogram;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+
+/**
+ * Serialized transaction callbacks of one strategy.
+ * <p>
+ * Updated transactions are queued in the order of their first pending update
+ * and drained by at most one task on the shared dispatcher. Updates of a
+ * transaction that is still queued are coalesced, so the strategy is called
+ * once with its latest state. The strategy receives a copy taken with exclusive
+ * access to the account, which doesn't change after the callback starts. The latency
+ * from the first pending update of a transaction to its callback is
+ * recorded.
+ */
+class StrategyTransactionQueue implements Runnable {
+
+    private final StrategyCore strategy;
+    private final TradingAdapter tradingAdapter;
+    private final UserStrategyLookup userStrategyLookup;
+    private final AccountShards accountShards;
+    private final Executor executor;
+    private final LatencyHistogram fillToCallbackLatency;
+    private final Map<String, PendingUpdate> pending = new LinkedHashMap<>();
+    private boolean scheduled = false;
+
+    StrategyTransactionQueue(StrategyCore strategy, TradingAdapter tradingAdapter, UserStrategyLookup userStrategyLookup, AccountShards accountShards, Executor executor, LatencyHistogram fillToCallbackLatency) {
+        this.strategy = strategy;
+        this.tradingAdapter = tradingAdapter;
+        this.userStrategyLookup = userStrategyLookup;
+        this.accountShards = accountShards;
+        this.executor = executor;
+        this.fillToCallbackLatency = fillToCallbackLatency;
+    }
+
+    synchronized void push(TransactionCore transaction) {
+        if (!pending.containsKey(transaction.getTransactionId())) {
+            pending.put(transaction.getTransactionId(), new PendingUpdate(transaction, System.nanoTime()));
+        }
+        if (!scheduled) {
+            scheduled = true;
+            submit();
+        }
+    }
+
+    @Override
+    public void run() {
+        ArrayList<PendingUpdate> batch;
+        synchronized (this) {
+            batch = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+        try {
+            for (var update : batch) {
+                callback(update);
+            }
+        } catch (NoSuchUserStrategyException exception) {
+            PlatirEngineCore.logger().log(Level.WARNING, "Strategy({0}) is removed, drop its transaction updates. {1}", new Object[]{strategy.getStrategyId(), exception.getMessage()});
+            tradingAdapter.removeTransactionQueue(strategy);
+            return;
+        }
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                scheduled = false;
+            } else {
+                submit();
+            }
+        }
+    }
+
+    synchronized int getDepth() {
+        return pending.size();
+    }
+
+    private void callback(PendingUpdate update) throws NoSuchUserStrategyException {
+        var userStrategy = userStrategyLookup.findStrategy(strategy);
+        var copy = accountShards.call(strategy.getAccount(), () -> new TransactionCore(update.transaction));
+        fillToCallbackLatency.record(System.nanoTime() - update.pushNanos);
+        try {
+            userStrategy.onTransaction(copy);
+        } catch (Throwable throwable) {
+            if (PlatirEngineCore.logger().isLoggable(Level.SEVERE)) {
+                PlatirEngineCore.logger().log(Level.SEVERE, "Strategy({0}) callback throws exception. {1}", new Object[]{strategy.getStrategyId(), throwable.getMessage()});
+            }
+        }
+    }
+
+    private void submit() {
+        try {
+            executor.execute(this);
+        } catch (RejectedExecutionException exception) {
+            scheduled = false;
+            PlatirEngineCore.logger().log(Level.SEVERE, "Strategy({0}) transaction dispatch is rejected. {1}", new Object[]{strategy.getStrategyId(), exception.getMessage()});
+        }
+    }
+
+    private static class PendingUpdate {
+
+        private final TransactionCore transaction;
+        private final long pushNanos;
+
+        PendingUpdate(TransactionCore transaction, long pushNanos) {
+            this.transaction = transaction;
+            this.pushNanos = pushNanos;
+        }
+    }
+}
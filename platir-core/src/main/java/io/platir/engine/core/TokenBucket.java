@@ -0,0 +1,71 @@
+package io.platir.engine.core;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Token bucket kept as the time the bucket is full again, so a token is
+ * taken by one compare-and-set and nothing is refilled in background.
+ * <p>
+ * Every token moves the full time one interval of {@code 1 / rate} seconds
+ * later. A token is granted while the full time is within the burst of
+ * intervals from now. Rate and burst are passed on every call so that
+ * changed settings apply at once.
+ */
+class TokenBucket {
+
+    private final AtomicLong fullNanos = new AtomicLong(System.nanoTime());
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Take a token.
+     *
+     * @param rate tokens per second, zero or less for no limit
+     * @param burst maximum tokens taken at once, at least one
+     * @param nowNanos current {@linkplain System#nanoTime()}
+     * @return {@code true} if the token is taken
+     */
+    boolean tryAcquire(double rate, double burst, long nowNanos) {
+        if (rate <= 0D) {
+            return true;
+        }
+        var interval = (long) (1.0E9 / rate);
+        if (interval <= 0L) {
+            return true;
+        }
+        var capacity = (long) Math.min(Long.MAX_VALUE >> 2, interval * Math.max(1D, burst));
+        while (true) {
+            var full = fullNanos.get();
+            var next = (full - nowNanos < 0L ? nowNanos : full) + interval;
+            if (next - nowNanos > capacity) {
+                return false;
+            }
+            if (fullNanos.compareAndSet(full, next)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Give back a token taken for an order that is rejected by a later
+     * throttle.
+     *
+     * @param rate tokens per second the token was taken with
+     */
+    void release(double rate) {
+        if (rate > 0D) {
+            fullNanos.addAndGet(-(long) (1.0E9 / rate));
+        }
+    }
+
+    /**
+     * Count an order rejected by this or a later throttle.
+     */
+    void reject() {
+        rejectedCount.increment();
+    }
+
+    long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+}
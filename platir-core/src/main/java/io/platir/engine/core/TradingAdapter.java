@@ -2,10 +2,15 @@ package io.platir.engine.core;
 
 import io.platir.commons.TransactionCore;
 import io.platir.commons.OrderCore;
-import io.platir.commons.ContractCore;
 import io.platir.commons.AccountCore;
+import io.platir.commons.ContractState;
+import io.platir.commons.OrderState;
+import io.platir.commons.PositionCore;
 import io.platir.commons.StrategyCore;
+import io.platir.commons.StrategyState;
 import io.platir.commons.TradeCore;
+import io.platir.commons.TransactionState;
+import io.platir.commons.UserCore;
 import io.platir.Contract;
 import io.platir.Order;
 import io.platir.Strategy;
@@ -13,32 +18,130 @@ import io.platir.Transaction;
 import io.platir.broker.ExecutionListener;
 import io.platir.broker.ExecutionReport;
 import io.platir.broker.TradingService;
+import io.platir.engine.metrics.EngineMetrics;
+import io.platir.engine.metrics.LatencyHistogram;
+import io.platir.setting.GlobalSetting;
 import io.platir.user.CancelOrderException;
 import io.platir.user.NewOrderException;
-import io.platir.utils.Utils;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
-import java.util.stream.Collectors;
 
 class TradingAdapter implements ExecutionListener {
 
     private final TradingService tradingService;
     private final UserStrategyLookup userStrategyLookup;
-    private final AtomicInteger contractIdCounter = new AtomicInteger(0);
+    private final Executor dispatcher;
+    private final Journal journal;
     private final AtomicInteger tradeIdCounter = new AtomicInteger(0);
     private final AtomicInteger orderIdCounter = new AtomicInteger(0);
     private final AtomicInteger transactionIdCounter = new AtomicInteger(0);
     private final Map<String /* OrderId */, TransactionCore> executingTransactions = new ConcurrentHashMap<>();
     private final Map<String /* OrderId */, ExecutionReport> lastExecutionReports = new ConcurrentHashMap<>();
-
-    TradingAdapter(TradingService tradingService, UserStrategyLookup userStrategyLookup) {
+    private final Map<StrategyCore, StrategyTransactionQueue> transactionQueues = new ConcurrentHashMap<>();
+    private final InfoCenter infoCenter;
+    private final AccountShards accountShards;
+    private final PreTradeRisk risk;
+    private final OrderThrottle throttle;
+    private final LatencyHistogram orderValidationLatency;
+    private final LatencyHistogram accountLockWaitLatency;
+    private final LatencyHistogram settleAccountLatency;
+    private final LatencyHistogram brokerSendLatency;
+    private final LatencyHistogram executionReportLatency;
+    private final LatencyHistogram fillToCallbackLatency;
+
+    TradingAdapter(TradingService tradingService, UserStrategyLookup userStrategyLookup, GlobalSetting globalSetting, Executor dispatcher, Journal journal, EngineMetrics metrics, InfoCenter infoCenter, AccountShards accountShards) {
         this.tradingService = tradingService;
+        this.infoCenter = infoCenter;
+        this.accountShards = accountShards;
+        this.risk = new PreTradeRisk(infoCenter);
+        this.throttle = new OrderThrottle(globalSetting);
         this.userStrategyLookup = userStrategyLookup;
+        this.dispatcher = dispatcher;
+        this.journal = journal;
+        this.orderValidationLatency = metrics.getLatency(EngineMetrics.ORDER_VALIDATION);
+        this.accountLockWaitLatency = metrics.getLatency(EngineMetrics.ACCOUNT_LOCK_WAIT);
+        this.settleAccountLatency = metrics.getLatency(EngineMetrics.SETTLE_ACCOUNT);
+        this.brokerSendLatency = metrics.getLatency(EngineMetrics.BROKER_SEND);
+        this.executionReportLatency = metrics.getLatency(EngineMetrics.EXECUTION_REPORT);
+        this.fillToCallbackLatency = metrics.getLatency(EngineMetrics.FILL_TO_CALLBACK);
+    }
+
+    /**
+     * Track queueing orders of reloaded transactions so that their execution
+     * reports are found, and move ID counters past the reloaded IDs.
+     *
+     * @param users reloaded users
+     */
+    void recover(Set<UserCore> users) {
+        users.forEach(user -> user.accounts().values().forEach(account -> account.strategies().values().forEach(strategy -> {
+            strategy.transactions().values().forEach(transaction -> {
+                advanceCounter(transactionIdCounter, transaction.getTransactionId());
+                transaction.orders().values().forEach(order -> {
+                    advanceCounter(orderIdCounter, order.getOrderId());
+                    order.trades().keySet().forEach(tradeId -> advanceCounter(tradeIdCounter, tradeId));
+                    if (order.state() == OrderState.QUEUEING) {
+                        executingTransactions.put(order.getOrderId(), transaction);
+                    }
+                });
+            });
+        })));
+        risk.recover(users);
+    }
+
+    private void advanceCounter(AtomicInteger counter, String id) {
+        try {
+            var value = Integer.parseInt(id.substring(id.lastIndexOf('-') + 1));
+            counter.accumulateAndGet(value, Math::max);
+        } catch (NumberFormatException exception) {
+            PlatirEngineCore.logger().log(Level.WARNING, "Can''t parse counter of ID {0}.", id);
+        }
+    }
+
+    PreTradeRisk getRisk() {
+        return risk;
+    }
+
+    long getThrottledOrderCount(StrategyCore strategy) {
+        return throttle.getRejectedCount(strategy);
+    }
+
+    long getThrottledOrderCount() {
+        return throttle.getRejectedCount();
+    }
+
+    void remove(StrategyCore strategy) {
+        throttle.remove(strategy);
+        risk.remove(strategy);
+    }
+
+    void remove(AccountCore account) {
+        throttle.remove(account);
+        risk.remove(account);
+    }
+
+    void removeTransactionQueue(StrategyCore strategy) {
+        transactionQueues.remove(strategy);
+    }
+
+    int getTransactionQueueDepth(StrategyCore strategy) {
+        var queue = transactionQueues.get(strategy);
+        return queue == null ? 0 : queue.getDepth();
+    }
+
+    int getTransactionQueueDepth() {
+        int depth = 0;
+        for (var queue : transactionQueues.values()) {
+            depth += queue.getDepth();
+        }
+        return depth;
     }
 
     boolean isTransactionAllDone() {
@@ -57,31 +160,45 @@ class TradingAdapter implements ExecutionListener {
         if (report == null || transaction == null) {
             throw new ForceCancelException("No execution report or transaction for order(" + orderId + ") force cancel.");
         }
-        try {
-            cancelOrder(transaction, report, Order.CANCELED);
-            cancelTransaction(transaction, report);
-        } catch (NoSuchOrderException | IllegalAccountStateException | IllegalServiceStateException exception) {
-            throw new ForceCancelException("Force cancel throws exception. " + exception.getMessage());
-        }
+        accountShards.call(transaction.getStrategy().getAccount(), () -> {
+            try {
+                cancelOrder(transaction, report, OrderState.CANCELED);
+                cancelTransaction(transaction, report);
+                return null;
+            } catch (NoSuchOrderException | IllegalAccountStateException | IllegalServiceStateException exception) {
+                throw new ForceCancelException("Force cancel throws exception. " + exception.getMessage());
+            }
+        });
     }
 
     @Override
     public void onExecutionReport(ExecutionReport executionReport) {
+        var startNanos = System.nanoTime();
         /* Save last execution report for settlement canceling. */
         lastExecutionReports.put(executionReport.getOrderId(), executionReport);
 
-        TransactionCore transaction = null;
+        TransactionCore transaction;
         try {
             transaction = findTransactionForOrder(executionReport.getOrderId());
-            updateExecutionReport(transaction, executionReport);
         } catch (NoSuchOrderException exception) {
             PlatirEngineCore.logger().log(Level.SEVERE, "No order found for execution report. {0}", exception.getMessage());
-        } catch (IllegalServiceStateException exception) {
-            PlatirEngineCore.logger().log(Level.SEVERE, "Illegal trading service report. {0}", exception.getMessage());
-        } catch (IllegalAccountStateException exception) {
-            var accountId = transaction.getStrategy().getAccount().getAccountId();
-            PlatirEngineCore.logger().log(Level.SEVERE, "Illegal account {0} state. {1}", new Object[]{accountId, exception.getMessage()});
+            return;
         }
+        var account = transaction.getStrategy().getAccount();
+        /* Sharded accounts take the report in order and the broker thread doesn't wait. */
+        accountShards.execute(account, () -> {
+            accountLockWaitLatency.record(System.nanoTime() - startNanos);
+            try {
+                updateExecutionReport(transaction, executionReport);
+            } catch (NoSuchOrderException exception) {
+                PlatirEngineCore.logger().log(Level.SEVERE, "No order found for execution report. {0}", exception.getMessage());
+            } catch (IllegalServiceStateException exception) {
+                PlatirEngineCore.logger().log(Level.SEVERE, "Illegal trading service report. {0}", exception.getMessage());
+            } catch (IllegalAccountStateException exception) {
+                PlatirEngineCore.logger().log(Level.SEVERE, "Illegal account {0} state. {1}", new Object[]{account.getAccountId(), exception.getMessage()});
+            }
+            executionReportLatency.record(System.nanoTime() - startNanos);
+        });
     }
 
     Transaction newOrderSingle(Strategy strategy, String instrumentId,
@@ -89,8 +206,9 @@ class TradingAdapter implements ExecutionListener {
             Integer quantity, String direction,
             String offset) throws NewOrderException {
         var strategyCore = (StrategyCore) strategy;
+        throttle.acquire(strategyCore);
         synchronized (strategyCore.syncObject()) {
-            if (!strategy.getState().equals(Strategy.NORMAL)) {
+            if (strategyCore.state() != StrategyState.NORMAL) {
                 throw new NewOrderException("Strategy(" + strategy.getStrategyId() + ") is " + strategy.getState() + ".");
             }
         }
@@ -98,22 +216,30 @@ class TradingAdapter implements ExecutionListener {
     }
 
     private TransactionCore executeNewOrderSingle(StrategyCore strategy, String instrumentId, String exchangeId, Double price, Integer quantity, String direction, String offset) throws NewOrderException {
-        TransactionCore transaction;
-        switch (offset) {
-            case Order.OPEN:
-                transaction = allocateOpenOrderSingle(strategy, instrumentId, exchangeId, price, quantity, direction);
-                break;
-            case Order.CLOSE_TODAY:
-                transaction = allocateCloseTodayOrderSingle(strategy, instrumentId, exchangeId, price, quantity, direction);
-                break;
-            case Order.CLOSE_YESTERDAY:
-                transaction = allocateCloseYesterdayOrderSingle(strategy, instrumentId, exchangeId, price, quantity, direction);
-                break;
-            default:
-                throw new NewOrderException("Invalid offset(" + offset + ").");
+        var startNanos = System.nanoTime();
+        var riskOrder = risk.check(strategy, instrumentId, price, quantity, offset);
+        try {
+            TransactionCore transaction;
+            switch (offset) {
+                case Order.OPEN:
+                    transaction = allocateOpenOrderSingle(strategy, instrumentId, exchangeId, price, quantity, direction);
+                    break;
+                case Order.CLOSE_TODAY:
+                    transaction = allocateCloseTodayOrderSingle(strategy, instrumentId, exchangeId, price, quantity, direction);
+                    break;
+                case Order.CLOSE_YESTERDAY:
+                    transaction = allocateCloseYesterdayOrderSingle(strategy, instrumentId, exchangeId, price, quantity, direction);
+                    break;
+                default:
+                    throw new NewOrderException("Invalid offset(" + offset + ").");
+            }
+            orderValidationLatency.record(System.nanoTime() - startNanos);
+            executeTransaction(transaction);
+            return transaction;
+        } catch (NewOrderException exception) {
+            risk.release(riskOrder);
+            throw exception;
         }
-        executeTransaction(transaction);
-        return transaction;
     }
 
     void cancelOrderSingle(TransactionCore transaction) throws CancelOrderException {
@@ -134,18 +260,8 @@ class TradingAdapter implements ExecutionListener {
         }
     }
 
-    private void setOpeningContracts(AccountCore account, String instrumentId, String exchangeId, Integer quantity, String direction) {
-        int count = 0;
-        while (count++ < quantity) {
-            var contract = new ContractCore();
-            contract.setAccountId(account.getAccountId());
-            contract.setContractId(account.getAccountId() + "-" + contractIdCounter.incrementAndGet());
-            contract.setDirection(direction);
-            contract.setExchangeId(exchangeId);
-            contract.setInstrumentId(instrumentId);
-            contract.setState(Contract.OPENING);
-            account.contracts().put(contract.getContractId(), contract);
-        }
+    private void setOpeningPositions(AccountCore account, String instrumentId, String exchangeId, Integer quantity, String direction) {
+        account.positions().add(account.getAccountId(), instrumentId, exchangeId, direction, Contract.OPENING, null, quantity, 0D, 0D);
     }
 
     private OrderCore computeOrder(String instrumentId, String exchangeId, Double price, Integer quantity, String direction, String offset) {
@@ -167,78 +283,93 @@ class TradingAdapter implements ExecutionListener {
         transaction.setOffset(offset);
         transaction.setPrice(price);
         transaction.setQuantity(quantity);
-        transaction.setState(Transaction.PENDING);
+        transaction.setState(TransactionState.PENDING);
         transaction.setStrategy(strategy);
         transaction.setTransactionId(strategy.getStrategyId() + "-" + transactionIdCounter.incrementAndGet());
-        transaction.setUpdateDatetime(Utils.datetime());
+        transaction.setUpdateMicros(infoCenter.clock().epochMicros());
         for (var order : orders) {
             order.setOrderId(transaction.getTransactionId() + "-" + orderIdCounter.incrementAndGet());
             order.setTransaction(transaction);
             transaction.orders().put(order.getOrderId(), order);
         }
         strategy.transactions().put(transaction.getTransactionId(), transaction);
+        journal.transaction(transaction);
+        for (var order : orders) {
+            journal.order(order);
+        }
         return transaction;
     }
 
     private TransactionCore allocateOpenOrderSingle(StrategyCore strategy, String instrumentId, String exchangeId, Double price, Integer quantity, String direction) throws NewOrderException {
-        try {
-            var account = strategy.getAccount();
-            synchronized (account.syncObject()) {
-                var instrument = InfoCenter.getInstrument(instrumentId);
+        var account = strategy.getAccount();
+        var lockNanos = System.nanoTime();
+        return accountShards.call(account, () -> {
+            accountLockWaitLatency.record(System.nanoTime() - lockNanos);
+            try {
+                var instrument = infoCenter.getInstrument(instrumentId);
                 var needMoney = AccountUtils.computeCommission(instrument, price, quantity) + AccountUtils.computeMargin(instrument, price, quantity);
-                AccountUtils.settleAccount(account, AccountUtils.findInstruments(account), AccountUtils.findLatestPrices(account), InfoCenter.getTradingDay());
-                if (account.getAvailable() < needMoney) {
+                var settleNanos = System.nanoTime();
+                AccountUtils.settleAccount(account, infoCenter.getTradingDay(), infoCenter);
+                settleAccountLatency.record(System.nanoTime() - settleNanos);
+                if (account.available() < needMoney) {
                     throw new NewOrderException("Insufficient money need " + needMoney + " but have " + account.getAvailable() + ".");
                 }
-                setOpeningContracts(strategy.getAccount(), instrumentId, exchangeId, quantity, direction);
+                setOpeningPositions(account, instrumentId, exchangeId, quantity, direction);
                 return computeTransaction(strategy, instrumentId, exchangeId, price, quantity, direction, Order.OPEN, computeOrder(instrumentId, exchangeId, price, quantity, direction, Order.OPEN));
+            } catch (InsufficientInfoException exception) {
+                throw new NewOrderException("Insufficient information for new order. " + exception.getMessage(), exception);
             }
-        } catch (InsufficientInfoException exception) {
-            throw new NewOrderException("Insufficient information for new order. " + exception.getMessage(), exception);
-        }
+        });
     }
 
-    private Set<ContractCore> findCloseContracts(AccountCore account, String instrumentId, String exchangeId, String direction) {
-        var targetDirection = direction.equals(Order.BUY) ? Order.SELL : Order.BUY;
-        return account.contracts().values().stream()
-                .filter(contract -> contract.getInstrumentId().equals(instrumentId)
-                && contract.getExchangeId().equals(exchangeId)
-                && contract.getDirection().equals(targetDirection)
-                && contract.getState().equals(Contract.OPEN))
-                .collect(Collectors.toSet());
+    private String closeDirection(String direction) {
+        return direction.equals(Order.BUY) ? Order.SELL : Order.BUY;
     }
 
-    private Set<ContractCore> findCloseTodayContracts(AccountCore account, String instrumentId, String exchangeId, String direction, String tradingDay) {
-        return findCloseContracts(account, instrumentId, exchangeId, direction).stream()
-                .filter(contract -> contract.getOpenTradingDay().equals(tradingDay))
-                .collect(Collectors.toSet());
+    private List<PositionCore> findCloseTodayPositions(AccountCore account, String instrumentId, String exchangeId, String direction, String tradingDay) {
+        List<PositionCore> positions = new LinkedList<>();
+        var position = account.positions().find(instrumentId, exchangeId, closeDirection(direction), Contract.OPEN, tradingDay);
+        if (position != null) {
+            positions.add(position);
+        }
+        return positions;
     }
 
-    private Set<ContractCore> findCloseYesterdayContracts(AccountCore account, String instrumentId, String exchangeId, String direction, String tradingDay) {
-        return findCloseContracts(account, instrumentId, exchangeId, direction).stream()
-                .filter(contract -> !contract.getOpenTradingDay().equals(tradingDay))
-                .collect(Collectors.toSet());
+    private List<PositionCore> findCloseYesterdayPositions(AccountCore account, String instrumentId, String exchangeId, String direction, String tradingDay) {
+        var positions = account.positions().find(instrumentId, exchangeId, closeDirection(direction), Contract.OPEN);
+        positions.removeIf(position -> position.getOpenTradingDay().equals(tradingDay));
+        return positions;
+    }
+
+    private int countLots(Collection<PositionCore> positions) {
+        int count = 0;
+        for (var position : positions) {
+            count += position.getQuantity();
+        }
+        return count;
     }
 
-    private void setClosingContracts(Set<ContractCore> contracts, Double price, Integer quantity) throws IllegalAccountStateException {
+    private void setClosingPositions(AccountCore account, Collection<PositionCore> positions, Double price, Integer quantity) throws IllegalAccountStateException {
         var count = 0;
-        var iterator = contracts.iterator();
-        while (count++ < quantity && iterator.hasNext()) {
-            var contract = iterator.next();
-            contract.setState(Contract.CLOSING);
-            contract.setClosePrice(price);
+        var iterator = positions.iterator();
+        while (count < quantity && iterator.hasNext()) {
+            var position = iterator.next();
+            var moved = Math.min(quantity - count, position.getQuantity());
+            transfer(account, position, moved, ContractState.CLOSING, position.getOpenTradingDay(), null, price);
+            count += moved;
         }
         if (count < quantity) {
             throw new IllegalAccountStateException("Need " + quantity + " contracts to close but have " + count + ".");
         }
     }
 
-    private TransactionCore allocateCloseOrderSingle(Set<ContractCore> contracts, StrategyCore strategy, String instrumentId, String exchangeId, Double price, Integer quantity, String direction) throws NewOrderException {
+    private TransactionCore allocateCloseOrderSingle(Collection<PositionCore> positions, StrategyCore strategy, String instrumentId, String exchangeId, Double price, Integer quantity, String direction) throws NewOrderException {
         try {
-            if (contracts.size() < quantity) {
-                throw new NewOrderException("Insufficient position need " + quantity + " but have " + contracts.size() + ".");
+            var lots = countLots(positions);
+            if (lots < quantity) {
+                throw new NewOrderException("Insufficient position need " + quantity + " but have " + lots + ".");
             }
-            setClosingContracts(contracts, price, quantity);
+            setClosingPositions(strategy.getAccount(), positions, price, quantity);
             return computeTransaction(strategy, instrumentId, exchangeId, price, quantity, direction, Order.CLOSE_TODAY, computeOrder(instrumentId, exchangeId, price, quantity, direction, Order.CLOSE_TODAY));
         } catch (IllegalAccountStateException exception) {
             throw new NewOrderException("Account data illegal for close. " + exception.getMessage(), exception);
@@ -246,34 +377,40 @@ class TradingAdapter implements ExecutionListener {
     }
 
     private TransactionCore allocateCloseTodayOrderSingle(StrategyCore strategy, String instrumentId, String exchangeId, Double price, Integer quantity, String direction) throws NewOrderException {
-        try {
-            var account = strategy.getAccount();
-            synchronized (account.syncObject()) {
-                Set<ContractCore> contracts = findCloseTodayContracts(account, instrumentId, exchangeId, direction, InfoCenter.getTradingDay());
-                return allocateCloseOrderSingle(contracts, strategy, instrumentId, exchangeId, price, quantity, direction);
+        var account = strategy.getAccount();
+        var lockNanos = System.nanoTime();
+        return accountShards.call(account, () -> {
+            accountLockWaitLatency.record(System.nanoTime() - lockNanos);
+            try {
+                var positions = findCloseTodayPositions(account, instrumentId, exchangeId, direction, infoCenter.getTradingDay());
+                return allocateCloseOrderSingle(positions, strategy, instrumentId, exchangeId, price, quantity, direction);
+            } catch (InsufficientInfoException exception) {
+                throw new NewOrderException("Insufficient information for close. " + exception.getMessage(), exception);
             }
-        } catch (InsufficientInfoException exception) {
-            throw new NewOrderException("Insufficient information for close. " + exception.getMessage(), exception);
-        }
+        });
     }
 
     private TransactionCore allocateCloseYesterdayOrderSingle(StrategyCore strategy, String instrumentId, String exchangeId, Double price, Integer quantity, String direction) throws NewOrderException {
-        try {
-            var account = strategy.getAccount();
-            synchronized (account.syncObject()) {
-                Set<ContractCore> contracts = findCloseYesterdayContracts(account, instrumentId, exchangeId, direction, InfoCenter.getTradingDay());
-                return allocateCloseOrderSingle(contracts, strategy, instrumentId, exchangeId, price, quantity, direction);
+        var account = strategy.getAccount();
+        var lockNanos = System.nanoTime();
+        return accountShards.call(account, () -> {
+            accountLockWaitLatency.record(System.nanoTime() - lockNanos);
+            try {
+                var positions = findCloseYesterdayPositions(account, instrumentId, exchangeId, direction, infoCenter.getTradingDay());
+                return allocateCloseOrderSingle(positions, strategy, instrumentId, exchangeId, price, quantity, direction);
+            } catch (InsufficientInfoException exception) {
+                throw new NewOrderException("Insufficient information for close. " + exception.getMessage(), exception);
             }
-        } catch (InsufficientInfoException exception) {
-            throw new NewOrderException("Insufficient information for close. " + exception.getMessage(), exception);
-        }
+        });
     }
 
     private void executeTransaction(TransactionCore transaction) throws NewOrderException {
         int returnCode = 0;
         Set<Order> sentOrders = new HashSet<>();
         for (var order : transaction.getOrders()) {
+            var sendNanos = System.nanoTime();
             returnCode = tradingService.newOrderSingle(order, this);
+            brokerSendLatency.record(System.nanoTime() - sendNanos);
             if (returnCode == 0) {
                 sentOrders.add(order);
             } else {
@@ -305,23 +442,23 @@ class TradingAdapter implements ExecutionListener {
         return transaction;
     }
 
+    /* Caller has exclusive access to the account. */
     private void updateExecutionReport(TransactionCore transaction, ExecutionReport report) throws NoSuchOrderException, IllegalServiceStateException, IllegalAccountStateException {
-        var accountCore = transaction.getStrategy().getAccount();
-        switch (report.getState()) {
-            case Order.QUEUEING:
-                synchronized (accountCore.syncObject()) {
-                    updateContracts(transaction.getStrategy().getAccount(), report);
-                    updateOrderState(findUpdatedOrder(transaction, report), report);
-                    updateTransactionState(transaction);
-                }
+        switch (reportState(report)) {
+            case QUEUEING:
+                var order = findUpdatedOrder(transaction, report);
+                /* Check the order before positions and the journal change. */
+                var state = tradedState(order, report);
+                updateContracts(transaction.getStrategy().getAccount(), report);
+                updateOrderState(order, state, report);
+                risk.onTraded(transaction, order, report.getLastTradedQuantity());
+                updateTransactionState(transaction);
                 break;
-            case Order.CANCELED:
-            case Order.REJECTED:
-                synchronized (accountCore.syncObject()) {
-                    cancelOrder(transaction, report, null);
-                    cancelTransaction(transaction, report);
-                }
-            case Order.ALL_TRADED:
+            case CANCELED:
+            case REJECTED:
+                cancelOrder(transaction, report, null);
+                cancelTransaction(transaction, report);
+            case ALL_TRADED:
                 removeLocalRecords(report.getOrderId());
                 break;
             default:
@@ -330,6 +467,31 @@ class TradingAdapter implements ExecutionListener {
 
     }
 
+    private OrderState reportState(ExecutionReport report) throws IllegalServiceStateException {
+        if (report.getState() == null) {
+            throw new IllegalServiceStateException("No execution state.");
+        }
+        try {
+            return OrderState.of(report.getState());
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalServiceStateException("Illegal execution state(" + report.getState() + ").");
+        }
+    }
+
+    private void transit(OrderCore order, OrderState state) throws IllegalServiceStateException {
+        if (!OrderState.canTransit(order.state(), state)) {
+            throw new IllegalServiceStateException("Order(" + order.getOrderId() + ") can't change from " + order.getState() + " to " + state.value() + ".");
+        }
+        order.setState(state);
+    }
+
+    private void transit(TransactionCore transaction, TransactionState state) throws IllegalAccountStateException {
+        if (!TransactionState.canTransit(transaction.state(), state)) {
+            throw new IllegalAccountStateException("Transaction(" + transaction.getTransactionId() + ") can't change from " + transaction.getState() + " to " + state.value() + ".");
+        }
+        transaction.setState(state);
+    }
+
     private void removeLocalRecords(String orderId) {
         lastExecutionReports.remove(orderId);
         executingTransactions.remove(orderId);
@@ -360,62 +522,59 @@ class TradingAdapter implements ExecutionListener {
         return trade;
     }
 
-    private void updateOrderState(OrderCore order, ExecutionReport report) throws IllegalServiceStateException {
-        TradeCore trade = computeTrade(order, report);
-        order.trades().put(trade.getTradeId(), trade);
-        if (report.getTradedQuantity().equals(report.getQuantity())) {
-            order.setState(Order.ALL_TRADED);
-        } else if (report.getTradedQuantity() > report.getQuantity()) {
+    private OrderState tradedState(OrderCore order, ExecutionReport report) throws IllegalServiceStateException {
+        if (report.getTradedQuantity() > report.getQuantity()) {
             throw new IllegalServiceStateException("Traded quantity(" + report.getTradedQuantity() + ") exceeds quantity(" + report.getQuantity() + ").");
-        } else {
-            order.setState(Order.QUEUEING);
         }
+        var state = report.getTradedQuantity().equals(report.getQuantity()) ? OrderState.ALL_TRADED : OrderState.QUEUEING;
+        if (!OrderState.canTransit(order.state(), state)) {
+            throw new IllegalServiceStateException("Order(" + order.getOrderId() + ") can't change from " + order.getState() + " to " + state.value() + ".");
+        }
+        return state;
+    }
+
+    private void updateOrderState(OrderCore order, OrderState state, ExecutionReport report) throws IllegalServiceStateException {
+        TradeCore trade = computeTrade(order, report);
+        order.trades().put(trade.getTradeId(), trade);
+        journal.trade(trade);
+        transit(order, state);
+        journal.order(order);
     }
 
     private void updateContracts(AccountCore account, ExecutionReport report) throws IllegalAccountStateException, IllegalServiceStateException {
-        int updatedCount = updateTradedContracts(findUpdatedContracts(account, report), report);
+        int updatedCount = updateTradedPositions(account, findUpdatedPositions(account, report), report);
         if (updatedCount < report.getLastTradedQuantity()) {
             throw new IllegalAccountStateException("Need " + report.getLastTradedQuantity() + " contracts to update but got " + updatedCount + ".");
         }
     }
 
-    private Collection<ContractCore> findUpdatedContracts(AccountCore account, ExecutionReport report) throws IllegalServiceStateException {
-        try {
-            return account.contracts().values().stream()
-                    .filter(contract -> {
-                        return contract.getInstrumentId().equals(report.getInstrumentId()) && contract.getExchangeId().equals(report.getExchangeId());
-                    })
-                    .filter(contract -> {
-                        switch (report.getOffset()) {
-                            case Order.OPEN:
-                                return contract.getDirection().equals(report.getDirection()) && contract.getState().equals(Contract.OPENING);
-                            case Order.CLOSE_TODAY:
-                            case Order.CLOSE_YESTERDAY:
-                                return !contract.getDirection().equals(report.getDirection()) && contract.getState().equals(Contract.CLOSING);
-                            default:
-                                throw new RuntimeException("Invalid execution report offset(" + report.getOffset() + ").");
-                        }
-                    }).collect(Collectors.toSet());
-        } catch (RuntimeException exception) {
-            throw new IllegalServiceStateException(exception.getMessage(), exception);
-        }
-    }
-
-    private int updateTradedContracts(Collection<ContractCore> contracts, ExecutionReport report) {
+    private List<PositionCore> findUpdatedPositions(AccountCore account, ExecutionReport report) throws IllegalServiceStateException {
+        switch (report.getOffset()) {
+            case Order.OPEN:
+                return account.positions().find(report.getInstrumentId(), report.getExchangeId(), report.getDirection(), Contract.OPENING);
+            case Order.CLOSE_TODAY:
+            case Order.CLOSE_YESTERDAY:
+                return account.positions().find(report.getInstrumentId(), report.getExchangeId(), closeDirection(report.getDirection()), Contract.CLOSING);
+            default:
+                throw new IllegalServiceStateException("Invalid execution report offset(" + report.getOffset() + ").");
+        }
+    }
+
+    private int updateTradedPositions(AccountCore account, Collection<PositionCore> positions, ExecutionReport report) throws IllegalAccountStateException {
         int updatedCount = 0;
-        var iterator = contracts.iterator();
+        var iterator = positions.iterator();
         while (updatedCount < report.getLastTradedQuantity() && iterator.hasNext()) {
-            var contract = iterator.next();
-            if (contract.getState().equals(Contract.OPENING)) {
-                contract.setState(Contract.OPEN);
-                contract.setPrice(report.getLastTradedPirce());
-                contract.setOpenTradingDay(report.getTradingDay());
-                contract.setOpenDatetime(Utils.datetime());
+            var position = iterator.next();
+            var moved = Math.min(report.getLastTradedQuantity() - updatedCount, position.getQuantity());
+            if (position.state() == ContractState.OPENING) {
+                var open = transfer(account, position, moved, ContractState.OPEN, report.getTradingDay(), report.getLastTradedPirce(), null);
+                if (open.getOpenMicros() == 0L) {
+                    open.setOpenMicros(infoCenter.clock().epochMicros());
+                }
             } else {
-                contract.setState(Contract.CLOSED);
-                contract.setClosePrice(report.getLastTradedPirce());
+                transfer(account, position, moved, ContractState.CLOSED, position.getOpenTradingDay(), null, report.getLastTradedPirce());
             }
-            ++updatedCount;
+            updatedCount += moved;
         }
         return updatedCount;
     }
@@ -427,17 +586,17 @@ class TradingAdapter implements ExecutionListener {
         int rejectedCount = 0;
 
         for (var order : transaction.orders().values()) {
-            switch (order.getState()) {
-                case Order.ALL_TRADED:
+            switch (order.state()) {
+                case ALL_TRADED:
                     ++allTradedCount;
                     break;
-                case Order.QUEUEING:
+                case QUEUEING:
                     ++queueingCount;
                     break;
-                case Order.CANCELED:
+                case CANCELED:
                     ++canceledCount;
                     break;
-                case Order.REJECTED:
+                case REJECTED:
                     ++rejectedCount;
                     break;
                 default:
@@ -445,57 +604,65 @@ class TradingAdapter implements ExecutionListener {
             }
         }
         if (queueingCount > 0) {
-            transaction.setState(Transaction.EXECUTING);
+            transit(transaction, TransactionState.EXECUTING);
         } else if (allTradedCount == 0) {
-            transaction.setState(Transaction.REJECTED);
+            transit(transaction, TransactionState.REJECTED);
         } else {
-            transaction.setState(Transaction.REJECTED);
+            transit(transaction, TransactionState.ALL_TRADED);
         }
-        transaction.setUpdateDatetime(Utils.datetime());
+        transaction.setUpdateMicros(infoCenter.clock().epochMicros());
+        journal.transaction(transaction);
         /*
-         * Execution update changes the account state, so the following update
-         * could change the account before preceeding call returns, leading to
-         * account state inconsistence. Here invokes user callback as soon as 
-         * update arrives and the synchronization is left to user.
+         * Callbacks of a strategy run one at a time in the order of updates,
+         * and the queued updates of one transaction are coalesced.
          */
-        PlatirEngineCore.threads().submit(() -> {
-            StrategyCore strategy = null;
-            try {
-                strategy = transaction.getStrategy();
-                userStrategyLookup.findStrategy(strategy).onTransaction(transaction);
-            } catch (Throwable throwable) {
-                PlatirEngineCore.logger().log(Level.SEVERE, "Strategy({0}) callback throws exception. {1}", new Object[]{strategy.getStrategyId(), throwable.getMessage()});
-            }
-        });
+        var strategy = transaction.getStrategy();
+        transactionQueues.computeIfAbsent(strategy, key -> new StrategyTransactionQueue(key, this, userStrategyLookup, accountShards, dispatcher, fillToCallbackLatency)).push(transaction);
     }
 
-    private void cancelOrder(TransactionCore transaction, ExecutionReport report, String state) throws NoSuchOrderException {
-        findUpdatedOrder(transaction, report).setState(state == null ? report.getState() : state);
+    private void cancelOrder(TransactionCore transaction, ExecutionReport report, OrderState state) throws NoSuchOrderException, IllegalServiceStateException {
+        var order = findUpdatedOrder(transaction, report);
+        transit(order, state == null ? reportState(report) : state);
+        journal.order(order);
     }
 
     private void cancelTransaction(TransactionCore transaction, ExecutionReport report) throws IllegalAccountStateException, IllegalServiceStateException {
         var account = transaction.getStrategy().getAccount();
         var needCancel = report.getQuantity() - report.getTradedQuantity();
-        int canceledCount = cancelContractStates(findUpdatedContracts(account, report), needCancel);
+        int canceledCount = cancelPositionStates(account, findUpdatedPositions(account, report), needCancel);
         if (canceledCount < needCancel) {
             throw new IllegalAccountStateException("Need " + needCancel + " contracts to cancel but got " + canceledCount + ".");
         }
+        try {
+            risk.onCanceled(transaction, findUpdatedOrder(transaction, report), needCancel);
+        } catch (NoSuchOrderException exception) {
+            throw new IllegalServiceStateException("No order for canceled report. " + exception.getMessage(), exception);
+        }
         updateTransactionState(transaction);
     }
 
-    private int cancelContractStates(Collection<ContractCore> contracts, int quantity) {
+    private int cancelPositionStates(AccountCore account, Collection<PositionCore> positions, int quantity) throws IllegalAccountStateException {
         int canceledCount = 0;
-        var iterator = contracts.iterator();
+        var iterator = positions.iterator();
         while (canceledCount < quantity && iterator.hasNext()) {
-            var contract = iterator.next();
-            if (contract.getState().equals(Contract.OPENING)) {
-                contract.setState(Contract.ABANDONED);
+            var position = iterator.next();
+            var moved = Math.min(quantity - canceledCount, position.getQuantity());
+            if (position.state() == ContractState.OPENING) {
+                transfer(account, position, moved, ContractState.ABANDONED, null, null, null);
             } else {
-                contract.setState(Contract.OPEN);
+                transfer(account, position, moved, ContractState.OPEN, position.getOpenTradingDay(), null, 0D);
             }
-            ++canceledCount;
+            canceledCount += moved;
         }
         return canceledCount;
     }
 
+    private PositionCore transfer(AccountCore account, PositionCore position, int quantity, ContractState state, String openTradingDay, Double price, Double closePrice) throws IllegalAccountStateException {
+        try {
+            return account.positions().transfer(position, quantity, state, openTradingDay, price, closePrice);
+        } catch (IllegalArgumentException exception) {
+            throw new IllegalAccountStateException("Position(" + position.getPositionId() + ") " + exception.getMessage(), exception);
+        }
+    }
+
 }
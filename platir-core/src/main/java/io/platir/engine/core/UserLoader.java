@@ -0,0 +1,151 @@
+package io.platir.engine.core;
+
+import io.platir.commons.SnapshotCodec;
+import io.platir.commons.StrategyCore;
+import io.platir.commons.UserCore;
+import io.platir.utils.Utils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+
+/**
+ * Parse user snapshots of a settlement directory in parallel on a bounded
+ * fork-join pool.
+ * <p>
+ * Users are parsed first and published only after every file is loaded, so a
+ * bad file leaves the published users untouched. Publishing runs on the loader
+ * threads and must be thread safe. Progress is logged every
+ * {@value #PROGRESS_STEP} users. Files that fail to parse are logged and the
+ * load throws after the other files are done.
+ * <p>
+ * A delta snapshot is merged with its previous snapshots in older settlement
+ * directories, and the loaded user is based on the loaded directory.
+ */
+class UserLoader {
+
+    private static final int PROGRESS_STEP = 1000;
+
+    private final int parallelism;
+    private final Set<UserCore> users = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger loadedCount = new AtomicInteger(0);
+    private final AtomicInteger failedCount = new AtomicInteger(0);
+    private final AtomicLong loadedBytes = new AtomicLong(0);
+    private long elapsedMillis = 0;
+
+    UserLoader(int parallelism) {
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    Set<UserCore> load(Path directory) throws IOException {
+        List<Path> files;
+        try (var paths = Files.list(directory)) {
+            files = paths.filter(path -> Commons.isUserBackupFile(path) || Commons.isUserLegacyBackupFile(path)).collect(Collectors.toList());
+        }
+        var startNanos = System.nanoTime();
+        var threads = runAll(files, file -> load(file, files.size()));
+        elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        PlatirEngineCore.logger().log(Level.INFO, "Loaded {0} users of {1} bytes in {2} ms on {3} threads.", new Object[]{loadedCount.get(), loadedBytes.get(), elapsedMillis, threads});
+        if (failedCount.get() > 0) {
+            throw new IOException("Fail loading " + failedCount.get() + " of " + files.size() + " user snapshots.");
+        }
+        return users;
+    }
+
+    /**
+     * Hand every loaded user to the publisher. Call it only after
+     * {@link #load(Path)} returns.
+     */
+    void publish(Consumer<UserCore> publisher) {
+        runAll(users, publisher);
+    }
+
+    private <T> int runAll(Collection<T> items, Consumer<T> action) {
+        var pool = new ForkJoinPool(Math.min(parallelism, Math.max(items.size(), 1)));
+        try {
+            List<ForkJoinTask<?>> tasks = new ArrayList<>(items.size());
+            items.forEach(item -> tasks.add(pool.submit(() -> action.accept(item))));
+            tasks.forEach(ForkJoinTask::join);
+        } finally {
+            pool.shutdown();
+        }
+        return pool.getParallelism();
+    }
+
+    int getLoadedCount() {
+        return loadedCount.get();
+    }
+
+    int getFailedCount() {
+        return failedCount.get();
+    }
+
+    long getLoadedBytes() {
+        return loadedBytes.get();
+    }
+
+    long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Read a snapshot and merge its previous snapshots back to the full one.
+     */
+    private UserCore readSnapshot(Path file) throws IOException {
+        var user = SnapshotCodec.readUser(file.toFile());
+        var depth = user.getSnapshotDepth();
+        var previousFile = file;
+        for (int count = 0; user.getSnapshotBase() != null; ++count) {
+            if (count >= depth) {
+                throw new IOException("Delta snapshot chain of " + file + " is longer than its depth " + depth + ".");
+            }
+            previousFile = previousFile.getParent().resolveSibling(user.getSnapshotBase()).resolve(file.getFileName());
+            if (!Files.isRegularFile(previousFile)) {
+                throw new IOException("Delta snapshot " + file + " misses its previous snapshot " + previousFile + ".");
+            }
+            loadedBytes.addAndGet(Files.size(previousFile));
+            SnapshotCodec.merge(user, SnapshotCodec.readUser(previousFile.toFile()));
+        }
+        user.setSnapshotDepth(depth);
+        return user;
+    }
+
+    private void clearDirty(UserCore user) {
+        user.accounts().values().forEach(account -> {
+            account.clearDirty();
+            account.strategies().values().forEach(StrategyCore::clearDirty);
+        });
+    }
+
+    private void load(Path file, int total) {
+        try {
+            var user = Commons.isUserBackupFile(file) ? readSnapshot(file) : Utils.readJson(file.toFile(), UserCore.class);
+            if (user == null) {
+                throw new IOException("Empty user snapshot.");
+            }
+            user.setSnapshotBase(file.getParent().getFileName().toString());
+            clearDirty(user);
+            users.add(user);
+            loadedBytes.addAndGet(Files.size(file));
+            var count = loadedCount.incrementAndGet();
+            if (count % PROGRESS_STEP == 0) {
+                PlatirEngineCore.logger().log(Level.INFO, "Loaded {0}/{1} users.", new Object[]{count, total});
+            }
+        } catch (IOException | RuntimeException exception) {
+            failedCount.incrementAndGet();
+            PlatirEngineCore.logger().log(Level.SEVERE, "Can''t load user snapshot {0}. {1}", new Object[]{file, exception.getMessage()});
+        }
+    }
+}
@@ -6,8 +6,10 @@ import io.platir.commons.AccountSettingCore;
 import io.platir.commons.AccountCore;
 import io.platir.commons.StrategyCore;
 import io.platir.commons.UserCore;
+import io.platir.commons.ContractState;
+import io.platir.commons.StrategyState;
+import io.platir.commons.TransactionState;
 import io.platir.Account;
-import io.platir.Contract;
 import io.platir.Strategy;
 import io.platir.Transaction;
 import io.platir.User;
@@ -32,28 +34,60 @@ class UserManager {
     private final AtomicInteger accountIdCounter = new AtomicInteger(0);
     private final AtomicInteger strategyIdCounter = new AtomicInteger(0);
     private final Map<String, UserCore> users = new ConcurrentHashMap<>();
+    private Journal journal;
+    private AccountShards accountShards = new AccountShards(0);
+
+    void setAccountShards(AccountShards accountShards) {
+        this.accountShards = accountShards;
+    }
+
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Journal position changes of all accounts. Call it after the journal is
+     * replayed on the reloaded users.
+     */
+    void attachJournal() {
+        users.values().forEach(user -> user.accounts().values().forEach(account -> attachJournal(account)));
+    }
+
+    private void attachJournal(AccountCore account) {
+        if (journal != null && !account.positions().listeners().contains(journal)) {
+            account.positions().listeners().add(journal);
+        }
+    }
 
     Set<UserCore> getUsers() {
         return new HashSet<>(users.values());
     }
 
-    void reload(Set<UserCore> reloadUsers) {
-        users.clear();
-        reloadUsers.forEach(user -> {
-            user.accounts().values().removeIf(account -> account.getState().equals(Account.REMOVED));
-            user.accounts().values().forEach(account -> {
-                /* Clear removed accounts and strategies, and done contracts. */
-                account.strategies().values().removeIf(strategy -> strategy.getState().equals(Strategy.REMOVED));
-                account.strategies().values().forEach(strategy -> {
-                    strategy.transactions().clear();
-                    /* Restore upward reference. */
-                    strategy.setAccount(account);
-                });
-                account.contracts().values().removeIf(contract -> contract.getState().equals(Contract.ABANDONED) || contract.getState().equals(Contract.CLOSED));
-                account.setUser(user);
+    /**
+     * Publish one reloaded user. It is safe to call from many loader threads
+     * after the old users are cleared.
+     */
+    void reload(UserCore user) {
+        user.accounts().values().removeIf(account -> account.getState().equals(Account.REMOVED));
+        user.accounts().values().forEach(account -> {
+            /* Clear removed accounts and strategies, and done contracts. */
+            account.strategies().values().removeIf(strategy -> strategy.state() == StrategyState.REMOVED);
+            account.strategies().values().forEach(strategy -> {
+                strategy.transactions().clear();
+                /* Restore upward reference. */
+                strategy.setAccount(account);
             });
-            users.put(user.getUserId(), user);
+            /* Fold per-lot contracts of old snapshots into positions. */
+            account.contracts().values().forEach(contract -> account.positions().addContract(contract));
+            account.contracts().clear();
+            account.positions().removeIf(position -> position.state() == ContractState.ABANDONED || position.state() == ContractState.CLOSED);
+            account.setUser(user);
         });
+        users.put(user.getUserId(), user);
+    }
+
+    void clear() {
+        users.clear();
     }
 
     private UserCore computeUser(String userId, String password, UserSetting userSetting) {
@@ -88,6 +122,7 @@ class UserManager {
         accountCore.setPositionProfit(0D);
         accountCore.setUser(userCore);
         accountCore.setYdBalance(0D);
+        attachJournal(accountCore);
         userCore.accounts().put(accountCore.getAccountId(), accountCore);
         return accountCore;
     }
@@ -107,10 +142,10 @@ class UserManager {
     private boolean isAccountRemovable(AccountCore accountCore) {
         Boolean strategyDone = accountCore.strategies().values().stream()
                 .filter(strategy -> {
-                    return !strategy.getState().equals(Strategy.REMOVED);
+                    return strategy.state() != StrategyState.REMOVED;
                 }).count() == 0;
-        Boolean contractDone = accountCore.contracts().values().stream()
-                .filter(contract -> !contract.getState().equals(Contract.CLOSED) && !contract.getState().equals(Contract.ABANDONED))
+        Boolean contractDone = accountCore.positions().positions().stream()
+                .filter(position -> position.state() != ContractState.CLOSED && position.state() != ContractState.ABANDONED)
                 .count() == 0;
         return strategyDone && contractDone;
     }
@@ -121,25 +156,23 @@ class UserManager {
         if (accountCore == null) {
             throw new RemoveAccountException("No such account(" + accountId + ") under user(" + user.getUserId() + ").");
         }
-        synchronized (accountCore.syncObject()) {
+        return accountShards.call(accountCore, () -> {
             if (!isAccountRemovable(accountCore)) {
                 throw new RemoveAccountException("Account(" + accountId + ") can't be removed due to incompleted strategies or contracts.");
             }
             accountCore.setState(Account.REMOVED);
-        }
-        return accountCore;
+            return accountCore;
+        });
     }
 
     private StrategyCore computeStrategy(AccountCore accountCore, StrategySetting strategySetting) {
         var strategyCore = new StrategyCore();
         strategyCore.setAccount(accountCore);
         strategyCore.setCreateDatetime(Utils.date());
-        strategyCore.setState(Strategy.NORMAL);
+        strategyCore.setState(StrategyState.NORMAL);
         strategyCore.setStrategySetting((StrategySettingCore) strategySetting);
         strategyCore.setStrategyId(Utils.date() + "-" + strategyIdCounter.incrementAndGet());
-        synchronized (accountCore.syncObject()) {
-            accountCore.strategies().put(strategyCore.getStrategyId(), strategyCore);
-        }
+        accountShards.call(accountCore, () -> accountCore.strategies().put(strategyCore.getStrategyId(), strategyCore));
         return strategyCore;
     }
 
@@ -155,7 +188,7 @@ class UserManager {
     private void checkStrategyRemovable(StrategyCore strategyCore) throws RemoveStrategyException {
         Set<Transaction> aliveTransactions = strategyCore.transactions().values().stream()
                 .filter(transaction -> {
-                    return transaction.getState().equals(Transaction.EXECUTING) || transaction.getState().equals(Transaction.PENDING);
+                    return transaction.state() == TransactionState.EXECUTING || transaction.state() == TransactionState.PENDING;
                 }).collect(Collectors.toSet());
         if (aliveTransactions.size() > 0) {
             var iterator = aliveTransactions.iterator();
@@ -173,11 +206,11 @@ class UserManager {
         if (strategyCore == null) {
             throw new RemoveStrategyException("No such strategy(" + strategyId + ") under account(" + account.getAccountId() + ").");
         }
-        synchronized (accountCore.syncObject()) {
+        return accountShards.call(accountCore, () -> {
             checkStrategyRemovable(strategyCore);
-            strategyCore.setState(Strategy.REMOVED);
+            strategyCore.setState(StrategyState.REMOVED);
             return strategyCore;
-        }
+        });
     }
 
 }
@@ -11,6 +11,7 @@ import io.platir.user.CancelOrderException;
 import io.platir.user.MarketDataRequestException;
 import io.platir.user.NewOrderException;
 import io.platir.user.Session;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Handler;
@@ -22,13 +23,20 @@ class UserSession implements Session {
     private final Logger logger;
     private final TradingAdapter tradingAdapter;
     private final MarketDataAdapter marketDataAdapter;
+    private final InfoCenter infoCenter;
+    private final AccountShards accountShards;
 
-    UserSession(StrategyCore strategy, TradingAdapter transactionAdapter, MarketDataAdapter marketDataAdapter, Handler loggingHandler) {
+    UserSession(StrategyCore strategy, TradingAdapter transactionAdapter, MarketDataAdapter marketDataAdapter, InfoCenter infoCenter, AccountShards accountShards, Handler loggingHandler) {
         this.strategy = strategy;
         this.tradingAdapter = transactionAdapter;
         this.marketDataAdapter = marketDataAdapter;
+        this.infoCenter = infoCenter;
+        this.accountShards = accountShards;
         this.logger = Logger.getLogger(strategy.getStrategyId());
-        this.logger.addHandler(loggingHandler);
+        /* Sessions of a strategy share the handler, add it once. */
+        if (!Arrays.asList(this.logger.getHandlers()).contains(loggingHandler)) {
+            this.logger.addHandler(loggingHandler);
+        }
         this.logger.setUseParentHandlers(false);
     }
 
@@ -71,10 +79,10 @@ class UserSession implements Session {
     public Account getAccount() {
         try {
             var account = (AccountCore) strategy.getAccount();
-            synchronized (account.syncObject()) {
-                AccountUtils.settleAccount(account, AccountUtils.findInstruments(account), AccountUtils.findLatestPrices(account), InfoCenter.getTradingDay());
+            return accountShards.call(account, () -> {
+                AccountUtils.settleAccount(account, infoCenter.getTradingDay(), infoCenter);
                 return account;
-            }
+            });
         } catch (InsufficientInfoException ex) {
             return null;
         }
@@ -98,7 +106,7 @@ class UserSession implements Session {
     @Override
     public Instrument getInstrument(String instrumentId) {
         try {
-            return InfoCenter.getInstrument(instrumentId);
+            return infoCenter.getInstrument(instrumentId);
         } catch (InsufficientInfoException ex) {
             return null;
         }
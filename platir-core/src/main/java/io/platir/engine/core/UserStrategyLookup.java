@@ -2,6 +2,7 @@ package io.platir.engine.core;
 
 import io.platir.Strategy;
 import io.platir.commons.StrategyCore;
+import io.platir.commons.StrategyState;
 import io.platir.user.UserStrategy;
 import java.util.Map;
 import java.util.Set;
@@ -29,7 +30,7 @@ class UserStrategyLookup {
 
     void reload(Set<StrategyCore> reloadStrategies) {
         reloadStrategies.forEach(strategy -> {
-            if (strategy.getState().equals(Strategy.REMOVED)) {
+            if (strategy.state() == StrategyState.REMOVED) {
                 if (userStrategies.remove(strategy) == null) {
                     PlatirEngineCore.logger().log(Level.WARNING, "Strategy({0}) has no user strategy.", strategy.getStrategyId());
                 }
@@ -28,12 +28,10 @@ class UserStrategyManager {
         return logging;
     }
 
-    void reload(Set<UserCore> users) {
+    void reload(UserCore user) {
         Set<StrategyCore> strategies = new HashSet<>();
-        users.forEach(user -> {
-            user.accounts().values().forEach(account -> {
-                strategies.addAll(account.strategies().values());
-            });
+        user.accounts().values().forEach(account -> {
+            strategies.addAll(account.strategies().values());
         });
         lookup.reload(strategies);
     }
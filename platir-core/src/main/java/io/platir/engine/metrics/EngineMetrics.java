@@ -0,0 +1,92 @@
+package io.platir.engine.metrics;
+
+import io.platir.Strategy;
+import java.util.Set;
+
+/**
+ * Latencies of the engine stages between strategy calls, the broker and
+ * strategy callbacks, and depths of the queues in between.
+ */
+public interface EngineMetrics {
+
+    /**
+     * New order checks and position allocation, from the strategy call to
+     * before sending to the broker.
+     */
+    final static String ORDER_VALIDATION = "ORDER_VALIDATION";
+
+    /**
+     * Wait for the account lock on new orders and execution reports.
+     */
+    final static String ACCOUNT_LOCK_WAIT = "ACCOUNT_LOCK_WAIT";
+
+    /**
+     * Account settlement before checking money for a new order.
+     */
+    final static String SETTLE_ACCOUNT = "SETTLE_ACCOUNT";
+
+    /**
+     * Call to the trading service to send an order.
+     */
+    final static String BROKER_SEND = "BROKER_SEND";
+
+    /**
+     * Handling of an execution report from the trading service.
+     */
+    final static String EXECUTION_REPORT = "EXECUTION_REPORT";
+
+    /**
+     * From a transaction update queued for the strategy to its callback.
+     */
+    final static String FILL_TO_CALLBACK = "FILL_TO_CALLBACK";
+
+    /**
+     * From market data queued for the strategy to its callback.
+     */
+    final static String MARKET_DATA_TO_CALLBACK = "MARKET_DATA_TO_CALLBACK";
+
+    Set<String> getStages();
+
+    /**
+     * Get latency histogram of a stage.
+     *
+     * @param stage one of the stage constants
+     * @return histogram, or {@code null} if no such stage
+     */
+    LatencyHistogram getLatency(String stage);
+
+    int getTransactionQueueDepth(Strategy strategy);
+
+    int getMarketDataQueueDepth(Strategy strategy);
+
+    long getMarketDataDropCount(Strategy strategy);
+
+    /**
+     * Get number of new orders of a strategy rejected by the strategy,
+     * account or engine order rate throttle.
+     *
+     * @param strategy strategy
+     * @return throttled order count
+     */
+    long getThrottledOrderCount(Strategy strategy);
+
+    /**
+     * Get number of strategy callback threads running tasks. Virtual threads
+     * are not counted.
+     *
+     * @return active thread count
+     */
+    int getDispatcherActiveCount();
+
+    int getDispatcherPoolSize();
+
+    /**
+     * Get number of strategy callback tasks waiting for a thread. If it keeps
+     * growing, the callback pool is saturated.
+     *
+     * @return waiting task count
+     */
+    int getDispatcherQueueSize();
+
+    void reset();
+}
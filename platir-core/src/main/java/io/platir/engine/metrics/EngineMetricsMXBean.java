@@ -0,0 +1,36 @@
+package io.platir.engine.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@linkplain EngineMetrics}. Latencies are keyed by stage and
+ * queue depths are summed over strategies.
+ */
+public interface EngineMetricsMXBean {
+
+    Map<String, Long> getLatencyCount();
+
+    Map<String, Long> getLatencyP50Nanos();
+
+    Map<String, Long> getLatencyP99Nanos();
+
+    Map<String, Long> getLatencyP999Nanos();
+
+    Map<String, Long> getLatencyMaxNanos();
+
+    int getTransactionQueueDepth();
+
+    int getMarketDataQueueDepth();
+
+    long getMarketDataDropCount();
+
+    long getThrottledOrderCount();
+
+    int getDispatcherActiveCount();
+
+    int getDispatcherPoolSize();
+
+    int getDispatcherQueueSize();
+
+    void reset();
+}
@@ -0,0 +1,106 @@
+package io.platir.engine.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of latencies in nanoseconds.
+ * <p>
+ * Values below {@value #SUB_BUCKET_COUNT} are counted exactly, and larger
+ * values fall into buckets of 64 sub-buckets per power of two, so a recorded
+ * value is off by less than 1/64 of itself. Recording is lock-free and
+ * allocates nothing, so it can stay on in production. Readers see counts
+ * recorded concurrently, so a percentile taken while recording is
+ * approximate.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF = SUB_BUCKET_COUNT >> 1;
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF + SUB_BUCKET_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong totalCount = new AtomicLong(0);
+    private final AtomicLong totalNanos = new AtomicLong(0);
+    private final AtomicLong maxNanos = new AtomicLong(0);
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        counts.incrementAndGet(index(nanos));
+        totalCount.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        var max = maxNanos.get();
+        while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getCount() {
+        return totalCount.get();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    public double getMeanNanos() {
+        var count = totalCount.get();
+        return count == 0 ? 0D : (double) totalNanos.get() / count;
+    }
+
+    /**
+     * Get the value that the specified percentage of recorded values are not
+     * greater than, rounded up to the highest value of its bucket.
+     *
+     * @param percentile percentile from 0 to 100
+     * @return latency in nanoseconds, or zero if nothing is recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        var count = totalCount.get();
+        if (count == 0) {
+            return 0L;
+        }
+        var target = Math.max(1L, (long) Math.ceil(Math.min(100D, Math.max(0D, percentile)) / 100D * count));
+        long seen = 0;
+        for (int index = 0; index < BUCKET_COUNT; ++index) {
+            seen += counts.get(index);
+            if (seen >= target) {
+                return Math.min(highestValue(index), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Clear recorded values. Values recorded during the reset may be partly
+     * kept.
+     */
+    public void reset() {
+        for (int index = 0; index < BUCKET_COUNT; ++index) {
+            counts.set(index, 0L);
+        }
+        totalCount.set(0L);
+        totalNanos.set(0L);
+        maxNanos.set(0L);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        var shift = 63 - Long.numberOfLeadingZeros(value) - (SUB_BUCKET_BITS - 1);
+        return shift * SUB_BUCKET_HALF + (int) (value >>> shift);
+    }
+
+    private static long highestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        var shift = index / SUB_BUCKET_HALF - 1;
+        var subBucket = (long) (index % SUB_BUCKET_HALF + SUB_BUCKET_HALF);
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
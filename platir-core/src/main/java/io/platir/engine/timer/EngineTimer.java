@@ -2,10 +2,28 @@ package io.platir.engine.timer;
 
 public abstract class EngineTimer {
     public static EngineTimer newTimer() {
-        return new EngineTimerCore();
+        return new EngineTimerCore(Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors())));
+    }
+
+    /**
+     * Create a timer running due jobs on the specified number of threads.
+     *
+     * @param workerCount number of job threads
+     * @return timer
+     */
+    public static EngineTimer newTimer(int workerCount) {
+        return new EngineTimerCore(workerCount);
     }
     
     public abstract void addJob(TimerJob job);
     
     public abstract void removeJob(TimerJob job);
+
+    /**
+     * Compute the next due time of a job again, after what the job depends on
+     * is changed. A running job is rescheduled when it returns.
+     *
+     * @param job added job
+     */
+    public abstract void rescheduleJob(TimerJob job);
 }
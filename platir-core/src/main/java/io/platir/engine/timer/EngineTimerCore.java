@@ -1,37 +1,152 @@
 package io.platir.engine.timer;
 
-import java.util.Calendar;
-import java.util.Date;
-import java.util.Timer;
-import java.util.concurrent.TimeUnit;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+/**
+ * Timer firing every job at its due time on a hierarchical timing wheel.
+ * <p>
+ * A ticker thread advances the wheel every {@value TimingWheel#TICK_MILLIS}
+ * ms and hands the due jobs to a fixed pool of job threads. A job is added
+ * to the wheel again at its next due time after it returns, so it never runs
+ * concurrently with itself. Due times missed by a slow job are run late and
+ * none is skipped.
+ */
 class EngineTimerCore extends EngineTimer {
 
-    private final Timer timer;
-    private final TimerJobScheduler jobScheduler;
+    private static final Logger timerLogger = Logger.getLogger(EngineTimerCore.class.getSimpleName());
 
-    EngineTimerCore() {
-        jobScheduler = new TimerJobScheduler(this);
-        timer = new Timer();
-        timer.scheduleAtFixedRate(jobScheduler, getNextMinute(), TimeUnit.MINUTES.toMillis(1));
+    private final Map<TimerJob, JobEntry> entries = new ConcurrentHashMap<>();
+    private final TimingWheel wheel = new TimingWheel(System.currentTimeMillis());
+    private final ExecutorService workers;
+
+    EngineTimerCore(int workerCount) {
+        workers = Executors.newFixedThreadPool(Math.max(1, workerCount), new TimerThreadFactory());
+        /* Not daemon, it keeps the engine process alive as java.util.Timer did. */
+        new Thread(this::tick, "platir-timer").start();
     }
 
     @Override
     public void addJob(TimerJob job) {
-        jobScheduler.addJob(job);
+        var entry = new JobEntry(job);
+        if (entries.putIfAbsent(job, entry) == null) {
+            schedule(entry, job.nextTime(LocalDateTime.now()));
+        }
     }
 
     @Override
     public void removeJob(TimerJob job) {
-        jobScheduler.removeJob(job);
+        var entry = entries.remove(job);
+        if (entry != null) {
+            synchronized (wheel) {
+                wheel.remove(entry);
+            }
+        }
     }
 
-    private Date getNextMinute() {
-        var calendar = Calendar.getInstance();
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        calendar.roll(Calendar.MINUTE, 1);
-        return calendar.getTime();
+    @Override
+    public void rescheduleJob(TimerJob job) {
+        var entry = entries.get(job);
+        if (entry == null) {
+            return;
+        }
+        var next = job.nextTime(LocalDateTime.now());
+        synchronized (wheel) {
+            /* A running job is added back when it returns. */
+            if (!entry.running) {
+                add(entry, next);
+            }
+        }
     }
 
+    private void schedule(JobEntry entry, LocalDateTime datetime) {
+        synchronized (wheel) {
+            entry.running = false;
+            add(entry, datetime);
+        }
+    }
+
+    /* Call with the wheel locked. */
+    private void add(JobEntry entry, LocalDateTime datetime) {
+        wheel.remove(entry);
+        /* Don't add back a job removed while it was running. */
+        if (entries.get(entry.job) == entry && datetime != null) {
+            entry.datetime = datetime;
+            wheel.add(entry, datetime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    private void tick() {
+        List<TimingWheel.Entry> due = new ArrayList<>();
+        while (true) {
+            try {
+                synchronized (wheel) {
+                    wheel.advance(System.currentTimeMillis(), entry -> {
+                        ((JobEntry) entry).running = true;
+                        due.add(entry);
+                    });
+                }
+                for (var entry : due) {
+                    workers.execute(() -> run((JobEntry) entry));
+                }
+                due.clear();
+                Thread.sleep(TimingWheel.TICK_MILLIS - System.currentTimeMillis() % TimingWheel.TICK_MILLIS);
+            } catch (InterruptedException exception) {
+                timerLogger.log(Level.WARNING, "Timer is interrupted and stops.");
+                return;
+            } catch (RejectedExecutionException exception) {
+                timerLogger.log(Level.SEVERE, "Timer job pool rejects job. {0}", exception.getMessage());
+                due.clear();
+            }
+        }
+    }
+
+    private void run(JobEntry entry) {
+        try {
+            entry.job.onTime(entry.datetime, this);
+        } catch (Throwable throwable) {
+            timerLogger.log(Level.SEVERE, "Timer job {0} throws exception at {1}. {2}", new Object[]{entry.job.getClass().getSimpleName(), entry.datetime, throwable.getMessage()});
+        }
+        LocalDateTime next = null;
+        try {
+            next = entry.job.nextTime(entry.datetime);
+        } catch (Throwable throwable) {
+            timerLogger.log(Level.SEVERE, "Timer job {0} can''t compute next time and waits for reschedule. {1}", new Object[]{entry.job.getClass().getSimpleName(), throwable.getMessage()});
+        }
+        schedule(entry, next);
+    }
+
+    private static class JobEntry extends TimingWheel.Entry {
+
+        private final TimerJob job;
+        private volatile LocalDateTime datetime;
+        private boolean running = false;
+
+        JobEntry(TimerJob job) {
+            this.job = job;
+        }
+    }
+
+    private static class TimerThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger threadCounter = new AtomicInteger(0);
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            var thread = new Thread(runnable, "platir-timer-job-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
 }
@@ -1,7 +1,22 @@
 package io.platir.engine.timer;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 public interface TimerJob {
     void onTime(LocalDateTime datetime, EngineTimer timer);
+
+    /**
+     * Get the next time the job is due after the specified time.
+     * <p>
+     * By default the job is due at the start of every minute. A time that is
+     * not after the specified time runs the job at once.
+     *
+     * @param datetime time after which the job is due
+     * @return next due time, or {@code null} if the job is not due until it
+     * is rescheduled
+     */
+    default LocalDateTime nextTime(LocalDateTime datetime) {
+        return datetime.truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+    }
 }
@@ -0,0 +1,141 @@
+package io.platir.engine.timer;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel of {@value #LEVELS} levels and {@value #SLOTS}
+ * slots per level.
+ * <p>
+ * A slot of level 0 covers one tick of {@value #TICK_MILLIS} ms, and a slot of
+ * every higher level covers the whole level below, so the wheel spans about
+ * 19 days. Entries further away wait in the top level and are placed again
+ * when their slot comes round. Entries of a higher level slot are cascaded to
+ * lower levels when the wheel reaches the slot, so every entry is moved at
+ * most once per level.
+ * <p>
+ * Entries are kept in doubly linked slot lists, so adding and removing an
+ * entry is O(1), and advancing a tick only visits the entries that are due or
+ * cascaded. The wheel is not thread safe.
+ */
+class TimingWheel {
+
+    static final long TICK_MILLIS = 100L;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = (1L << (SLOT_BITS * LEVELS)) - 1;
+
+    private final Entry[][] slots = new Entry[LEVELS][SLOTS];
+    private long currentTick;
+    private int size = 0;
+
+    TimingWheel(long startMillis) {
+        currentTick = startMillis / TICK_MILLIS;
+        for (var level : slots) {
+            for (int index = 0; index < SLOTS; ++index) {
+                level[index] = Entry.head();
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(Entry entry, long deadlineMillis) {
+        entry.deadlineTick = Math.floorDiv(deadlineMillis, TICK_MILLIS);
+        place(entry);
+        ++size;
+    }
+
+    boolean remove(Entry entry) {
+        if (entry.previous == null) {
+            return false;
+        }
+        unlink(entry);
+        --size;
+        return true;
+    }
+
+    /**
+     * Advance the wheel through every tick up to the specified time and pass
+     * the due entries, which are removed from the wheel.
+     *
+     * @param nowMillis current time in milliseconds
+     * @param due consumer of due entries
+     */
+    void advance(long nowMillis, Consumer<Entry> due) {
+        var nowTick = Math.floorDiv(nowMillis, TICK_MILLIS);
+        while (currentTick <= nowTick) {
+            cascade(currentTick);
+            var head = slots[0][(int) (currentTick & SLOT_MASK)];
+            while (head.next != head) {
+                var entry = head.next;
+                unlink(entry);
+                --size;
+                due.accept(entry);
+            }
+            ++currentTick;
+        }
+    }
+
+    private void cascade(long tick) {
+        for (int level = 1; level < LEVELS; ++level) {
+            var shift = SLOT_BITS * level;
+            if ((tick & ((1L << shift) - 1)) != 0) {
+                return;
+            }
+            var head = slots[level][(int) ((tick >>> shift) & SLOT_MASK)];
+            while (head.next != head) {
+                var entry = head.next;
+                unlink(entry);
+                place(entry);
+            }
+        }
+    }
+
+    private void place(Entry entry) {
+        var delta = entry.deadlineTick - currentTick;
+        if (delta < 0) {
+            link(slots[0][(int) (currentTick & SLOT_MASK)], entry);
+            return;
+        }
+        var tick = delta > MAX_DELTA ? currentTick + MAX_DELTA : entry.deadlineTick;
+        delta = tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            ++level;
+        }
+        link(slots[level][(int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK)], entry);
+    }
+
+    private static void link(Entry head, Entry entry) {
+        entry.previous = head.previous;
+        entry.next = head;
+        head.previous.next = entry;
+        head.previous = entry;
+    }
+
+    private static void unlink(Entry entry) {
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    static class Entry {
+
+        private long deadlineTick;
+        private Entry previous;
+        private Entry next;
+
+        /* Slot heads link to themselves when empty. */
+        private static Entry head() {
+            var head = new Entry();
+            head.previous = head;
+            head.next = head;
+            return head;
+        }
+    }
+}
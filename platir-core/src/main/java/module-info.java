@@ -1,5 +1,7 @@
 module io.platir.core {
     requires io.platir.commons;
+    requires java.management;
     exports io.platir.engine;
     exports io.platir.engine.broker;
+    exports io.platir.engine.metrics;
 }
@@ -0,0 +1,104 @@
+package io.platir.engine.core;
+
+import io.platir.Contract;
+import io.platir.Order;
+import io.platir.commons.AccountCore;
+import io.platir.commons.ContractState;
+import io.platir.commons.InstrumentCore;
+import io.platir.commons.PositionCore;
+import io.platir.utils.Utils;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Incremental settlement agrees with the full recompute of all positions.
+ */
+public class AccountLedgerTest {
+
+    private static final String YESTERDAY = "20261015";
+    private static final String DAY = "20261016";
+    private static final String EXCHANGE_ID = "DCE";
+
+    private InfoCenter infoCenter;
+    private AccountCore account;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        infoCenter = new InfoCenter();
+        infoCenter.setTradingDay(DAY);
+        infoCenter.setInstrument(instrument("c2205", 0.0001D, 0D, 0.1D, 0D));
+        infoCenter.setInstrument(instrument("m2205", 0D, 1.5D, 0D, 800D));
+        infoCenter.setLatestPrice("c2205", 2800D);
+        infoCenter.setLatestPrice("m2205", 3400D);
+        account = new AccountCore();
+        account.setAccountId("account");
+        account.setYdBalance(1.0E6);
+        account.positions().add(account.getAccountId(), "c2205", EXCHANGE_ID, Order.BUY, Contract.OPEN, YESTERDAY, 10, 27500D, 0D);
+        account.positions().add(account.getAccountId(), "m2205", EXCHANGE_ID, Order.SELL, Contract.OPEN, DAY, 5, 17100D, 0D);
+        assertSettled();
+    }
+
+    @Test
+    public void followsPricesAndPositionChanges() throws Exception {
+        infoCenter.setLatestPrice("c2205", 2850D);
+        assertSettled();
+        var opening = account.positions().add(account.getAccountId(), "c2205", EXCHANGE_ID, Order.BUY, Contract.OPENING, null, 3, 0D, 0D);
+        assertSettled();
+        account.positions().transfer(opening, 2, ContractState.OPEN, DAY, 2845D, null);
+        account.positions().transfer(opening, 1, ContractState.ABANDONED, null, null, null);
+        infoCenter.setLatestPrice("m2205", 3380D);
+        assertSettled();
+        var closing = account.positions().transfer(find("c2205", Order.BUY, Contract.OPEN, YESTERDAY), 4, ContractState.CLOSING, YESTERDAY, null, 2860D);
+        assertSettled();
+        account.positions().transfer(closing, 3, ContractState.CLOSED, YESTERDAY, null, null);
+        account.positions().transfer(closing, 1, ContractState.OPEN, YESTERDAY, null, 0D);
+        assertSettled();
+        account.positions().transfer(find("m2205", Order.SELL, Contract.OPEN, DAY), 5, ContractState.CLOSING, DAY, null, 3390D);
+        account.positions().transfer(find("m2205", Order.SELL, Contract.CLOSING, DAY), 5, ContractState.CLOSED, DAY, null, null);
+        assertSettled();
+    }
+
+    @Test
+    public void rebuildsOnInstrumentAndTradingDayChange() throws Exception {
+        infoCenter.setInstrument(instrument("m2205", 0D, 2D, 0D, 900D));
+        assertSettled();
+        account.positions().removeIf(position -> position.getInstrumentId().equals("m2205"));
+        assertSettled();
+        infoCenter.setTradingDay("20261019");
+        assertSettled("20261019");
+    }
+
+    private void assertSettled() throws Exception {
+        assertSettled(DAY);
+    }
+
+    private void assertSettled(String day) throws Exception {
+        AccountUtils.settleAccount(account, day, infoCenter);
+        var incremental = settlement();
+        AccountUtils.settleAccount(account, AccountUtils.findInstruments(account, infoCenter), AccountUtils.findLatestPrices(account, infoCenter), day, infoCenter);
+        assertArrayEquals(settlement(), incremental, 1E-6);
+    }
+
+    private double[] settlement() {
+        return new double[]{account.getAvailable(), account.getBalance(), account.getCloseProfit(), account.getClosingCommission(), account.getCommission(),
+            account.getMargin(), account.getOpeningCommission(), account.getOpeningMargin(), account.getPositionProfit()};
+    }
+
+    private PositionCore find(String instrumentId, String direction, String state, String day) {
+        return account.positions().find(instrumentId, EXCHANGE_ID, direction, state, day);
+    }
+
+    private static InstrumentCore instrument(String instrumentId, double commissionByAmount, double commissionByQuantity, double marginByAmount, double marginByQuantity) {
+        var instrument = new InstrumentCore();
+        instrument.setInstrumentId(instrumentId);
+        instrument.setExchangeId(EXCHANGE_ID);
+        instrument.setMultiple(10D);
+        instrument.setCommissionByAmount(commissionByAmount);
+        instrument.setCommissionByQuantity(commissionByQuantity);
+        instrument.setMarginByAmount(marginByAmount);
+        instrument.setMarginByQuantity(marginByQuantity);
+        instrument.setUpdateDatetime(Utils.datetime());
+        return instrument;
+    }
+}
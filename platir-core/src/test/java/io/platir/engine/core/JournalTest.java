@@ -0,0 +1,118 @@
+package io.platir.engine.core;
+
+import io.platir.Contract;
+import io.platir.Order;
+import io.platir.commons.PositionCore;
+import io.platir.setting.GlobalSetting;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Reopening the journal continues its last segment.
+ */
+public class JournalTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("platir-journal");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        for (var file : Journal.list(directory)) {
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void reopenWithoutRecords() throws IOException {
+        Journal.open(directory, GlobalSetting.JOURNAL_FSYNC_NONE).close();
+        var journal = Journal.open(directory, GlobalSetting.JOURNAL_FSYNC_NONE);
+        assertEquals(0L, journal.sequence());
+        append(journal, 2);
+        journal.close();
+        assertEquals(1, Journal.list(directory).size());
+        assertEquals(List.of(1L, 2L), sequences());
+    }
+
+    @Test
+    public void reopenWithRecords() throws IOException {
+        var journal = Journal.open(directory, GlobalSetting.JOURNAL_FSYNC_NONE);
+        append(journal, 3);
+        journal.close();
+        journal = Journal.open(directory, GlobalSetting.JOURNAL_FSYNC_NONE);
+        assertEquals(3L, journal.sequence());
+        append(journal, 2);
+        journal.close();
+        journal = Journal.open(directory, GlobalSetting.JOURNAL_FSYNC_NONE);
+        assertEquals(5L, journal.sequence());
+        journal.close();
+        assertEquals(1, Journal.list(directory).size());
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), sequences());
+    }
+
+    @Test
+    public void reopenAfterTornRecord() throws IOException {
+        var journal = Journal.open(directory, GlobalSetting.JOURNAL_FSYNC_NONE);
+        append(journal, 2);
+        journal.close();
+        var file = Journal.list(directory).get(0);
+        var tornAt = endOfRecords(file);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            /* Length and CRC of a record that was never completed. */
+            channel.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 64, 1, 2, 3, 4}), tornAt);
+        }
+        journal = Journal.open(directory, GlobalSetting.JOURNAL_FSYNC_NONE);
+        assertEquals(2L, journal.sequence());
+        append(journal, 1);
+        journal.close();
+        assertEquals(List.of(1L, 2L, 3L), sequences());
+    }
+
+    private static void append(Journal journal, int count) {
+        for (int index = 0; index < count; ++index) {
+            var position = new PositionCore();
+            position.setAccountId("account");
+            position.setInstrumentId("c2205");
+            position.setExchangeId("DCE");
+            position.setDirection(Order.BUY);
+            position.setState(Contract.OPEN);
+            position.setOpenTradingDay("20220110");
+            journal.onPositionChanged(position, 1, 2800D, 0D);
+        }
+    }
+
+    private List<Long> sequences() throws IOException {
+        List<Long> sequences = new ArrayList<>();
+        for (var file : Journal.list(directory)) {
+            Journal.scan(file, (sequence, type, body) -> sequences.add(sequence));
+        }
+        return sequences;
+    }
+
+    private static long endOfRecords(Path file) throws IOException {
+        var bytes = Files.readAllBytes(file);
+        var position = 0;
+        while (position + 8 <= bytes.length) {
+            var length = ByteBuffer.wrap(bytes, position, 4).getInt();
+            if (length == 0) {
+                break;
+            }
+            position += 8 + length;
+        }
+        return position;
+    }
+}
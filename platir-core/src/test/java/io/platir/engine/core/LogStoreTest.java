@@ -0,0 +1,99 @@
+package io.platir.engine.core;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Records of a strategy are read by page from the newest back, across
+ * segments, and only the configured number of segments are kept.
+ */
+public class LogStoreTest {
+
+    /* A few records per segment. */
+    private static final long SEGMENT_SIZE = 200L;
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("platir-log");
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        try (var stream = Files.walk(directory)) {
+            for (var path : stream.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Test
+    public void readsPagesFromNewest() throws IOException {
+        var store = LogStore.open(directory, 0);
+        for (int index = 0; index < 10; ++index) {
+            store.append("user", "account", "strategy", "strategy " + index);
+            store.append("user", "account", "other", "other " + index);
+            store.append(null, null, null, "engine " + index);
+        }
+        assertEquals(List.of("strategy 7", "strategy 8", "strategy 9"), store.read("strategy", 0, 3));
+        assertEquals(List.of("strategy 0", "strategy 1"), store.read("strategy", 8, 5));
+        assertEquals(List.of(), store.read("strategy", 10, 5));
+        assertEquals(List.of("engine 8"), store.read("", 1, 1));
+        assertEquals(List.of(), store.read("unknown", 0, 10));
+        store.close();
+    }
+
+    @Test
+    public void pagesAcrossSegmentsAndKeepsNewest() throws IOException {
+        var store = LogStore.open(directory, 3, SEGMENT_SIZE);
+        var appended = append(store, 0, 40);
+        assertEquals(3, segments().size());
+        var kept = store.read("strategy", 0, 100);
+        assertTrue(kept.size() < appended.size());
+        assertEquals(appended.subList(appended.size() - kept.size(), appended.size()), kept);
+        /* Pages that start and end in different segments. */
+        assertEquals(kept.subList(kept.size() - 9, kept.size() - 2), store.read("strategy", 2, 7));
+        assertEquals(kept.subList(0, 3), store.read("strategy", kept.size() - 3, 10));
+        store.close();
+    }
+
+    @Test
+    public void reopenContinuesAndScansSegmentWithoutIndex() throws IOException {
+        var store = LogStore.open(directory, 0, SEGMENT_SIZE);
+        var appended = append(store, 0, 20);
+        store.close();
+        /* Crashed before the index of a rolled segment is written. */
+        Files.delete(Path.of(segments().get(1).toString().replace(".log", ".index")));
+        store = LogStore.open(directory, 0, SEGMENT_SIZE);
+        appended.addAll(append(store, 20, 5));
+        assertEquals(appended, store.read("strategy", 0, 100));
+        store.close();
+    }
+
+    private static List<String> append(LogStore store, int from, int count) throws IOException {
+        List<String> texts = new ArrayList<>();
+        for (int index = from; index < from + count; ++index) {
+            var text = "strategy record " + index;
+            store.append("user", "account", "strategy", text);
+            texts.add(text);
+        }
+        return texts;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (var stream = Files.list(directory)) {
+            return stream.filter(path -> path.toString().endsWith(".log")).sorted().collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.platir.engine.core;
+
+import io.platir.Contract;
+import io.platir.Order;
+import io.platir.commons.AccountCore;
+import io.platir.commons.AccountSettingCore;
+import io.platir.commons.InstrumentCore;
+import io.platir.commons.SnapshotCodec;
+import io.platir.commons.UserCore;
+import io.platir.commons.UserSettingCore;
+import io.platir.utils.Utils;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Set;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Settlement alone doesn't put an account into the next delta snapshot.
+ */
+public class SettlementDeltaTest {
+
+    private static final String DAY = "20261016";
+    private static final String EXCHANGE_ID = "DCE";
+
+    private InfoCenter infoCenter;
+    private UserCore user;
+    private AccountCore idle;
+    private AccountCore active;
+
+    @BeforeEach
+    public void setUp() {
+        infoCenter = new InfoCenter();
+        infoCenter.setTradingDay(DAY);
+        var instrument = new InstrumentCore();
+        instrument.setInstrumentId("c2205");
+        instrument.setExchangeId(EXCHANGE_ID);
+        instrument.setMultiple(10D);
+        instrument.setCommissionByAmount(0.0001D);
+        instrument.setCommissionByQuantity(0D);
+        instrument.setMarginByAmount(0.1D);
+        instrument.setMarginByQuantity(0D);
+        instrument.setUpdateDatetime(Utils.datetime());
+        infoCenter.setInstrument(instrument);
+        infoCenter.setLatestPrice("c2205", 2800D);
+        user = new UserCore();
+        user.setUserId("user");
+        user.setUserSetting(new UserSettingCore());
+        /* Deltas are based on the full snapshot written first by every test. */
+        user.setSnapshotBase("20261015");
+        idle = account("idle");
+        active = account("active");
+    }
+
+    @Test
+    public void idleAccountIsLeftOutOfDelta() throws Exception {
+        write(false);
+        assertFalse(idle.isDirty());
+        infoCenter.setLatestPrice("c2205", 2850D);
+        settle(idle);
+        settle(active);
+        assertFalse(idle.isDirty());
+        active.positions().add(active.getAccountId(), "c2205", EXCHANGE_ID, Order.BUY, Contract.OPEN, DAY, 1, 2850D, 0D);
+        var delta = read(write(true));
+        assertEquals(Set.of("active"), delta.accounts().keySet());
+    }
+
+    @Test
+    public void unchangedValueKeepsAccountClean() throws Exception {
+        write(false);
+        idle.setState("NORMAL");
+        idle.setYdBalance(1.0E6);
+        assertFalse(idle.isDirty());
+        idle.setState("REMOVED");
+        assertEquals(Set.of("idle"), read(write(true)).accounts().keySet());
+    }
+
+    private AccountCore account(String accountId) {
+        var account = new AccountCore();
+        account.setAccountId(accountId);
+        account.setState("NORMAL");
+        account.setYdBalance(1.0E6);
+        account.setAccountRule(new AccountSettingCore());
+        account.setUser(user);
+        account.positions().add(accountId, "c2205", EXCHANGE_ID, Order.BUY, Contract.OPEN, DAY, 10, 28000D, 0D);
+        user.accounts().put(accountId, account);
+        return account;
+    }
+
+    private void settle(AccountCore account) throws InsufficientInfoException {
+        AccountUtils.verifyAccount(account, DAY, infoCenter);
+        AccountUtils.settleAccount(account, AccountUtils.findInstruments(account, infoCenter), AccountUtils.findSettlementPrices(account, infoCenter), DAY, infoCenter);
+    }
+
+    private byte[] write(boolean delta) throws IOException {
+        var output = new ByteArrayOutputStream();
+        SnapshotCodec.write(output, user, delta, true);
+        return output.toByteArray();
+    }
+
+    private UserCore read(byte[] bytes) throws IOException {
+        return SnapshotCodec.read(new ByteArrayInputStream(bytes));
+    }
+}
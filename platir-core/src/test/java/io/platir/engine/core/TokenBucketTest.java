@@ -0,0 +1,67 @@
+package io.platir.engine.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tokens are granted up to the burst, then at the rate.
+ */
+public class TokenBucketTest {
+
+    private static final long MILLIS = 1000000L;
+
+    private TokenBucket bucket;
+    private long now;
+
+    @BeforeEach
+    public void setUp() {
+        bucket = new TokenBucket();
+        now = System.nanoTime();
+    }
+
+    @Test
+    public void grantsBurstThenRate() {
+        assertEquals(3, acquire(10D, 3D, now, 10));
+        assertEquals(0, acquire(10D, 3D, now + 99 * MILLIS, 10));
+        assertEquals(1, acquire(10D, 3D, now + 100 * MILLIS, 10));
+        assertEquals(2, acquire(10D, 3D, now + 300 * MILLIS, 10));
+        /* An idle bucket fills up to the burst only. */
+        assertEquals(3, acquire(10D, 3D, now + 10000 * MILLIS, 10));
+    }
+
+    @Test
+    public void burstIsAtLeastOne() {
+        assertEquals(1, acquire(10D, 0D, now, 10));
+        assertEquals(1, acquire(10D, 0D, now + 100 * MILLIS, 10));
+    }
+
+    @Test
+    public void noLimitWithoutRate() {
+        assertEquals(1000, acquire(0D, 1D, now, 1000));
+        assertEquals(1000, acquire(1.0E10, 1D, now, 1000));
+    }
+
+    @Test
+    public void releasedTokenIsGrantedAgain() {
+        assertEquals(2, acquire(10D, 2D, now, 10));
+        bucket.release(10D);
+        assertTrue(bucket.tryAcquire(10D, 2D, now));
+        assertFalse(bucket.tryAcquire(10D, 2D, now));
+        bucket.reject();
+        bucket.reject();
+        assertEquals(2L, bucket.getRejectedCount());
+    }
+
+    private int acquire(double rate, double burst, long nanos, int tries) {
+        int granted = 0;
+        for (int count = 0; count < tries; ++count) {
+            if (bucket.tryAcquire(rate, burst, nanos)) {
+                ++granted;
+            }
+        }
+        return granted;
+    }
+}
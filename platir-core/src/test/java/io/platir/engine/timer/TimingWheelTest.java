@@ -0,0 +1,73 @@
+package io.platir.engine.timer;
+
+import java.util.ArrayList;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Entries are due at their tick wherever they are placed in the wheel, and
+ * cascaded down through every level on the way.
+ */
+public class TimingWheelTest {
+
+    private static final long TICK = TimingWheel.TICK_MILLIS;
+    /* Not aligned to a slot of any level. */
+    private static final long START = 1760000000123L;
+
+    private TimingWheel wheel;
+    private List<TimingWheel.Entry> due;
+
+    @BeforeEach
+    public void setUp() {
+        wheel = new TimingWheel(START);
+        due = new ArrayList<>();
+    }
+
+    @Test
+    public void firesAtDeadlineTickOfEveryLevel() {
+        /* Level 0, the first slots of levels 1 to 3, the last of level 3, and beyond the span. */
+        long[] ticks = {1, 63, 64, 65, 4095, 4096, 4097, 262143, 262144, 300001, (1L << 24) - 1, (1L << 24) + 1000};
+        var entries = new TimingWheel.Entry[ticks.length];
+        for (int index = 0; index < ticks.length; ++index) {
+            entries[index] = new TimingWheel.Entry();
+            wheel.add(entries[index], START + ticks[index] * TICK);
+        }
+        assertEquals(ticks.length, wheel.size());
+        wheel.advance(START, due::add);
+        for (int index = 0; index < ticks.length; ++index) {
+            var deadline = START + ticks[index] * TICK;
+            wheel.advance(deadline - TICK, due::add);
+            assertTrue(due.isEmpty(), "Entry " + index + " fired before its tick.");
+            wheel.advance(deadline, due::add);
+            assertEquals(List.of(entries[index]), due, "Entry " + index + " didn't fire at its tick.");
+            due.clear();
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void pastDeadlineFiresAtNextAdvance() {
+        var entry = new TimingWheel.Entry();
+        wheel.add(entry, START - 10 * TICK);
+        wheel.advance(START, due::add);
+        assertEquals(List.of(entry), due);
+    }
+
+    @Test
+    public void removedEntryDoesNotFire() {
+        var removed = new TimingWheel.Entry();
+        var kept = new TimingWheel.Entry();
+        wheel.add(removed, START + 5000 * TICK);
+        wheel.add(kept, START + 5000 * TICK);
+        assertTrue(wheel.remove(removed));
+        assertFalse(wheel.remove(removed));
+        assertEquals(1, wheel.size());
+        wheel.advance(START + 5000 * TICK, due::add);
+        assertEquals(List.of(kept), due);
+        assertFalse(wheel.remove(kept));
+    }
+}